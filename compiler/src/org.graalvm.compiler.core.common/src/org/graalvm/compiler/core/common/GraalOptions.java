@@ -113,6 +113,15 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> PartialUnroll = new OptionKey<>(true);
 
+    @Option(help = "Replace bounds checks on the counter of counted loops by a predicate before the loop.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> LoopPredication = new OptionKey<>(false);
+
+    @Option(help = "Only take the safepoint poll of innermost counted loops with a 64-bit counter every LoopStripMiningIterations iterations.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> LoopStripMining = new OptionKey<>(false);
+
+    @Option(help = "Number of iterations of a strip mined loop between two safepoint polls (rounded down to a power of 2).", type = OptionType.Expert)
+    public static final OptionKey<Integer> LoopStripMiningIterations = new OptionKey<>(1024);
+
     @Option(help = "", type = OptionType.Expert)
     public static final OptionKey<Float> MinimumPeelProbability = new OptionKey<>(0.35f);
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import org.graalvm.compiler.nodes.ReturnNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.java.InstanceOfNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.common.DominanceBasedDuplicationPhase;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DominanceBasedDuplicationPhase}.
+ */
+public class DominanceBasedDuplicationTest extends GraalCompilerTest {
+
+    static int sideEffect;
+
+    public static int constantSnippet(int a) {
+        int x;
+        if (a > 0) {
+            sideEffect = 1;
+            x = 10;
+        } else {
+            sideEffect = 2;
+            x = 20;
+        }
+        return x == 10 ? a : -a;
+    }
+
+    public static boolean typeCheckSnippet(int a) {
+        Object o;
+        if (a > 0) {
+            sideEffect = 1;
+            o = "string";
+        } else {
+            sideEffect = 2;
+            o = Integer.valueOf(a);
+        }
+        return o instanceof String;
+    }
+
+    public static int largeSnippet(int a, int b) {
+        int x;
+        if (a > 0) {
+            sideEffect = 1;
+            x = 10;
+        } else {
+            sideEffect = 2;
+            x = b;
+        }
+        return (x == 10 ? a : -a) + a * b * b * a + b / (a | 1) + (a ^ b) * 31;
+    }
+
+    /**
+     * Checks that the code compiled by {@link #test} with {@link #duplicationOptions()} was
+     * duplicated, so that the executions run the duplicated code.
+     */
+    @Override
+    protected boolean checkHighTierGraph(StructuredGraph graph) {
+        if (DominanceBasedDuplicationPhase.Options.DominanceBasedDuplication.getValue(graph.getOptions())) {
+            return graph.getNodes(ReturnNode.TYPE).count() == 2;
+        }
+        return true;
+    }
+
+    private static OptionValues duplicationOptions() {
+        return new OptionValues(getInitialOptions(), DominanceBasedDuplicationPhase.Options.DominanceBasedDuplication, true,
+                        DominanceBasedDuplicationPhase.Options.DuplicationBenefitThreshold, 0.01);
+    }
+
+    @Test
+    public void testConstantFolding() {
+        StructuredGraph graph = duplicate("constantSnippet", 0.01);
+        Assert.assertEquals(2, graph.getNodes(ReturnNode.TYPE).count());
+        test(duplicationOptions(), "constantSnippet", 5);
+        test(duplicationOptions(), "constantSnippet", -5);
+    }
+
+    @Test
+    public void testTypeCheckFolding() {
+        StructuredGraph graph = duplicate("typeCheckSnippet", 0.01);
+        Assert.assertEquals(2, graph.getNodes(ReturnNode.TYPE).count());
+        Assert.assertEquals(0, graph.getNodes().filter(InstanceOfNode.class).count());
+        test(duplicationOptions(), "typeCheckSnippet", 5);
+        test(duplicationOptions(), "typeCheckSnippet", -5);
+    }
+
+    @Test
+    public void testThresholdRespected() {
+        StructuredGraph graph = duplicate("largeSnippet", 100.0);
+        Assert.assertEquals(1, graph.getNodes(ReturnNode.TYPE).count());
+    }
+
+    private StructuredGraph duplicate(String snippet, double threshold) {
+        OptionValues options = new OptionValues(getInitialOptions(), DominanceBasedDuplicationPhase.Options.DuplicationBenefitThreshold, threshold);
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES, options);
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase();
+        PhaseContext context = new PhaseContext(getProviders());
+        canonicalizer.apply(graph, context);
+        new DominanceBasedDuplicationPhase(canonicalizer).apply(graph, context);
+        canonicalizer.apply(graph, context);
+        return graph;
+    }
+}
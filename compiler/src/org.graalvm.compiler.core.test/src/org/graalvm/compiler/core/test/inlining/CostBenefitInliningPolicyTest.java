@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test.inlining;
+
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.DebugDumpScope;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.common.inlining.InliningPhase;
+import org.graalvm.compiler.phases.common.inlining.policy.CostBenefitInliningPolicy;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+public class CostBenefitInliningPolicyTest extends GraalCompilerTest {
+
+    public static int callTreeSnippet(int a) {
+        return level1(a) + level1(a + 1);
+    }
+
+    private static int level1(int a) {
+        return level2(a) * level2(a - 1);
+    }
+
+    private static int level2(int a) {
+        int result = 0;
+        for (int i = 0; i < a; i++) {
+            result += i * a ^ (result >>> 3);
+        }
+        return result;
+    }
+
+    @Test
+    public void testCallTreeInlined() {
+        StructuredGraph graph = getGraph("callTreeSnippet", getInitialOptions());
+        Assert.assertEquals(0, countInvokes(graph));
+    }
+
+    @Test
+    public void testBudgetRespected() {
+        OptionValues options = new OptionValues(getInitialOptions(), CostBenefitInliningPolicy.Options.CostBenefitInliningBudget, 1);
+        StructuredGraph graph = getGraph("callTreeSnippet", options);
+        Assert.assertNotEquals(0, countInvokes(graph));
+    }
+
+    @Test
+    public void testColdCallsitesNotInlined() {
+        OptionValues options = new OptionValues(getInitialOptions(), CostBenefitInliningPolicy.Options.CostBenefitInliningMinFrequency, 1000.0);
+        StructuredGraph graph = getGraph("callTreeSnippet", options);
+        Assert.assertNotEquals(0, countInvokes(graph));
+    }
+
+    private static int countInvokes(StructuredGraph graph) {
+        int count = 0;
+        for (Node node : graph.getNodes()) {
+            if (node instanceof Invoke) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("try")
+    private StructuredGraph getGraph(String snippet, OptionValues options) {
+        DebugContext debug = getDebugContext(options, null, null);
+        try (DebugContext.Scope s = debug.scope("CostBenefitInliningPolicyTest", new DebugDumpScope(snippet, true))) {
+            ResolvedJavaMethod method = getResolvedJavaMethod(snippet);
+            StructuredGraph graph = parse(builder(method, AllowAssumptions.YES, debug), getEagerGraphBuilderSuite());
+            HighTierContext context = new HighTierContext(getProviders(), getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+            new CanonicalizerPhase().apply(graph, context);
+            new InliningPhase(new CostBenefitInliningPolicy(null), new CanonicalizerPhase()).apply(graph, context);
+            return graph;
+        } catch (Throwable e) {
+            throw debug.handle(e);
+        }
+    }
+}
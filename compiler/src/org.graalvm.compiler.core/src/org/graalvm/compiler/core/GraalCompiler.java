@@ -248,6 +248,7 @@ public class GraalCompiler {
             if (graph.start().next() == null) {
                 graphBuilderSuite.apply(graph, highTierContext);
                 new DeadCodeEliminationPhase(DeadCodeEliminationPhase.Optionality.Optional).apply(graph);
+                graph.maybeCompress();
                 debug.dump(DebugContext.BASIC_LEVEL, graph, "After parsing");
             } else {
                 debug.dump(DebugContext.INFO_LEVEL, graph, "initial state");
@@ -49,13 +49,16 @@ import org.graalvm.compiler.phases.PhaseSuite;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
 import org.graalvm.compiler.loop.phases.ConvertDeoptimizeToGuardPhase;
 import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
+import org.graalvm.compiler.phases.common.DominanceBasedDuplicationPhase;
 import org.graalvm.compiler.phases.common.IncrementalCanonicalizerPhase;
 import org.graalvm.compiler.phases.common.IterativeConditionalEliminationPhase;
 import org.graalvm.compiler.phases.common.LoweringPhase;
 import org.graalvm.compiler.phases.common.NodeCounterPhase;
 import org.graalvm.compiler.phases.common.RemoveValueProxyPhase;
 import org.graalvm.compiler.phases.common.inlining.InliningPhase;
+import org.graalvm.compiler.phases.common.inlining.policy.CostBenefitInliningPolicy;
 import org.graalvm.compiler.phases.common.inlining.policy.GreedyInliningPolicy;
+import org.graalvm.compiler.phases.common.inlining.policy.InliningPolicy;
 import org.graalvm.compiler.phases.tiers.HighTierContext;
 import org.graalvm.compiler.virtual.phases.ea.EarlyReadEliminationPhase;
 import org.graalvm.compiler.virtual.phases.ea.PartialEscapePhase;
@@ -67,6 +70,9 @@ public class HighTier extends PhaseSuite<HighTierContext> {
         // @formatter:off
         @Option(help = "Enable inlining", type = OptionType.Expert)
         public static final OptionKey<Boolean> Inline = new OptionKey<>(true);
+
+        @Option(help = "Use the cost/benefit inlining policy, which decides on whole call trees under a global size budget, instead of the greedy inlining policy.", type = OptionType.Expert)
+        public static final OptionKey<Boolean> CostBenefitInlining = new OptionKey<>(false);
         // @formatter:on
     }
 
@@ -83,7 +89,8 @@ public class HighTier extends PhaseSuite<HighTierContext> {
         }
 
         if (Options.Inline.getValue(options)) {
-            appendPhase(new InliningPhase(new GreedyInliningPolicy(null), canonicalizer));
+            InliningPolicy inliningPolicy = Options.CostBenefitInlining.getValue(options) ? new CostBenefitInliningPolicy(null) : new GreedyInliningPolicy(null);
+            appendPhase(new InliningPhase(inliningPolicy, canonicalizer));
             appendPhase(new DeadCodeEliminationPhase(Optional));
         }
 
@@ -99,6 +106,13 @@ public class HighTier extends PhaseSuite<HighTierContext> {
             appendPhase(new IterativeConditionalEliminationPhase(canonicalizer, false));
         }
 
+        if (DominanceBasedDuplicationPhase.Options.DominanceBasedDuplication.getValue(options)) {
+            appendPhase(new DominanceBasedDuplicationPhase(canonicalizer));
+            if (ConditionalElimination.getValue(options)) {
+                appendPhase(new IterativeConditionalEliminationPhase(canonicalizer, false));
+            }
+        }
+
         LoopPolicies loopPolicies = createLoopPolicies();
         if (FullUnroll.getValue(options)) {
             appendPhase(new LoopFullUnrollPhase(canonicalizer, loopPolicies));
@@ -29,6 +29,8 @@ import static org.graalvm.compiler.core.common.SpeculativeExecutionAttacksMitiga
 import static org.graalvm.compiler.core.common.SpeculativeExecutionAttacksMitigations.Options.MitigateSpeculativeExecutionAttacks;
 import static org.graalvm.compiler.core.common.GraalOptions.ConditionalElimination;
 import static org.graalvm.compiler.core.common.GraalOptions.ImmutableCode;
+import static org.graalvm.compiler.core.common.GraalOptions.LoopPredication;
+import static org.graalvm.compiler.core.common.GraalOptions.LoopStripMining;
 import static org.graalvm.compiler.core.common.GraalOptions.OptDeoptimizationGrouping;
 import static org.graalvm.compiler.core.common.GraalOptions.OptFloatingReads;
 import static org.graalvm.compiler.core.common.GraalOptions.OptLoopTransform;
@@ -39,7 +41,9 @@ import static org.graalvm.compiler.core.common.GraalOptions.VerifyHeapAtReturn;
 import org.graalvm.compiler.loop.DefaultLoopPolicies;
 import org.graalvm.compiler.loop.LoopPolicies;
 import org.graalvm.compiler.loop.phases.LoopPartialUnrollPhase;
+import org.graalvm.compiler.loop.phases.LoopPredicationPhase;
 import org.graalvm.compiler.loop.phases.LoopSafepointEliminationPhase;
+import org.graalvm.compiler.loop.phases.LoopStripMiningPhase;
 import org.graalvm.compiler.loop.phases.ReassociateInvariantPhase;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
 import org.graalvm.compiler.options.OptionValues;
@@ -76,6 +80,10 @@ public class MidTier extends PhaseSuite<MidTierContext> {
             appendPhase(new IterativeConditionalEliminationPhase(canonicalizer, true));
         }
 
+        if (OptLoopTransform.getValue(options) && LoopPredication.getValue(options)) {
+            appendPhase(new LoopPredicationPhase());
+        }
+
         appendPhase(new LoopSafepointEliminationPhase());
 
         appendPhase(new LoopSafepointInsertionPhase());
@@ -100,6 +108,9 @@ public class MidTier extends PhaseSuite<MidTierContext> {
                 appendPhase(new LoopPartialUnrollPhase(loopPolicies, canonicalizer));
             }
         }
+        if (LoopStripMining.getValue(options)) {
+            appendPhase(new LoopStripMiningPhase());
+        }
         if (ReassociateInvariants.getValue(options)) {
             appendPhase(new ReassociateInvariantPhase());
         }
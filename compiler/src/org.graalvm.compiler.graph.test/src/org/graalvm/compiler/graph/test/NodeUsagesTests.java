@@ -31,6 +31,7 @@ import static org.graalvm.compiler.nodeinfo.NodeCycles.CYCLES_IGNORED;
 import static org.graalvm.compiler.nodeinfo.NodeSize.SIZE_IGNORED;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -67,6 +68,41 @@ public class NodeUsagesTests extends GraphTest {
 
     }
 
+    @Test
+    public void testUsagesAfterCompression() {
+        OptionValues options = new OptionValues(getOptions(), Graph.Options.GraphCompressionThreshold, 70);
+        Graph graph = new Graph(options, getDebug(options));
+        Def def0 = graph.add(new Def());
+        Use[] uses = new Use[100];
+        for (int i = 0; i < uses.length; i++) {
+            uses[i] = graph.add(new Use(def0, null, null));
+        }
+        for (int i = 0; i < 97; i++) {
+            uses[i].safeDelete();
+        }
+        assertEquals(3, def0.getUsageCount());
+        int nodeCapacity = graph.getNodeCapacity();
+        int usageCapacity = def0.getUsageCapacity();
+        assertTrue(nodeCapacity > uses.length);
+        assertTrue(usageCapacity > uses.length);
+
+        assertTrue(graph.maybeCompress());
+        assertEquals(4, graph.getNodeCount());
+        assertEquals(3, def0.getUsageCount());
+        assertTrue(graph.getNodeCapacity() < nodeCapacity);
+        assertTrue(graph.getNodeCapacity() >= graph.getNodeCount());
+        assertEquals(3, def0.getUsageCapacity());
+        for (int i = 97; i < uses.length; i++) {
+            assertThat(def0.usages(), contains(uses[i]));
+        }
+
+        Use use = graph.add(new Use(def0, def0, null));
+        assertEquals(5, def0.getUsageCount());
+        assertThat(def0.usages(), contains(use));
+        use.safeDelete();
+        assertEquals(3, def0.getUsageCount());
+    }
+
     @Test
     public void testReplaceAtUsages() {
         OptionValues options = getOptions();
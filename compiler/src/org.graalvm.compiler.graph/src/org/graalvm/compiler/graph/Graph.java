@@ -433,6 +433,14 @@ public class Graph {
         return nodesDeletedSinceLastCompression + nodesDeletedBeforeLastCompression;
     }
 
+    /**
+     * Gets the number of nodes this graph can hold before its node array has to grow. This is
+     * reduced again by {@linkplain #maybeCompress() compression}.
+     */
+    public int getNodeCapacity() {
+        return nodes.length;
+    }
+
     /**
      * Adds a new node to the graph.
      *
@@ -918,7 +926,8 @@ public class Graph {
     /**
      * If the {@linkplain Options#GraphCompressionThreshold compression threshold} is met, the list
      * of nodes is compressed such that all non-null entries precede all null entries while
-     * preserving the ordering between the nodes within the list.
+     * preserving the ordering between the nodes within the list. The node array and the overflow
+     * usage arrays of the live nodes are shrunk to release the space held by deleted nodes.
      */
     public boolean maybeCompress() {
         if (debug.isDumpEnabledForMethod() || debug.isLogEnabledForMethod()) {
@@ -936,6 +945,7 @@ public class Graph {
             Node n = nodes[i];
             if (n != null) {
                 assert n.id == i;
+                n.trimUsages();
                 if (i != nextId) {
                     assert n.id > nextId;
                     n.id = nextId;
@@ -951,6 +961,10 @@ public class Graph {
             Arrays.fill(nodeUsageModCounts, 0);
         }
         nodesSize = nextId;
+        int compressedLength = Math.max(INITIAL_NODES_SIZE, nodesSize * 2 + 1);
+        if (nodes.length > compressedLength) {
+            nodes = Arrays.copyOf(nodes, compressedLength);
+        }
         compressions++;
         nodesDeletedBeforeLastCompression += nodesDeletedSinceLastCompression;
         nodesDeletedSinceLastCompression = 0;
@@ -390,6 +390,14 @@ public abstract class Node implements Cloneable, Formattable, NodeInterface {
         return INLINE_USAGE_COUNT + extraUsagesCount;
     }
 
+    /**
+     * Gets the number of usages this node can record before its overflow usage array has to grow.
+     * This is reduced again when the graph is {@linkplain Graph#maybeCompress() compressed}.
+     */
+    public int getUsageCapacity() {
+        return INLINE_USAGE_COUNT + extraUsages.length;
+    }
+
     /**
      * Gets the list of nodes that use this node (i.e., as an input).
      */
@@ -449,6 +457,19 @@ public abstract class Node implements Cloneable, Formattable, NodeInterface {
         }
     }
 
+    /**
+     * Releases the unused capacity of the overflow usage array. The array only ever grows while
+     * usages are added and removed, so a node that temporarily had many usages would otherwise
+     * keep a large, mostly empty array for the rest of the compilation.
+     */
+    void trimUsages() {
+        if (extraUsagesCount == 0) {
+            extraUsages = NO_NODES;
+        } else if (extraUsages.length > extraUsagesCount * 2) {
+            extraUsages = Arrays.copyOf(extraUsages, extraUsagesCount);
+        }
+    }
+
     private void movUsageFromEndTo(int destIndex) {
         if (destIndex >= INLINE_USAGE_COUNT) {
             movUsageFromEndToExtraUsages(destIndex - INLINE_USAGE_COUNT);
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.hotspot.replay.CompilationReplay;
+import org.graalvm.compiler.nodes.spi.ProfileProvider;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCICompiler;
+
+/**
+ * Tests that the profiles recorded by {@link CompilationReplay} survive a round trip through a
+ * replay file.
+ */
+public class CompilationReplayTest extends GraalCompilerTest {
+
+    abstract static class Shape {
+        abstract int area();
+    }
+
+    static final class Square extends Shape {
+        final int side;
+
+        Square(int side) {
+            this.side = side;
+        }
+
+        @Override
+        int area() {
+            return side * side;
+        }
+    }
+
+    static final class Rect extends Shape {
+        final int width;
+        final int height;
+
+        Rect(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        int area() {
+            return width * height;
+        }
+    }
+
+    public static int profiledSnippet(Shape shape, Object o, int n) {
+        int result = shape.area();
+        if (o instanceof String) {
+            result += ((String) o).length();
+        }
+        switch (n & 3) {
+            case 0:
+                result++;
+                break;
+            case 1:
+                result--;
+                break;
+            default:
+                result *= 2;
+        }
+        for (int i = 0; i < n; i++) {
+            result += i;
+        }
+        return result;
+    }
+
+    private static void warmUp() {
+        Shape[] shapes = {new Square(3), new Rect(2, 5)};
+        Object[] objects = {"a", 42, null};
+        for (int i = 0; i < 10000; i++) {
+            profiledSnippet(shapes[i % shapes.length], objects[i % objects.length], i % 7);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        warmUp();
+        ResolvedJavaMethod method = getResolvedJavaMethod("profiledSnippet");
+        int entryBCI = JVMCICompiler.INVOCATION_ENTRY_BCI;
+        OptionValues recordOptions = new OptionValues(getInitialOptions(), CompilationReplay.Options.RecordCompilation, "*.profiledSnippet");
+        ProfileProvider recording = CompilationReplay.createProfileProvider(method, entryBCI, recordOptions);
+        Assert.assertNotNull(recording);
+
+        ProfilingInfo recordedNormal = recording.getProfilingInfo(method, true, false);
+        ProfilingInfo recordedAll = recording.getProfilingInfo(method, true, true);
+        // Each combination of flags is snapshotted separately and only once.
+        Assert.assertNotSame(recordedNormal, recordedAll);
+        Assert.assertSame(recordedNormal, recording.getProfilingInfo(method, true, false));
+
+        Path file = Files.createTempFile("CompilationReplayTest", ".replay");
+        try {
+            CompilationReplay.writeRecording(recording, file);
+            OptionValues replayOptions = new OptionValues(getInitialOptions(), CompilationReplay.Options.ReplayCompilation, file.toString());
+            ProfileProvider replay = CompilationReplay.createProfileProvider(method, entryBCI, replayOptions);
+            Assert.assertNotNull(replay);
+            assertProfilesEqual(method, recordedNormal, replay.getProfilingInfo(method, true, false));
+            assertProfilesEqual(method, recordedAll, replay.getProfilingInfo(method, true, true));
+
+            // A replay file only applies to the compilation it was recorded for.
+            Assert.assertNull(CompilationReplay.createProfileProvider(method, 0, replayOptions));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertProfilesEqual(ResolvedJavaMethod method, ProfilingInfo expected, ProfilingInfo actual) {
+        Assert.assertEquals(expected.getCodeSize(), actual.getCodeSize());
+        Assert.assertEquals(expected.isMature(), actual.isMature());
+        for (DeoptimizationReason reason : DeoptimizationReason.values()) {
+            Assert.assertEquals(reason.name(), expected.getDeoptimizationCount(reason), actual.getDeoptimizationCount(reason));
+        }
+        BytecodeStream stream = new BytecodeStream(method.getCode());
+        for (int opcode = stream.currentBC(); opcode != Bytecodes.END; stream.next(), opcode = stream.currentBC()) {
+            int bci = stream.currentBCI();
+            String at = "bci " + bci;
+            Assert.assertEquals(at, expected.getBranchTakenProbability(bci), actual.getBranchTakenProbability(bci), 0.0);
+            Assert.assertArrayEquals(at, expected.getSwitchProbabilities(bci), actual.getSwitchProbabilities(bci), 0.0);
+            Assert.assertEquals(at, expected.getTypeProfile(bci), actual.getTypeProfile(bci));
+            Assert.assertEquals(at, expected.getMethodProfile(bci), actual.getMethodProfile(bci));
+            Assert.assertEquals(at, expected.getExceptionSeen(bci), actual.getExceptionSeen(bci));
+            Assert.assertEquals(at, expected.getNullSeen(bci), actual.getNullSeen(bci));
+            Assert.assertEquals(at, expected.getExecutionCount(bci), actual.getExecutionCount(bci));
+        }
+    }
+}
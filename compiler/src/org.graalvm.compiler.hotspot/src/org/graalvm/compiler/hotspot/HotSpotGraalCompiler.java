@@ -45,6 +45,7 @@ import org.graalvm.compiler.debug.DebugOptions;
 import org.graalvm.compiler.hotspot.CompilationCounters.Options;
 import org.graalvm.compiler.hotspot.meta.HotSpotProviders;
 import org.graalvm.compiler.hotspot.phases.OnStackReplacementPhase;
+import org.graalvm.compiler.hotspot.replay.CompilationReplay;
 import org.graalvm.compiler.java.GraphBuilderPhase;
 import org.graalvm.compiler.lir.asm.CompilationResultBuilderFactory;
 import org.graalvm.compiler.lir.phases.LIRSuites;
@@ -154,7 +155,8 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
                 speculationLog.collectFailedSpeculations();
             }
             graph = new StructuredGraph.Builder(options, debug, AllowAssumptions.ifTrue(OptAssumptions.getValue(options))).method(method).entryBCI(entryBCI).speculationLog(
-                            speculationLog).useProfilingInfo(useProfilingInfo).compilationId(compilationId).build();
+                            speculationLog).useProfilingInfo(useProfilingInfo).compilationId(compilationId).profileProvider(
+                                            useProfilingInfo ? CompilationReplay.createProfileProvider(method, entryBCI, options) : null).build();
         }
         return graph;
     }
@@ -168,7 +170,14 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
 
         Suites suites = getSuites(providers, options);
         LIRSuites lirSuites = getLIRSuites(providers, options);
-        ProfilingInfo profilingInfo = useProfilingInfo ? method.getProfilingInfo(!isOSR, isOSR) : DefaultProfilingInfo.get(TriState.FALSE);
+        ProfilingInfo profilingInfo;
+        if (!useProfilingInfo) {
+            profilingInfo = DefaultProfilingInfo.get(TriState.FALSE);
+        } else if (graph.getProfileProvider() != null) {
+            profilingInfo = graph.getProfileProvider().getProfilingInfo(method, !isOSR, isOSR);
+        } else {
+            profilingInfo = method.getProfilingInfo(!isOSR, isOSR);
+        }
         OptimisticOptimizations optimisticOpts = getOptimisticOpts(profilingInfo, options);
 
         /*
@@ -195,7 +204,9 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
     public CompilationResult compile(ResolvedJavaMethod method, int entryBCI, boolean useProfilingInfo, CompilationIdentifier compilationId, OptionValues options, DebugContext debug) {
         StructuredGraph graph = createGraph(method, entryBCI, useProfilingInfo, compilationId, options, debug);
         CompilationResult result = new CompilationResult(compilationId);
-        return compileHelper(CompilationResultBuilderFactory.Default, result, graph, method, entryBCI, useProfilingInfo, options);
+        compileHelper(CompilationResultBuilderFactory.Default, result, graph, method, entryBCI, useProfilingInfo, options);
+        CompilationReplay.finishCompilation(graph);
+        return result;
     }
 
     protected OptimisticOptimizations getOptimisticOpts(ProfilingInfo profilingInfo, OptionValues options) {
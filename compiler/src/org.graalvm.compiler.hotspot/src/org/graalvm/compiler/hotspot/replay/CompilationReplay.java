@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.replay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.DebugContext.Activation;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.debug.MethodFilter;
+import org.graalvm.compiler.debug.TTY;
+import org.graalvm.compiler.hotspot.HotSpotCompilationIdentifier;
+import org.graalvm.compiler.hotspot.HotSpotGraalCompiler;
+import org.graalvm.compiler.hotspot.HotSpotGraalRuntimeProvider;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.spi.ProfileProvider;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+
+import jdk.vm.ci.hotspot.HotSpotCompilationRequest;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Records the profiles a compilation reads so that the compilation can later be repeated
+ * deterministically, for example in another VM or under a profiler, by {@link #main}.
+ *
+ * Only profiles are recorded. The class hierarchy, the state of the speculation log and the values
+ * of constants are taken from the replaying VM, as are all options, so the phases of a replayed
+ * compilation can be varied with the usual {@code -Dgraal.} options.
+ */
+public final class CompilationReplay {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Record the profiles used by compilations of methods matching this filter " +
+                       "(see MethodFilter) in a replay file in the dump directory.", type = OptionType.Debug)
+        public static final OptionKey<String> RecordCompilation = new OptionKey<>(null);
+        @Option(help = "Use the profiles in this replay file instead of the live profiles when compiling " +
+                       "the method the file was recorded for.", type = OptionType.Debug)
+        public static final OptionKey<String> ReplayCompilation = new OptionKey<>(null);
+        // @formatter:on
+    }
+
+    private static String cachedReplayPath;
+    private static CompilationReplayFile cachedReplayFile;
+
+    private CompilationReplay() {
+    }
+
+    /**
+     * Creates the {@link ProfileProvider} for a compilation of {@code method}, or returns
+     * {@code null} if the compilation should use the live profiles.
+     */
+    public static ProfileProvider createProfileProvider(ResolvedJavaMethod method, int entryBCI, OptionValues options) {
+        String replayPath = Options.ReplayCompilation.getValue(options);
+        if (replayPath != null) {
+            CompilationReplayFile file = loadReplayFile(replayPath);
+            if (file.getEntryBCI() == entryBCI && file.isRootMethod(method)) {
+                return new ReplayProfileProvider(file);
+            }
+        }
+        String filter = Options.RecordCompilation.getValue(options);
+        if (filter != null && MethodFilter.matches(MethodFilter.parse(filter), method)) {
+            return new RecordingProfileProvider(method, entryBCI);
+        }
+        return null;
+    }
+
+    private static synchronized CompilationReplayFile loadReplayFile(String path) {
+        if (!path.equals(cachedReplayPath)) {
+            try {
+                cachedReplayFile = CompilationReplayFile.read(Paths.get(path), HotSpotJVMCIRuntime.runtime().getHostJVMCIBackend().getMetaAccess());
+            } catch (IOException e) {
+                throw new GraalError(e).addContext("replay file", path);
+            }
+            cachedReplayPath = path;
+        }
+        return cachedReplayFile;
+    }
+
+    /**
+     * Writes the profiles recorded while compiling {@code graph} to a replay file if the
+     * compilation was recorded.
+     */
+    public static void finishCompilation(StructuredGraph graph) {
+        if (graph.getProfileProvider() instanceof RecordingProfileProvider) {
+            RecordingProfileProvider recording = (RecordingProfileProvider) graph.getProfileProvider();
+            Path path = graph.getDebug().getDumpPath(".replay", false);
+            try {
+                writeRecording(recording, path);
+                TTY.println("Recorded compilation of %s to %s", recording.getRoot().format("%H.%n(%p)"), path);
+            } catch (IOException e) {
+                throw new GraalError(e).addContext("replay file", path);
+            }
+        }
+    }
+
+    /**
+     * Writes the profiles recorded by {@code provider}, which must have been created by
+     * {@link #createProfileProvider} for a recorded compilation, to {@code path}.
+     */
+    public static void writeRecording(ProfileProvider provider, Path path) throws IOException {
+        if (!(provider instanceof RecordingProfileProvider)) {
+            throw new IllegalArgumentException("not a recording profile provider: " + provider);
+        }
+        RecordingProfileProvider recording = (RecordingProfileProvider) provider;
+        CompilationReplayFile.write(path, recording.getRoot(), recording.getEntryBCI(), recording.getProfiles());
+    }
+
+    /**
+     * Compiles the method recorded in a replay file, optionally several times, and reports the
+     * time each compilation took. The code is not installed and installation is not included in
+     * the reported time. Usage: {@code CompilationReplay <file> [iterations]}.
+     */
+    @SuppressWarnings("try")
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: CompilationReplay <replay file> [iterations]");
+            System.exit(1);
+        }
+        String path = args[0];
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        HotSpotJVMCIRuntime jvmciRuntime = HotSpotJVMCIRuntime.runtime();
+        HotSpotGraalCompiler compiler = (HotSpotGraalCompiler) jvmciRuntime.getCompiler();
+        HotSpotGraalRuntimeProvider graalRuntime = compiler.getGraalRuntime();
+        OptionValues options = new OptionValues(graalRuntime.getOptions(), Options.ReplayCompilation, path);
+        CompilationReplayFile file = loadReplayFile(path);
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) file.resolveRootMethod(jvmciRuntime.getHostJVMCIBackend().getMetaAccess());
+        int entryBCI = file.getEntryBCI();
+
+        for (int i = 0; i < iterations; i++) {
+            HotSpotCompilationIdentifier compilationId = new HotSpotCompilationIdentifier(new HotSpotCompilationRequest(method, entryBCI, 0L));
+            try (DebugContext debug = graalRuntime.openDebugContext(options, compilationId, method, compiler.getDebugHandlersFactories(), DebugContext.DEFAULT_LOG_STREAM);
+                            Activation a = debug.activate()) {
+                long start = System.nanoTime();
+                CompilationResult result = compiler.compile(method, entryBCI, true, compilationId, options, debug);
+                long elapsed = System.nanoTime() - start;
+                TTY.println("%d: %s compiled in %d ms, %d bytes of code", i, method.format("%H.%n(%p)"), elapsed / 1_000_000, result.getTargetCodeSize());
+            } catch (Throwable t) {
+                TTY.println("%d: %s failed: %s", i, method.format("%H.%n(%p)"), t);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.UnmodifiableEconomicMap;
+import org.graalvm.collections.UnmodifiableMapCursor;
+import org.graalvm.compiler.debug.GraalError;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaMethodProfile.ProfiledMethod;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.TriState;
+import jdk.vm.ci.meta.UnresolvedJavaType;
+
+/**
+ * The contents of a compilation replay file: the root method and entry BCI of a compilation plus
+ * the {@linkplain RecordedProfilingInfo profiles} of every method it parsed.
+ *
+ * The file is line based. The first line is {@code compilation <holder> <name> <descriptor> <bci>}
+ * and is followed by one block per profile read by the compilation. A block starts with
+ * {@code method <holder> <name> <descriptor> <includeNormal> <includeOSR>}, where the last two
+ * values are the arguments of {@link ResolvedJavaMethod#getProfilingInfo(boolean, boolean)}, ends
+ * with {@code end} and contains one line per
+ * profile entry that differs from the default, for example {@code branch 12 0.75} or
+ * {@code types 20 FALSE 0.0 Ljava/lang/String; 0.9 Ljava/lang/Integer; 0.1}. Types are written as
+ * {@linkplain ResolvedJavaType#getName() internal names}.
+ */
+public final class CompilationReplayFile {
+
+    private final String rootMethod;
+    private final int entryBCI;
+    private final EconomicMap<String, RecordedProfilingInfo> profiles;
+
+    CompilationReplayFile(String rootMethod, int entryBCI, EconomicMap<String, RecordedProfilingInfo> profiles) {
+        this.rootMethod = rootMethod;
+        this.entryBCI = entryBCI;
+        this.profiles = profiles;
+    }
+
+    /**
+     * Gets a key identifying {@code method} in a replay file.
+     */
+    static String key(ResolvedJavaMethod method) {
+        return method.getDeclaringClass().getName() + " " + method.getName() + " " + method.getSignature().toMethodDescriptor();
+    }
+
+    /**
+     * Determines if {@code method} is the root method of the recorded compilation.
+     */
+    public boolean isRootMethod(ResolvedJavaMethod method) {
+        return key(method).equals(rootMethod);
+    }
+
+    public int getEntryBCI() {
+        return entryBCI;
+    }
+
+    /**
+     * Gets a key identifying the profile of {@code method} that includes the given kinds of
+     * executions.
+     */
+    static String profileKey(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        return key(method) + " " + includeNormal + " " + includeOSR;
+    }
+
+    /**
+     * Gets the recorded profile of {@code method}, or {@code null} if the recorded compilation did
+     * not read that profile.
+     *
+     * @see ResolvedJavaMethod#getProfilingInfo(boolean, boolean)
+     */
+    public ProfilingInfo getProfile(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        return profiles.get(profileKey(method, includeNormal, includeOSR));
+    }
+
+    /**
+     * Resolves the root method of the recorded compilation.
+     */
+    public ResolvedJavaMethod resolveRootMethod(MetaAccessProvider metaAccess) {
+        String[] parts = rootMethod.split(" ");
+        String typeName = parts[0];
+        String className = typeName.substring(1, typeName.length() - 1).replace('/', '.');
+        ResolvedJavaType holder;
+        try {
+            holder = metaAccess.lookupJavaType(Class.forName(className, false, ClassLoader.getSystemClassLoader()));
+        } catch (ClassNotFoundException e) {
+            throw new GraalError(e).addContext("recorded compilation", rootMethod);
+        }
+        ResolvedJavaMethod method = findMethod(holder, parts[1], parts[2]);
+        if (method == null) {
+            throw new GraalError("cannot find method of recorded compilation %s", rootMethod);
+        }
+        return method;
+    }
+
+    private static ResolvedJavaMethod findMethod(ResolvedJavaType holder, String name, String descriptor) {
+        if (name.equals("<clinit>")) {
+            return holder.getClassInitializer();
+        }
+        ResolvedJavaMethod[] candidates = name.equals("<init>") ? holder.getDeclaredConstructors() : holder.getDeclaredMethods();
+        for (ResolvedJavaMethod candidate : candidates) {
+            if (candidate.getName().equals(name) && candidate.getSignature().toMethodDescriptor().equals(descriptor)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the profiles recorded for a compilation of {@code root} to {@code path}.
+     */
+    static void write(Path path, ResolvedJavaMethod root, int entryBCI, UnmodifiableEconomicMap<String, RecordedProfilingInfo> recorded) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(path), false, StandardCharsets.UTF_8.name())) {
+            out.println("compilation " + key(root) + " " + entryBCI);
+            UnmodifiableMapCursor<String, RecordedProfilingInfo> cursor = recorded.getEntries();
+            while (cursor.advance()) {
+                writeProfile(out, cursor.getKey(), cursor.getValue());
+            }
+        }
+    }
+
+    private static void writeProfile(PrintStream out, String profileKey, RecordedProfilingInfo profile) {
+        out.println("method " + profileKey);
+        out.println("codeSize " + profile.codeSize);
+        out.println("mature " + profile.mature);
+        out.println("irSize " + profile.compilerIRSize);
+        for (DeoptimizationReason reason : DeoptimizationReason.values()) {
+            int count = profile.deoptimizationCounts[reason.ordinal()];
+            if (count != 0) {
+                out.println("deopt " + reason.name() + " " + count);
+            }
+        }
+        for (int bci = 0; bci < profile.codeSize; bci++) {
+            if (profile.branchTakenProbabilities[bci] != -1) {
+                out.println("branch " + bci + " " + profile.branchTakenProbabilities[bci]);
+            }
+            double[] switchProbabilities = profile.switchProbabilities[bci];
+            if (switchProbabilities != null) {
+                StringBuilder sb = new StringBuilder("switch ").append(bci);
+                for (double p : switchProbabilities) {
+                    sb.append(' ').append(p);
+                }
+                out.println(sb);
+            }
+            if (profile.exceptionSeen[bci] != TriState.UNKNOWN) {
+                out.println("exception " + bci + " " + profile.exceptionSeen[bci].name());
+            }
+            if (profile.nullSeen[bci] != TriState.UNKNOWN) {
+                out.println("null " + bci + " " + profile.nullSeen[bci].name());
+            }
+            if (profile.executionCounts[bci] != -1) {
+                out.println("count " + bci + " " + profile.executionCounts[bci]);
+            }
+            JavaTypeProfile typeProfile = profile.typeProfiles[bci];
+            if (typeProfile != null) {
+                StringBuilder sb = new StringBuilder("types ").append(bci).append(' ').append(typeProfile.getNullSeen().name()).append(' ').append(typeProfile.getNotRecordedProbability());
+                for (ProfiledType type : typeProfile.getTypes()) {
+                    sb.append(' ').append(type.getType().getName()).append(' ').append(type.getProbability());
+                }
+                out.println(sb);
+            }
+            JavaMethodProfile methodProfile = profile.methodProfiles[bci];
+            if (methodProfile != null) {
+                StringBuilder sb = new StringBuilder("methods ").append(bci).append(' ').append(methodProfile.getNotRecordedProbability());
+                for (ProfiledMethod m : methodProfile.getMethods()) {
+                    sb.append(' ').append(key(m.getMethod())).append(' ').append(m.getProbability());
+                }
+                out.println(sb);
+            }
+        }
+        out.println("end");
+    }
+
+    /**
+     * Reads a replay file. Types and methods named by the recorded profiles are resolved relative
+     * to the root method's holder; profile entries that cannot be resolved in the current VM are
+     * dropped and their probability is counted as not recorded.
+     */
+    public static CompilationReplayFile read(Path path, MetaAccessProvider metaAccess) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = in.readLine();
+            if (header == null || !header.startsWith("compilation ")) {
+                throw new GraalError("%s: not a compilation replay file", path);
+            }
+            String[] parts = header.split(" ");
+            String rootMethod = parts[1] + " " + parts[2] + " " + parts[3];
+            int entryBCI = Integer.parseInt(parts[4]);
+            EconomicMap<String, RecordedProfilingInfo> profiles = EconomicMap.create();
+            CompilationReplayFile file = new CompilationReplayFile(rootMethod, entryBCI, profiles);
+            ResolvedJavaType accessingType = file.resolveRootMethod(metaAccess).getDeclaringClass();
+
+            String line;
+            String method = null;
+            List<String> block = new ArrayList<>();
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("method ")) {
+                    method = line.substring("method ".length());
+                    block.clear();
+                } else if (line.equals("end")) {
+                    if (method == null) {
+                        throw new GraalError("%s: unexpected 'end'", path);
+                    }
+                    profiles.put(method, parseProfile(block, accessingType));
+                    method = null;
+                } else if (!line.isEmpty()) {
+                    block.add(line);
+                }
+            }
+            return file;
+        }
+    }
+
+    private static RecordedProfilingInfo parseProfile(List<String> lines, ResolvedJavaType accessingType) {
+        int codeSize = Integer.parseInt(lines.get(0).split(" ")[1]);
+        RecordedProfilingInfo profile = new RecordedProfilingInfo(null, codeSize);
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            switch (parts[0]) {
+                case "codeSize":
+                    break;
+                case "mature":
+                    profile.mature = Boolean.parseBoolean(parts[1]);
+                    break;
+                case "irSize":
+                    profile.compilerIRSize = Integer.parseInt(parts[1]);
+                    break;
+                case "deopt":
+                    profile.deoptimizationCounts[DeoptimizationReason.valueOf(parts[1]).ordinal()] = Integer.parseInt(parts[2]);
+                    break;
+                case "branch":
+                    profile.branchTakenProbabilities[Integer.parseInt(parts[1])] = Double.parseDouble(parts[2]);
+                    break;
+                case "switch": {
+                    double[] probabilities = new double[parts.length - 2];
+                    for (int i = 0; i < probabilities.length; i++) {
+                        probabilities[i] = Double.parseDouble(parts[i + 2]);
+                    }
+                    profile.switchProbabilities[Integer.parseInt(parts[1])] = probabilities;
+                    break;
+                }
+                case "exception":
+                    profile.exceptionSeen[Integer.parseInt(parts[1])] = TriState.valueOf(parts[2]);
+                    break;
+                case "null":
+                    profile.nullSeen[Integer.parseInt(parts[1])] = TriState.valueOf(parts[2]);
+                    break;
+                case "count":
+                    profile.executionCounts[Integer.parseInt(parts[1])] = Integer.parseInt(parts[2]);
+                    break;
+                case "types":
+                    profile.typeProfiles[Integer.parseInt(parts[1])] = parseTypeProfile(parts, accessingType);
+                    break;
+                case "methods":
+                    profile.methodProfiles[Integer.parseInt(parts[1])] = parseMethodProfile(parts, accessingType);
+                    break;
+                default:
+                    throw new GraalError("unknown replay file entry: %s", line);
+            }
+        }
+        return profile;
+    }
+
+    private static JavaTypeProfile parseTypeProfile(String[] parts, ResolvedJavaType accessingType) {
+        TriState nullSeen = TriState.valueOf(parts[2]);
+        double notRecorded = Double.parseDouble(parts[3]);
+        List<ProfiledType> types = new ArrayList<>();
+        for (int i = 4; i + 1 < parts.length; i += 2) {
+            double probability = Double.parseDouble(parts[i + 1]);
+            ResolvedJavaType type = resolveType(parts[i], accessingType);
+            if (type != null) {
+                types.add(new ProfiledType(type, probability));
+            } else {
+                notRecorded += probability;
+            }
+        }
+        return new JavaTypeProfile(nullSeen, notRecorded, types.toArray(new ProfiledType[types.size()]));
+    }
+
+    private static JavaMethodProfile parseMethodProfile(String[] parts, ResolvedJavaType accessingType) {
+        double notRecorded = Double.parseDouble(parts[2]);
+        List<ProfiledMethod> methods = new ArrayList<>();
+        for (int i = 3; i + 3 < parts.length; i += 4) {
+            double probability = Double.parseDouble(parts[i + 3]);
+            ResolvedJavaType holder = resolveType(parts[i], accessingType);
+            ResolvedJavaMethod method = holder == null ? null : findMethod(holder, parts[i + 1], parts[i + 2]);
+            if (method != null) {
+                methods.add(new ProfiledMethod(method, probability));
+            } else {
+                notRecorded += probability;
+            }
+        }
+        return new JavaMethodProfile(notRecorded, methods.toArray(new ProfiledMethod[methods.size()]));
+    }
+
+    private static ResolvedJavaType resolveType(String name, ResolvedJavaType accessingType) {
+        try {
+            return UnresolvedJavaType.create(name).resolve(accessingType);
+        } catch (LinkageError | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.replay;
+
+import java.util.Arrays;
+
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.nodes.StructuredGraph;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * An immutable copy of the {@link ProfilingInfo} of a method, as read by a recorded compilation or
+ * as loaded from a {@link CompilationReplayFile}.
+ */
+final class RecordedProfilingInfo implements ProfilingInfo {
+
+    /**
+     * The profile this one was copied from, or {@code null} when replaying. Updates by the
+     * compiler ({@link #setCompilerIRSize} and {@link #setMature()}) are forwarded to it, so that
+     * recording a compilation does not change the behavior of later compilations.
+     */
+    private final ProfilingInfo source;
+
+    final int codeSize;
+    boolean mature;
+    int compilerIRSize = -1;
+    final int[] deoptimizationCounts = new int[DeoptimizationReason.values().length];
+    final double[] branchTakenProbabilities;
+    final double[][] switchProbabilities;
+    final JavaTypeProfile[] typeProfiles;
+    final JavaMethodProfile[] methodProfiles;
+    final TriState[] exceptionSeen;
+    final TriState[] nullSeen;
+    final int[] executionCounts;
+
+    RecordedProfilingInfo(ProfilingInfo source, int codeSize) {
+        this.source = source;
+        this.codeSize = codeSize;
+        this.branchTakenProbabilities = new double[codeSize];
+        this.switchProbabilities = new double[codeSize][];
+        this.typeProfiles = new JavaTypeProfile[codeSize];
+        this.methodProfiles = new JavaMethodProfile[codeSize];
+        this.exceptionSeen = new TriState[codeSize];
+        this.nullSeen = new TriState[codeSize];
+        this.executionCounts = new int[codeSize];
+        Arrays.fill(branchTakenProbabilities, -1);
+        Arrays.fill(exceptionSeen, TriState.UNKNOWN);
+        Arrays.fill(nullSeen, TriState.UNKNOWN);
+        Arrays.fill(executionCounts, -1);
+    }
+
+    /**
+     * Copies everything {@code profile} reports about the bytecodes of {@code method}.
+     */
+    static RecordedProfilingInfo snapshot(ResolvedJavaMethod method, ProfilingInfo profile) {
+        byte[] code = method.getCode();
+        RecordedProfilingInfo result = new RecordedProfilingInfo(profile, code == null ? 0 : code.length);
+        result.mature = profile.isMature();
+        result.compilerIRSize = profile.getCompilerIRSize(StructuredGraph.class);
+        for (DeoptimizationReason reason : DeoptimizationReason.values()) {
+            result.deoptimizationCounts[reason.ordinal()] = profile.getDeoptimizationCount(reason);
+        }
+        if (code != null) {
+            BytecodeStream stream = new BytecodeStream(code);
+            for (int opcode = stream.currentBC(); opcode != Bytecodes.END; stream.next(), opcode = stream.currentBC()) {
+                int bci = stream.currentBCI();
+                result.branchTakenProbabilities[bci] = profile.getBranchTakenProbability(bci);
+                result.switchProbabilities[bci] = profile.getSwitchProbabilities(bci);
+                result.typeProfiles[bci] = profile.getTypeProfile(bci);
+                result.methodProfiles[bci] = profile.getMethodProfile(bci);
+                result.exceptionSeen[bci] = profile.getExceptionSeen(bci);
+                result.nullSeen[bci] = profile.getNullSeen(bci);
+                result.executionCounts[bci] = profile.getExecutionCount(bci);
+            }
+        }
+        return result;
+    }
+
+    private boolean isValid(int bci) {
+        return bci >= 0 && bci < codeSize;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return codeSize;
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        return isValid(bci) ? branchTakenProbabilities[bci] : -1;
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        return isValid(bci) ? switchProbabilities[bci] : null;
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        return isValid(bci) ? typeProfiles[bci] : null;
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        return isValid(bci) ? methodProfiles[bci] : null;
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        return isValid(bci) ? exceptionSeen[bci] : TriState.UNKNOWN;
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        return isValid(bci) ? nullSeen[bci] : TriState.UNKNOWN;
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        return isValid(bci) ? executionCounts[bci] : -1;
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        return deoptimizationCounts[reason.ordinal()];
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        return source != null && source.setCompilerIRSize(irType, irSize);
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return irType == StructuredGraph.class ? compilerIRSize : -1;
+    }
+
+    @Override
+    public boolean isMature() {
+        return mature;
+    }
+
+    @Override
+    public void setMature() {
+        if (source != null) {
+            source.setMature();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedProfilingInfo<codeSize=" + codeSize + ", mature=" + mature + ">";
+    }
+}
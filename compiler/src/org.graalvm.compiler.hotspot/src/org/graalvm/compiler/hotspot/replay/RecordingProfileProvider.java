@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.replay;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.UnmodifiableEconomicMap;
+import org.graalvm.compiler.nodes.spi.ProfileProvider;
+
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Snapshots the profile of each method the first time a compilation asks for it. The compilation
+ * then only ever sees the snapshot, so that the profiles written to the replay file are exactly
+ * those the compiler used even though the interpreter keeps updating the live profiles. Profiles
+ * that include different kinds of executions (normal or OSR) are snapshotted separately.
+ */
+final class RecordingProfileProvider implements ProfileProvider {
+
+    private final ResolvedJavaMethod root;
+    private final int entryBCI;
+    private final EconomicMap<String, RecordedProfilingInfo> profiles = EconomicMap.create();
+
+    RecordingProfileProvider(ResolvedJavaMethod root, int entryBCI) {
+        this.root = root;
+        this.entryBCI = entryBCI;
+    }
+
+    ResolvedJavaMethod getRoot() {
+        return root;
+    }
+
+    int getEntryBCI() {
+        return entryBCI;
+    }
+
+    UnmodifiableEconomicMap<String, RecordedProfilingInfo> getProfiles() {
+        return profiles;
+    }
+
+    @Override
+    public synchronized ProfilingInfo getProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        String key = CompilationReplayFile.profileKey(method, includeNormal, includeOSR);
+        RecordedProfilingInfo profile = profiles.get(key);
+        if (profile == null) {
+            profile = RecordedProfilingInfo.snapshot(method, method.getProfilingInfo(includeNormal, includeOSR));
+            profiles.put(key, profile);
+        }
+        return profile;
+    }
+}
@@ -419,6 +419,7 @@ import org.graalvm.compiler.nodes.java.NewMultiArrayNode;
 import org.graalvm.compiler.nodes.java.RegisterFinalizerNode;
 import org.graalvm.compiler.nodes.java.StoreFieldNode;
 import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.spi.ProfileProvider;
 import org.graalvm.compiler.nodes.spi.StampProvider;
 import org.graalvm.compiler.nodes.type.StampTool;
 import org.graalvm.compiler.nodes.util.GraphUtil;
@@ -718,7 +719,12 @@ public class BytecodeParser implements GraphBuilderContext {
         this.constantReflection = graphBuilderInstance.constantReflection;
         this.constantFieldProvider = graphBuilderInstance.constantFieldProvider;
         this.stream = new BytecodeStream(code.getCode());
-        this.profilingInfo = graph.useProfilingInfo() ? code.getProfilingInfo() : null;
+        if (graph.useProfilingInfo()) {
+            ProfileProvider profileProvider = graph.getProfileProvider();
+            this.profilingInfo = profileProvider != null && code.getMethod() != null ? profileProvider.getProfilingInfo(code.getMethod()) : code.getProfilingInfo();
+        } else {
+            this.profilingInfo = null;
+        }
         this.constantPool = code.getConstantPool();
         this.intrinsicContext = intrinsicContext;
         this.entryBCI = entryBCI;
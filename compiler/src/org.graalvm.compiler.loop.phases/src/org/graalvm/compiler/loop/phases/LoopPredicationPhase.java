@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.compiler.core.common.cfg.AbstractControlFlowGraph;
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.CountedLoopInfo;
+import org.graalvm.compiler.loop.InductionVariable;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.ShortCircuitOrNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerEqualsNode;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+import jdk.vm.ci.meta.SpeculationLog.SpeculationReason;
+
+/**
+ * Hoists range checks on the counter of a counted loop out of the loop. A guard
+ * {@code i |<| length} that is executed on every iteration of the loop, where {@code i} is the
+ * loop counter and {@code length} is a non-negative loop invariant, is replaced by a single guard
+ * before the loop that checks the first and the last value of {@code i}:
+ *
+ * <pre>
+ * tripCount == 0 || (init |<| length && extremum |<| length)
+ * </pre>
+ *
+ * Since the counter is monotonic and does not overflow, this implies that all checks in the loop
+ * succeed. Only loops whose counter never overflows or that already have an
+ * {@linkplain CountedLoopInfo#getOverFlowGuard() overflow guard} are predicated, so this phase does
+ * not add {@link DeoptimizationReason#LoopLimitCheck} guards whose failure would disable
+ * {@linkplain OptimisticOptimizations#useLoopLimitChecks loop limit checks} for the whole method.
+ *
+ * If the loop leaves early through another exit the predicate may fail although no bounds check in
+ * the loop would have. The predicate therefore deoptimizes with
+ * {@link DeoptimizationReason#BoundsCheckException} and a speculation that disables predication of
+ * this loop on recompilation. Without a speculation log, no loop is predicated.
+ */
+public class LoopPredicationPhase extends BasePhase<MidTierContext> {
+
+    private static final CounterKey PREDICATED_LOOPS = DebugContext.counter("LoopPredication_PredicatedLoops");
+    private static final CounterKey ELIMINATED_CHECKS = DebugContext.counter("LoopPredication_EliminatedChecks");
+    private static final CounterKey PREDICATES = DebugContext.counter("LoopPredication_Predicates");
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        if (!graph.getGuardsStage().allowsFloatingGuards() || graph.getSpeculationLog() == null || !graph.hasLoops()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.countedLoops()) {
+            predicate(graph, loops, loop);
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private static void predicate(StructuredGraph graph, LoopsData loops, LoopEx loop) {
+        CountedLoopInfo counted = loop.counted();
+        if (counted.getOverFlowGuard() == null && !counted.counterNeverOverflows()) {
+            return;
+        }
+        InductionVariable counter = counted.getCounter();
+        List<GuardNode> candidates = new ArrayList<>();
+        for (IntegerBelowNode check : counter.valueNode().usages().filter(IntegerBelowNode.class)) {
+            for (GuardNode guard : check.usages().filter(GuardNode.class)) {
+                if (isCandidate(loops, loop, counter, guard)) {
+                    candidates.add(guard);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        FrameState state = loop.loopBegin().stateAfter();
+        if (state == null) {
+            return;
+        }
+        SpeculationLog speculationLog = graph.getSpeculationLog();
+        LoopPredicationSpeculationReason reason = new LoopPredicationSpeculationReason(state.getMethod(), state.bci);
+        if (!speculationLog.maySpeculate(reason)) {
+            return;
+        }
+        SpeculationLog.Speculation speculation = speculationLog.speculate(reason);
+
+        AbstractBeginNode anchor = AbstractBeginNode.prevBegin(loop.entryPoint());
+        IntegerStamp stamp = counted.getStamp();
+        LogicNode notEntered = graph.addOrUniqueWithInputs(
+                        IntegerEqualsNode.create(counted.maxTripCountNode(false), ConstantNode.forIntegerStamp(stamp, 0), NodeView.DEFAULT));
+        ValueNode first = counter.initNode();
+        ValueNode last = counter.extremumNode(true, stamp);
+        EconomicMap<ValueNode, GuardNode> predicates = EconomicMap.create(Equivalence.IDENTITY);
+        for (GuardNode guard : candidates) {
+            ValueNode length = ((IntegerBelowNode) guard.getCondition()).getY();
+            GuardNode predicate = predicates.get(length);
+            if (predicate == null) {
+                LogicNode firstInBounds = graph.addOrUniqueWithInputs(IntegerBelowNode.create(first, length, NodeView.DEFAULT));
+                LogicNode lastInBounds = graph.addOrUniqueWithInputs(IntegerBelowNode.create(last, length, NodeView.DEFAULT));
+                // !(first |<| length) || !(last |<| length)
+                LogicNode outOfBounds = graph.unique(new ShortCircuitOrNode(firstInBounds, true, lastInBounds, true, 0.0));
+                LogicNode condition = graph.unique(new ShortCircuitOrNode(notEntered, false, outOfBounds, true, 0.0));
+                predicate = graph.unique(new GuardNode(condition, anchor, DeoptimizationReason.BoundsCheckException, DeoptimizationAction.InvalidateRecompile, false, speculation, null));
+                predicates.put(length, predicate);
+                PREDICATES.increment(graph.getDebug());
+            }
+            LogicNode oldCondition = guard.getCondition();
+            guard.replaceAtUsagesAndDelete(predicate);
+            GraphUtil.tryKillUnused(oldCondition);
+            ELIMINATED_CHECKS.increment(graph.getDebug());
+        }
+        PREDICATED_LOOPS.increment(graph.getDebug());
+    }
+
+    /**
+     * Checks that {@code guard} is a bounds check of the loop counter against a non-negative loop
+     * invariant and that it is executed on every iteration of the loop body.
+     */
+    private static boolean isCandidate(LoopsData loops, LoopEx loop, InductionVariable counter, GuardNode guard) {
+        if (guard.isNegated() || !(guard.getCondition() instanceof IntegerBelowNode) || guard.getAnchor() == null) {
+            return false;
+        }
+        IntegerBelowNode condition = (IntegerBelowNode) guard.getCondition();
+        if (condition.getX() != counter.valueNode() || !loop.isOutsideLoop(condition.getY())) {
+            return false;
+        }
+        IntegerStamp lengthStamp = (IntegerStamp) condition.getY().stamp(NodeView.DEFAULT);
+        if (lengthStamp.lowerBound() < 0 || lengthStamp.getBits() != loop.counted().getStamp().getBits()) {
+            // the values below a negative (large unsigned) limit do not form a signed range
+            return false;
+        }
+        Block guardBlock = loops.getCFG().blockFor(guard.getAnchor().asNode());
+        if (guardBlock == null || !loop.loop().getBlocks().contains(guardBlock)) {
+            return false;
+        }
+        Block body = loops.getCFG().blockFor(loop.counted().getBody());
+        if (!AbstractControlFlowGraph.dominates(body, guardBlock)) {
+            return false;
+        }
+        for (LoopEndNode loopEnd : loop.loopBegin().loopEnds()) {
+            if (!AbstractControlFlowGraph.dominates(guardBlock, loops.getCFG().blockFor(loopEnd))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class LoopPredicationSpeculationReason implements SpeculationReason {
+        private final ResolvedJavaMethod method;
+        private final int bci;
+
+        LoopPredicationSpeculationReason(ResolvedJavaMethod method, int bci) {
+            this.method = method;
+            this.bci = bci;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof LoopPredicationSpeculationReason) {
+                LoopPredicationSpeculationReason that = (LoopPredicationSpeculationReason) obj;
+                return this.bci == that.bci && Objects.equals(this.method, that.method);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(method) ^ bci;
+        }
+    }
+}
@@ -24,6 +24,8 @@
  */
 package org.graalvm.compiler.loop.phases;
 
+import static org.graalvm.compiler.core.common.GraalOptions.LoopStripMining;
+
 import org.graalvm.compiler.loop.LoopEx;
 import org.graalvm.compiler.loop.LoopsData;
 import org.graalvm.compiler.nodes.FixedNode;
@@ -41,16 +43,27 @@ public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
     protected void run(StructuredGraph graph, MidTierContext context) {
         LoopsData loops = new LoopsData(graph);
         if (context.getOptimisticOptimizations().useLoopLimitChecks(graph.getOptions()) && graph.getGuardsStage().allowsFloatingGuards()) {
+            boolean stripMining = LoopStripMining.getValue(graph.getOptions());
             loops.detectedCountedLoops();
             for (LoopEx loop : loops.countedLoops()) {
-                if (loop.loop().getChildren().isEmpty() && loop.counted().getStamp().getBits() <= 32) {
+                if (loop.loop().getChildren().isEmpty()) {
                     boolean hasSafepoint = false;
                     for (LoopEndNode loopEnd : loop.loopBegin().loopEnds()) {
                         hasSafepoint |= loopEnd.canSafepoint();
                     }
-                    if (hasSafepoint) {
+                    if (!hasSafepoint) {
+                        continue;
+                    }
+                    if (loop.counted().getStamp().getBits() <= 32) {
                         loop.counted().createOverFlowGuard();
                         loop.loopBegin().disableSafepoint();
+                    } else if (stripMining && loop.counted().getCounter().isConstantStride()) {
+                        /*
+                         * A 64-bit counted loop can run for too long to drop its safepoint. Keep
+                         * it but let LoopStripMiningPhase make it conditional on the induction
+                         * variable.
+                         */
+                        loop.loopBegin().setStripMined();
                     }
                 }
             }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import static org.graalvm.compiler.core.common.GraalOptions.LoopStripMiningIterations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.InductionVariable;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.SafepointNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AndNode;
+import org.graalvm.compiler.nodes.calc.IntegerEqualsNode;
+import org.graalvm.compiler.nodes.calc.RightShiftNode;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.phases.Phase;
+
+/**
+ * Strip mines innermost counted loops that were {@linkplain LoopBeginNode#isStripMined() marked}
+ * by {@link LoopSafepointEliminationPhase}: the {@link SafepointNode} before each back edge is
+ * guarded by a test on the low bits of the induction variable so that the poll is only taken
+ * every {@link org.graalvm.compiler.core.common.GraalOptions#LoopStripMiningIterations} iterations.
+ * The loop thus keeps a bounded time to safepoint without paying for a poll on every iteration.
+ *
+ * Only loops with a 64-bit counter are marked, since they poll on every iteration otherwise. The
+ * test costs about as much as a poll and adds control flow to the loop, so loops with a 32-bit
+ * counter, which run without any poll, are left alone.
+ *
+ * This phase has to run after {@link LoopPartialUnrollPhase} since partial unrolling only handles
+ * loops without internal control flow. The iteration count between two polls is scaled down by
+ * the unroll factor of the loop.
+ */
+public class LoopStripMiningPhase extends Phase {
+
+    private static final CounterKey STRIP_MINED_LOOPS = DebugContext.counter("StripMinedLoops");
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        int iterations = Integer.highestOneBit(Math.max(1, LoopStripMiningIterations.getValue(graph.getOptions())));
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.countedLoops()) {
+            if (!loop.loopBegin().isStripMined() || !loop.loop().getChildren().isEmpty()) {
+                continue;
+            }
+            InductionVariable counter = loop.counted().getCounter();
+            if (!counter.isConstantStride() || counter.constantStride() == 0) {
+                continue;
+            }
+            int polls = Math.max(1, iterations / Math.max(1, loop.loopBegin().getUnrollFactor()));
+            if (polls == 1) {
+                continue;
+            }
+            List<SafepointNode> safepoints = new ArrayList<>();
+            for (Block block : loop.loop().getBlocks()) {
+                for (FixedNode node : block.getNodes()) {
+                    if (node instanceof SafepointNode) {
+                        safepoints.add((SafepointNode) node);
+                    }
+                }
+            }
+            if (safepoints.isEmpty()) {
+                continue;
+            }
+            LogicNode condition = createPollCondition(graph, counter, polls);
+            for (SafepointNode safepoint : safepoints) {
+                makeConditional(graph, safepoint, condition, 1.0 / polls);
+            }
+            STRIP_MINED_LOOPS.increment(graph.getDebug());
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    /**
+     * Creates {@code ((iv >> tz(stride)) & (polls - 1)) == 0}. The shift strips the power of two
+     * factor of the stride. The remaining odd factor is invertible modulo {@code polls}, so the
+     * condition holds exactly once every {@code polls} iterations.
+     */
+    private static LogicNode createPollCondition(StructuredGraph graph, InductionVariable counter, int polls) {
+        ValueNode value = counter.valueNode();
+        int bits = ((IntegerStamp) value.stamp(NodeView.DEFAULT)).getBits();
+        int shift = Long.numberOfTrailingZeros(counter.constantStride());
+        if (shift > 0) {
+            value = graph.addOrUniqueWithInputs(new RightShiftNode(value, ConstantNode.forInt(shift)));
+        }
+        ValueNode masked = graph.addOrUniqueWithInputs(new AndNode(value, ConstantNode.forIntegerBits(bits, polls - 1)));
+        return graph.addOrUniqueWithInputs(new IntegerEqualsNode(masked, ConstantNode.forIntegerBits(bits, 0)));
+    }
+
+    private static void makeConditional(StructuredGraph graph, SafepointNode safepoint, LogicNode condition, double pollProbability) {
+        FixedWithNextNode predecessor = (FixedWithNextNode) safepoint.predecessor();
+        FixedNode next = safepoint.next();
+        EndNode pollEnd = graph.add(new EndNode());
+        EndNode skipEnd = graph.add(new EndNode());
+        safepoint.setNext(pollEnd);
+        predecessor.setNext(null);
+
+        BeginNode pollBegin = graph.add(new BeginNode());
+        pollBegin.setNext(safepoint);
+        BeginNode skipBegin = graph.add(new BeginNode());
+        skipBegin.setNext(skipEnd);
+
+        MergeNode merge = graph.add(new MergeNode());
+        merge.addForwardEnd(pollEnd);
+        merge.addForwardEnd(skipEnd);
+        merge.setNext(next);
+
+        predecessor.setNext(graph.add(new IfNode(condition, pollBegin, skipBegin, pollProbability)));
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import java.util.ListIterator;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.phases.LoopSafepointEliminationPhase;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.ShortCircuitOrNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.Phase;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+import org.graalvm.compiler.phases.tiers.Suites;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.code.InvalidInstalledCodeException;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+
+public class LoopPredicationTest extends GraalCompilerTest {
+
+    /**
+     * Number of array bounds check guards inside a loop in the mid tier graph of the last
+     * compilation.
+     */
+    private int boundsChecksInLoops;
+
+    /**
+     * Number of loop predicates before a loop in the mid tier graph of the last compilation.
+     */
+    private int predicates;
+
+    /**
+     * The speculation log of the next compilations. Loop predication needs one, and a failed
+     * predicate is recorded in it.
+     */
+    private SpeculationLog speculationLog;
+
+    @Override
+    protected SpeculationLog getSpeculationLog() {
+        if (speculationLog == null) {
+            speculationLog = getCodeCache().createSpeculationLog();
+        }
+        speculationLog.collectFailedSpeculations();
+        return speculationLog;
+    }
+
+    @Override
+    protected InstalledCode addMethod(DebugContext debug, final ResolvedJavaMethod method, final CompilationResult compilationResult) {
+        return getBackend().createInstalledCode(debug, method, compilationResult, speculationLog, null, false);
+    }
+
+    @Override
+    protected Suites createSuites(OptionValues opts) {
+        Suites suites = super.createSuites(opts);
+        ListIterator<BasePhase<? super MidTierContext>> position = suites.getMidTier().findPhase(LoopSafepointEliminationPhase.class);
+        position.add(new Phase() {
+            @Override
+            protected void run(StructuredGraph graph) {
+                countGuards(graph);
+            }
+        });
+        return suites;
+    }
+
+    private void countGuards(StructuredGraph graph) {
+        boundsChecksInLoops = 0;
+        predicates = 0;
+        ControlFlowGraph cfg = ControlFlowGraph.compute(graph, true, true, true, false);
+        for (GuardNode guard : graph.getNodes().filter(GuardNode.class)) {
+            Block block = cfg.blockFor(guard.getAnchor().asNode());
+            boolean inLoop = block != null && block.getLoop() != null;
+            if (inLoop && guard.getReason() == DeoptimizationReason.BoundsCheckException) {
+                boundsChecksInLoops++;
+            } else if (!inLoop && guard.getReason() == DeoptimizationReason.BoundsCheckException && guard.getCondition() instanceof ShortCircuitOrNode) {
+                predicates++;
+            }
+        }
+    }
+
+    /**
+     * Compiles {@code name} with and without loop predication and checks that predication moves
+     * all bounds checks out of the loop.
+     */
+    private void assertPredicated(String name) {
+        getCode(getResolvedJavaMethod(name), null, true, false, new OptionValues(getInitialOptions(), GraalOptions.LoopPredication, false));
+        Assert.assertNotEquals("bounds checks in loop without predication", 0, boundsChecksInLoops);
+        Assert.assertEquals(0, predicates);
+
+        getCode(getResolvedJavaMethod(name), null, true, false, predicationOptions());
+        Assert.assertEquals("bounds checks in loop with predication", 0, boundsChecksInLoops);
+        Assert.assertNotEquals("predicates before loop", 0, predicates);
+    }
+
+    public static int sumUp(int[] array, int start, int end) {
+        int sum = 0;
+        for (int i = start; branchProbability(0.99, i < end); i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumDown(int[] array, int start) {
+        int sum = 0;
+        for (int i = start; branchProbability(0.99, i >= 0); i -= 2) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumUntilNegative(int[] array, int end) {
+        int sum = 0;
+        for (int i = 0; branchProbability(0.99, i < end); i++) {
+            if (array[i] < 0) {
+                break;
+            }
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumStride(int[] array, int start, int end) {
+        int sum = 0;
+        for (int i = start; branchProbability(0.99, i < end); i += 3) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static void copy(int[] src, int[] dst) {
+        for (int i = 0; branchProbability(0.99, i < src.length); i++) {
+            dst[i] = src[i];
+        }
+    }
+
+    private static OptionValues predicationOptions() {
+        return new OptionValues(getInitialOptions(), GraalOptions.LoopPredication, true);
+    }
+
+    /**
+     * Runs {@code name} with loop predication and a new speculation log, so that the loop is
+     * predicated again after a predicate of an earlier run failed.
+     */
+    private void testPredicated(String name, Object... args) {
+        speculationLog = null;
+        test(predicationOptions(), name, args);
+    }
+
+    /**
+     * Loop bounds that are out of bounds for arrays of up to length 10 and close to or at the
+     * limits of the int range, where the trip count and the last value of the counter overflow.
+     */
+    private static final int[] BOUNDS = {Integer.MIN_VALUE, -1, 0, 1, 9, 10, 11, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+    private static int[] array(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 7 - 3;
+        }
+        return array;
+    }
+
+    @Test
+    public void testSumUp() {
+        assertPredicated("sumUp");
+        for (int length : new int[]{0, 1, 10}) {
+            for (int start : BOUNDS) {
+                for (int end : BOUNDS) {
+                    testPredicated("sumUp", array(length), start, end);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSumDown() {
+        assertPredicated("sumDown");
+        for (int length : new int[]{0, 1, 10}) {
+            for (int start : BOUNDS) {
+                testPredicated("sumDown", array(length), start);
+            }
+        }
+    }
+
+    @Test
+    public void testEarlyExit() {
+        assertPredicated("sumUntilNegative");
+        int[] array = array(10);
+        array[5] = -1;
+        for (int end = 0; end <= 12; end++) {
+            testPredicated("sumUntilNegative", array, end);
+        }
+    }
+
+    /**
+     * The counter of this loop can overflow, so it must not be predicated without an overflow
+     * guard. The results must be the same either way.
+     */
+    @Test
+    public void testOverflowingCounter() {
+        for (int length : new int[]{0, 1, 10}) {
+            for (int start : BOUNDS) {
+                for (int end : BOUNDS) {
+                    testPredicated("sumStride", array(length), start, end);
+                }
+            }
+        }
+    }
+
+    /**
+     * A failed predicate deoptimizes and invalidates the code, and the recompiled code checks the
+     * bounds in the loop again instead of failing the same predicate.
+     */
+    @Test
+    public void testFailedPredicateIsNotRepeated() throws InvalidInstalledCodeException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("sumUntilNegative");
+        int[] array = array(10);
+        array[5] = -1;
+        InstalledCode code = getCode(method, null, true, false, predicationOptions());
+        Assert.assertNotEquals("predicates before loop", 0, predicates);
+        Assert.assertEquals(sumUntilNegative(array, 20), code.executeVarargs(array, 20));
+        Assert.assertFalse("predicate must have failed", code.isValid());
+
+        code = getCode(method, null, true, false, predicationOptions());
+        Assert.assertEquals("predicates before loop after a failed predicate", 0, predicates);
+        Assert.assertNotEquals("bounds checks in loop after a failed predicate", 0, boundsChecksInLoops);
+        Assert.assertEquals(sumUntilNegative(array, 20), code.executeVarargs(array, 20));
+        Assert.assertTrue(code.isValid());
+    }
+
+    @Test
+    public void testCopy() {
+        assertPredicated("copy");
+        testPredicated("copy", array(10), new int[10]);
+        testPredicated("copy", array(10), new int[5]);
+        testPredicated("copy", array(0), new int[0]);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.SafepointNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Test;
+
+public class LoopStripMiningTest extends GraalCompilerTest {
+
+    /**
+     * Loops with a 64-bit counter are strip mined, so their polls are conditional. Loops with a
+     * 32-bit counter stay without a poll, as without strip mining.
+     */
+    @Override
+    protected boolean checkMidTierGraph(StructuredGraph graph) {
+        if (!GraalOptions.LoopStripMining.getValue(graph.getOptions())) {
+            return true;
+        }
+        boolean longCounter = graph.method().getName().startsWith("sumLong");
+        for (LoopBeginNode loop : graph.getNodes(LoopBeginNode.TYPE)) {
+            if (loop.isStripMined() != longCounter) {
+                return false;
+            }
+        }
+        for (SafepointNode safepoint : graph.getNodes().filter(SafepointNode.class)) {
+            if (!longCounter || !(safepoint.predecessor() instanceof AbstractBeginNode) || !(safepoint.predecessor().predecessor() instanceof IfNode)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static volatile int volatileInt = 3;
+
+    public static long sumLongCounter(long length) {
+        long sum = 0;
+        for (long i = 0; branchProbability(0.99, i < length); i++) {
+            sum += volatileInt;
+        }
+        return sum;
+    }
+
+    public static int sumIntCounterStride(int[] array) {
+        int sum = 0;
+        for (int i = 0; branchProbability(0.99, i < array.length); i += 3) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    public static int sumIntCounterDown(int[] array) {
+        int sum = 0;
+        for (int i = array.length - 1; branchProbability(0.99, i >= 0); i -= 4) {
+            sum += array[i] + volatileInt;
+        }
+        return sum;
+    }
+
+    private static OptionValues stripMiningOptions(int iterations) {
+        return new OptionValues(getInitialOptions(), GraalOptions.LoopStripMining, true, GraalOptions.LoopStripMiningIterations, iterations);
+    }
+
+    @Test
+    public void testLongCounter() {
+        for (long length : new long[]{-1, 0, 1, 7, 64, 1025, 5000}) {
+            test(stripMiningOptions(16), "sumLongCounter", length);
+        }
+    }
+
+    @Test
+    public void testIntCounterStride() {
+        for (int length : new int[]{0, 1, 2, 17, 100, 4097}) {
+            int[] array = new int[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = i * 31;
+            }
+            test(stripMiningOptions(8), "sumIntCounterStride", array);
+        }
+    }
+
+    @Test
+    public void testIntCounterDown() {
+        for (int length : new int[]{0, 1, 3, 33, 1000}) {
+            test(stripMiningOptions(1024), "sumIntCounterDown", new int[length]);
+        }
+    }
+}
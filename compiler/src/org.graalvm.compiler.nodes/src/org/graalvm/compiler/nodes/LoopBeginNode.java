@@ -54,6 +54,7 @@ public final class LoopBeginNode extends AbstractMergeNode implements IterableNo
     protected LoopType loopType;
     protected int unrollFactor;
     protected boolean osrLoop;
+    protected boolean stripMined;
 
     public enum LoopType {
         SIMPLE_LOOP,
@@ -117,6 +118,19 @@ public final class LoopBeginNode extends AbstractMergeNode implements IterableNo
         unrollFactor = currentUnrollFactor;
     }
 
+    /**
+     * Returns whether the safepoint polls of this loop should only be taken every
+     * {@code LoopStripMiningIterations} iterations instead of on every back edge.
+     */
+    public boolean isStripMined() {
+        return stripMined;
+    }
+
+    public void setStripMined() {
+        assert canEndsSafepoint;
+        stripMined = true;
+    }
+
     /** Disables safepoint for the whole loop, i.e., for all {@link LoopEndNode loop ends}. */
     public void disableSafepoint() {
         /* Store flag locally in case new loop ends are created later on. */
@@ -56,6 +56,7 @@ import org.graalvm.compiler.nodes.calc.FloatingNode;
 import org.graalvm.compiler.nodes.cfg.Block;
 import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
 import org.graalvm.compiler.nodes.java.MethodCallTargetNode;
+import org.graalvm.compiler.nodes.spi.ProfileProvider;
 import org.graalvm.compiler.nodes.spi.VirtualizableAllocation;
 import org.graalvm.compiler.nodes.util.GraphUtil;
 import org.graalvm.compiler.options.OptionValues;
@@ -181,6 +182,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         private CompilationIdentifier compilationId = CompilationIdentifier.INVALID_COMPILATION_ID;
         private int entryBCI = JVMCICompiler.INVOCATION_ENTRY_BCI;
         private boolean useProfilingInfo = true;
+        private ProfileProvider profileProvider;
         private boolean recordInlinedMethods = true;
         private boolean trackNodeSourcePosition;
         private final OptionValues options;
@@ -284,6 +286,18 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
             return this;
         }
 
+        public ProfileProvider getProfileProvider() {
+            return profileProvider;
+        }
+
+        /**
+         * @see StructuredGraph#getProfileProvider()
+         */
+        public Builder profileProvider(ProfileProvider provider) {
+            this.profileProvider = provider;
+            return this;
+        }
+
         public boolean getRecordInlinedMethods() {
             return recordInlinedMethods;
         }
@@ -314,6 +328,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
                             assumptions,
                             speculationLog,
                             useProfilingInfo,
+                            profileProvider,
                             isSubstitution,
                             inlinedMethods,
                             trackNodeSourcePosition,
@@ -340,6 +355,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
     private boolean hasValueProxies = true;
     private boolean isAfterExpandLogic = false;
     private final boolean useProfilingInfo;
+    private final ProfileProvider profileProvider;
     private final Cancellable cancellable;
     private final boolean isSubstitution;
 
@@ -389,6 +405,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
                     Assumptions assumptions,
                     SpeculationLog speculationLog,
                     boolean useProfilingInfo,
+                    ProfileProvider profileProvider,
                     boolean isSubstitution,
                     List<ResolvedJavaMethod> methods,
                     boolean trackNodeSourcePosition,
@@ -407,6 +424,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         this.methods = methods;
         this.speculationLog = speculationLog;
         this.useProfilingInfo = useProfilingInfo;
+        this.profileProvider = profileProvider;
         this.isSubstitution = isSubstitution;
         assert checkIsSubstitutionInvariants(method, isSubstitution);
         this.cancellable = cancellable;
@@ -568,6 +586,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
                         assumptions == null ? null : new Assumptions(),
                         speculationLog,
                         useProfilingInfo,
+                        profileProvider,
                         isSubstitution,
                         methods != null ? new ArrayList<>(methods) : null,
                         trackNodeSourcePosition,
@@ -892,6 +911,14 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         return useProfilingInfo;
     }
 
+    /**
+     * Gets the provider of the {@link ProfilingInfo} used while constructing and optimizing this
+     * graph, or {@code null} if the methods' own profiles are used.
+     */
+    public ProfileProvider getProfileProvider() {
+        return profileProvider;
+    }
+
     /**
      * Returns true if this graph is built without parsing the {@linkplain #method() root method} or
      * if the root method is annotated by {@link Snippet} or {@link MethodSubstitution}. This is
@@ -914,6 +941,9 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
      */
     public ProfilingInfo getProfilingInfo(ResolvedJavaMethod m) {
         if (useProfilingInfo && m != null) {
+            if (profileProvider != null) {
+                return profileProvider.getProfilingInfo(m);
+            }
             return m.getProfilingInfo();
         } else {
             return DefaultProfilingInfo.get(TriState.UNKNOWN);
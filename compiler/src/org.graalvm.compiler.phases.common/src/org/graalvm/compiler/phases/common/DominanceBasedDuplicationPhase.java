@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.phases.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.EconomicSet;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.collections.UnmodifiableEconomicMap;
+import org.graalvm.compiler.core.common.spi.ConstantFieldProvider;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Graph.Mark;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.graph.NodeBitMap;
+import org.graalvm.compiler.graph.spi.Canonicalizable;
+import org.graalvm.compiler.graph.spi.CanonicalizerTool;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.AbstractMergeNode;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ControlSinkNode;
+import org.graalvm.compiler.nodes.DeoptimizingGuard;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.LogicConstantNode;
+import org.graalvm.compiler.nodes.LogicNegationNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.ProxyNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.AndNode;
+import org.graalvm.compiler.nodes.calc.FloatEqualsNode;
+import org.graalvm.compiler.nodes.calc.FloatLessThanNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerEqualsNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.IntegerTestNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.calc.LeftShiftNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.NarrowNode;
+import org.graalvm.compiler.nodes.calc.NegateNode;
+import org.graalvm.compiler.nodes.calc.NotNode;
+import org.graalvm.compiler.nodes.calc.ObjectEqualsNode;
+import org.graalvm.compiler.nodes.calc.OrNode;
+import org.graalvm.compiler.nodes.calc.PointerEqualsNode;
+import org.graalvm.compiler.nodes.calc.RightShiftNode;
+import org.graalvm.compiler.nodes.calc.SignExtendNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.calc.UnsignedRightShiftNode;
+import org.graalvm.compiler.nodes.calc.XorNode;
+import org.graalvm.compiler.nodes.calc.ZeroExtendNode;
+import org.graalvm.compiler.nodes.java.InstanceOfNode;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.graph.FixedNodeRelativeFrequencyCache;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+
+import jdk.vm.ci.meta.Assumptions;
+import jdk.vm.ci.meta.ConstantReflectionProvider;
+import jdk.vm.ci.meta.MetaAccessProvider;
+
+/**
+ * Duplicates the code following a merge into the merge's predecessors when doing so exposes
+ * optimization opportunities on individual paths.
+ *
+ * <p>
+ * A candidate is a {@link MergeNode} followed by a straight-line sequence of fixed nodes that ends
+ * in a {@link ControlSinkNode} or in an {@link EndNode} of another merge. For every predecessor the
+ * phase simulates the canonicalization of the candidate's nodes with the merge's phis replaced by
+ * the value flowing in from that predecessor. Only nodes whose canonicalization does not change the
+ * graph are simulated (see {@link #SIMULATED_NODE_CLASSES}). Nodes that fold (for
+ * example type checks, null checks and comparisons against a constant that became known, or
+ * arithmetic on constants) contribute their size, weighted by the predecessor's relative
+ * frequency, to the benefit of duplication. The code is duplicated into the beneficial
+ * predecessors only if the benefit per unit of added code size exceeds
+ * {@link Options#DuplicationBenefitThreshold}. The folding itself is left to the canonicalizer
+ * and conditional elimination that run afterwards.
+ * </p>
+ *
+ * <p>
+ * Code after a control split is never duplicated, so successors of the duplicated code never need
+ * new merges.
+ * </p>
+ */
+public class DominanceBasedDuplicationPhase extends BasePhase<PhaseContext> {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Duplicate code after merges into predecessors where this exposes path-specific optimizations.", type = OptionType.Expert)
+        public static final OptionKey<Boolean> DominanceBasedDuplication = new OptionKey<>(false);
+        @Option(help = "Minimum simulated benefit per unit of duplicated code size for dominance-based duplication.", type = OptionType.Expert)
+        public static final OptionKey<Double> DuplicationBenefitThreshold = new OptionKey<>(0.25);
+        @Option(help = "Maximum size of the code after a merge that dominance-based duplication considers.", type = OptionType.Expert)
+        public static final OptionKey<Integer> DuplicationMaxBlockSize = new OptionKey<>(64);
+        @Option(help = "Maximum relative growth of a graph's code size caused by dominance-based duplication.", type = OptionType.Expert)
+        public static final OptionKey<Double> DuplicationMaxGrowth = new OptionKey<>(0.5);
+        // @formatter:on
+    }
+
+    private static final CounterKey counterDuplicatedMerges = DebugContext.counter("DominanceBasedDuplication_DuplicatedMerges");
+    private static final CounterKey counterDuplicatedNodes = DebugContext.counter("DominanceBasedDuplication_DuplicatedNodes");
+
+    /**
+     * The node classes whose canonicalization is simulated. {@code canonical} is called on the live
+     * node with the inputs of a path, so it must not modify the node or the graph. The
+     * canonicalizations of these classes only return an input, a constant, an existing node or a new
+     * node that is not added to the graph. Other classes, for example reads or {@code PiNode}s, can
+     * add nodes to the graph or look them up through {@code graph()}, so they never fold in the
+     * simulation.
+     */
+    private static final EconomicSet<Class<? extends Node>> SIMULATED_NODE_CLASSES = EconomicSet.create(Equivalence.IDENTITY);
+    static {
+        List<Class<? extends Node>> classes = Arrays.asList(
+                        IntegerEqualsNode.class, IntegerLessThanNode.class, IntegerBelowNode.class, IntegerTestNode.class,
+                        ObjectEqualsNode.class, PointerEqualsNode.class, FloatEqualsNode.class, FloatLessThanNode.class,
+                        IsNullNode.class, InstanceOfNode.class, LogicNegationNode.class,
+                        AddNode.class, SubNode.class, MulNode.class, AndNode.class, OrNode.class, XorNode.class,
+                        LeftShiftNode.class, RightShiftNode.class, UnsignedRightShiftNode.class, NegateNode.class, NotNode.class,
+                        SignExtendNode.class, ZeroExtendNode.class, NarrowNode.class);
+        SIMULATED_NODE_CLASSES.addAll(classes);
+    }
+
+    private final CanonicalizerPhase canonicalizer;
+
+    public DominanceBasedDuplicationPhase(CanonicalizerPhase canonicalizer) {
+        this.canonicalizer = canonicalizer;
+    }
+
+    @Override
+    public float codeSizeIncrease() {
+        return 1.5f;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, PhaseContext context) {
+        OptionValues options = graph.getOptions();
+        int budget = (int) (graphSize(graph) * Options.DuplicationMaxGrowth.getValue(options));
+        double threshold = Options.DuplicationBenefitThreshold.getValue(options);
+        int maxBlockSize = Options.DuplicationMaxBlockSize.getValue(options);
+        SimulationTool tool = new SimulationTool(graph, context);
+        FixedNodeRelativeFrequencyCache frequencies = new FixedNodeRelativeFrequencyCache();
+        Mark mark = graph.getMark();
+
+        for (AbstractMergeNode node : graph.getNodes(AbstractMergeNode.TYPE).snapshot()) {
+            if (budget <= 0) {
+                break;
+            }
+            if (node.isDeleted() || !(node instanceof MergeNode)) {
+                continue;
+            }
+            MergeNode merge = (MergeNode) node;
+            Candidate candidate = Candidate.create(merge, maxBlockSize);
+            if (candidate == null) {
+                continue;
+            }
+            List<EndNode> beneficialEnds = new ArrayList<>();
+            double benefit = 0;
+            for (EndNode end : merge.forwardEnds()) {
+                int folded = candidate.simulate(end, tool);
+                if (folded > 0) {
+                    beneficialEnds.add(end);
+                    benefit += frequencies.applyAsDouble(end) * folded;
+                }
+            }
+            if (beneficialEnds.isEmpty()) {
+                continue;
+            }
+            if (beneficialEnds.size() == merge.forwardEndCount()) {
+                // The last predecessor keeps the original code.
+                beneficialEnds.remove(beneficialEnds.size() - 1);
+            }
+            int cost = candidate.size * beneficialEnds.size();
+            if (cost > budget || benefit < threshold * cost) {
+                continue;
+            }
+            budget -= cost;
+            candidate.duplicateInto(beneficialEnds);
+            counterDuplicatedMerges.increment(graph.getDebug());
+            counterDuplicatedNodes.add(graph.getDebug(), candidate.nodes.size() * beneficialEnds.size());
+        }
+
+        if (!graph.getNewNodes(mark).isEmpty()) {
+            graph.getDebug().dump(DebugContext.DETAILED_LEVEL, graph, "After dominance-based duplication");
+            canonicalizer.applyIncremental(graph, context, mark);
+        }
+    }
+
+    private static int graphSize(StructuredGraph graph) {
+        int size = 0;
+        for (Node node : graph.getNodes()) {
+            size += node.estimatedNodeSize().value;
+        }
+        return size;
+    }
+
+    /**
+     * The code following a merge that is considered for duplication.
+     */
+    private static final class Candidate {
+        final MergeNode merge;
+        /**
+         * The fixed nodes following the merge, in control-flow order.
+         */
+        final List<FixedNode> fixedNodes;
+        /**
+         * All nodes that have to be duplicated: the fixed nodes and the floating nodes depending
+         * on the merge, its phis or the fixed nodes. Floating nodes come before their usages.
+         */
+        final List<Node> nodes;
+        final EndNode blockEnd;
+        final int size;
+
+        private Candidate(MergeNode merge, List<FixedNode> fixedNodes, List<Node> nodes, EndNode blockEnd, int size) {
+            this.merge = merge;
+            this.fixedNodes = fixedNodes;
+            this.nodes = nodes;
+            this.blockEnd = blockEnd;
+            this.size = size;
+        }
+
+        static Candidate create(MergeNode merge, int maxBlockSize) {
+            if (merge.forwardEndCount() < 2) {
+                return null;
+            }
+            StructuredGraph graph = merge.graph();
+            List<FixedNode> fixedNodes = new ArrayList<>();
+            NodeBitMap region = graph.createNodeBitMap();
+            region.mark(merge);
+            for (PhiNode phi : merge.phis()) {
+                region.mark(phi);
+            }
+            int size = 0;
+            FixedNode current = merge.next();
+            EndNode blockEnd = null;
+            while (true) {
+                if (current instanceof AbstractBeginNode || current instanceof Invoke) {
+                    return null;
+                }
+                fixedNodes.add(current);
+                region.mark(current);
+                size += current.estimatedNodeSize().value;
+                if (size > maxBlockSize) {
+                    return null;
+                }
+                if (current instanceof FixedWithNextNode) {
+                    current = ((FixedWithNextNode) current).next();
+                } else if (current instanceof EndNode) {
+                    blockEnd = (EndNode) current;
+                    if (!(blockEnd.merge() instanceof MergeNode)) {
+                        return null;
+                    }
+                    break;
+                } else if (current instanceof ControlSinkNode) {
+                    break;
+                } else {
+                    // control splits and loop ends
+                    return null;
+                }
+            }
+
+            /*
+             * Collect the floating nodes that depend on the region: those reachable from the
+             * inputs of the fixed nodes, nodes anchored at the merge, and the values flowing into
+             * the successor merge along the block end.
+             */
+            List<Node> floatingNodes = new ArrayList<>();
+            NodeBitMap visited = graph.createNodeBitMap();
+            for (FixedNode fixed : fixedNodes) {
+                for (Node input : fixed.inputs()) {
+                    collectDependentFloatingNodes(input, region, visited, floatingNodes);
+                }
+            }
+            for (Node usage : merge.usages()) {
+                if (usage instanceof PhiNode) {
+                    continue;
+                }
+                if (usage instanceof FixedNode) {
+                    return null;
+                }
+                collectDependentFloatingNodes(usage, region, visited, floatingNodes);
+            }
+            if (blockEnd != null) {
+                for (PhiNode phi : blockEnd.merge().phis()) {
+                    collectDependentFloatingNodes(phi.valueAt(blockEnd), region, visited, floatingNodes);
+                }
+            }
+            for (Node floating : floatingNodes) {
+                size += floating.estimatedNodeSize().value;
+            }
+            if (size > maxBlockSize) {
+                return null;
+            }
+
+            /*
+             * The original code stays in place for the remaining predecessors, so every usage of a
+             * duplicated value must be duplicated as well. The only exceptions are the merge's own
+             * frame state and the phis of the successor merge, which get a new input for each
+             * copy.
+             */
+            for (Node node : region) {
+                for (Node usage : node.usages()) {
+                    if (region.isMarked(usage) || usage == merge.stateAfter()) {
+                        continue;
+                    }
+                    if (blockEnd != null && (usage == blockEnd.merge() || usage instanceof PhiNode && ((PhiNode) usage).merge() == blockEnd.merge())) {
+                        continue;
+                    }
+                    return null;
+                }
+            }
+
+            List<Node> nodes = new ArrayList<>(floatingNodes);
+            nodes.addAll(fixedNodes);
+            return new Candidate(merge, fixedNodes, nodes, blockEnd, size);
+        }
+
+        /**
+         * Adds {@code node} and its floating inputs to {@code floatingNodes} (inputs first) if they
+         * transitively depend on a node in {@code region}, marking them in the region.
+         *
+         * @return whether {@code node} is in the region after this call
+         */
+        private static boolean collectDependentFloatingNodes(Node node, NodeBitMap region, NodeBitMap visited, List<Node> floatingNodes) {
+            if (node == null || region.isMarked(node)) {
+                return node != null;
+            }
+            if (visited.isMarked(node) || node instanceof FixedNode || node instanceof PhiNode || node instanceof ProxyNode) {
+                return false;
+            }
+            visited.mark(node);
+            boolean dependent = false;
+            for (Node input : node.inputs()) {
+                dependent |= collectDependentFloatingNodes(input, region, visited, floatingNodes);
+            }
+            if (dependent) {
+                region.mark(node);
+                floatingNodes.add(node);
+            }
+            return dependent;
+        }
+
+        /**
+         * Simulates the canonicalization of the candidate's nodes on the path from {@code end}.
+         * Only {@link #SIMULATED_NODE_CLASSES} are canonicalized, so the graph is not changed.
+         *
+         * @return the size of the nodes that would fold on this path, or 0 if the path always
+         *         deoptimizes
+         */
+        int simulate(EndNode end, SimulationTool tool) {
+            EconomicMap<Node, Node> replacements = EconomicMap.create(Equivalence.IDENTITY);
+            for (PhiNode phi : merge.phis()) {
+                replacements.put(phi, phi.valueAt(end));
+            }
+            int folded = 0;
+            for (Node node : nodes) {
+                Node result = node;
+                if (node instanceof DeoptimizingGuard) {
+                    DeoptimizingGuard guard = (DeoptimizingGuard) node;
+                    Node condition = replacement(replacements, guard.getCondition());
+                    if (condition instanceof LogicConstantNode) {
+                        if (((LogicConstantNode) condition).getValue() != guard.isNegated()) {
+                            folded += node.estimatedNodeSize().value;
+                        } else {
+                            /*
+                             * The guard always fails, so this path always deoptimizes. It is cold,
+                             * and the canonicalizer removes it without duplication.
+                             */
+                            return 0;
+                        }
+                    }
+                    continue;
+                } else if (!SIMULATED_NODE_CLASSES.contains(node.getClass())) {
+                    continue;
+                } else if (node instanceof Canonicalizable.Binary<?>) {
+                    @SuppressWarnings("unchecked")
+                    Canonicalizable.Binary<Node> binary = (Canonicalizable.Binary<Node>) node;
+                    Node x = replacement(replacements, binary.getX());
+                    Node y = replacement(replacements, binary.getY());
+                    if (x != binary.getX() || y != binary.getY()) {
+                        result = binary.canonical(tool, x, y);
+                    }
+                } else if (node instanceof Canonicalizable.Unary<?>) {
+                    @SuppressWarnings("unchecked")
+                    Canonicalizable.Unary<Node> unary = (Canonicalizable.Unary<Node>) node;
+                    Node value = replacement(replacements, unary.getValue());
+                    if (value != unary.getValue()) {
+                        result = unary.canonical(tool, value);
+                    }
+                }
+                /*
+                 * A node folds if it disappears or is replaced by a constant or an existing value.
+                 * New nodes returned by the canonicalization are usually just a different shape of
+                 * the same operation, so they are neither counted nor passed on to other
+                 * canonicalizations.
+                 */
+                if (result != node && (result == null || result.isAlive() || isConstant(result))) {
+                    folded += node.estimatedNodeSize().value;
+                    if (result != null) {
+                        replacements.put(node, result);
+                    }
+                }
+            }
+            return folded;
+        }
+
+        private static boolean isConstant(Node node) {
+            return node instanceof LogicConstantNode || (node instanceof ValueNode && ((ValueNode) node).isConstant());
+        }
+
+        private static Node replacement(EconomicMap<Node, Node> replacements, Node node) {
+            Node replacement = replacements.get(node);
+            return replacement == null ? node : replacement;
+        }
+
+        /**
+         * Duplicates the candidate's code into the predecessors ending in {@code ends}, which are
+         * removed from the merge.
+         */
+        void duplicateInto(List<EndNode> ends) {
+            StructuredGraph graph = merge.graph();
+            for (EndNode end : ends) {
+                BeginNode begin = graph.add(new BeginNode());
+                EconomicMap<Node, Node> replacements = EconomicMap.create(Equivalence.IDENTITY);
+                replacements.put(merge, begin);
+                for (PhiNode phi : merge.phis()) {
+                    replacements.put(phi, phi.valueAt(end));
+                }
+                UnmodifiableEconomicMap<Node, Node> duplicates = graph.addDuplicates(nodes, graph, nodes.size(), replacements);
+
+                end.replaceAtPredecessor(begin);
+                begin.setNext((FixedNode) duplicates.get(fixedNodes.get(0)));
+                if (blockEnd != null) {
+                    AbstractMergeNode successor = blockEnd.merge();
+                    successor.addForwardEnd((EndNode) duplicates.get(blockEnd));
+                    for (PhiNode phi : successor.phis()) {
+                        ValueNode value = phi.valueAt(blockEnd);
+                        Node duplicate = duplicates.get(value);
+                        phi.addInput(duplicate == null ? value : (ValueNode) duplicate);
+                    }
+                }
+                merge.removeEnd(end);
+                end.safeDelete();
+            }
+            if (merge.forwardEndCount() == 1) {
+                graph.reduceTrivialMerge(merge);
+            }
+        }
+    }
+
+    /**
+     * A {@link CanonicalizerTool} for simulating canonicalizations. It does not expose usages,
+     * since the simulated nodes are not the actual usages of the values they are evaluated with.
+     */
+    private static final class SimulationTool implements CanonicalizerTool {
+        private final StructuredGraph graph;
+        private final PhaseContext context;
+
+        SimulationTool(StructuredGraph graph, PhaseContext context) {
+            this.graph = graph;
+            this.context = context;
+        }
+
+        @Override
+        public Assumptions getAssumptions() {
+            return graph.getAssumptions();
+        }
+
+        @Override
+        public MetaAccessProvider getMetaAccess() {
+            return context.getMetaAccess();
+        }
+
+        @Override
+        public ConstantReflectionProvider getConstantReflection() {
+            return context.getConstantReflection();
+        }
+
+        @Override
+        public ConstantFieldProvider getConstantFieldProvider() {
+            return context.getConstantFieldProvider();
+        }
+
+        @Override
+        public boolean canonicalizeReads() {
+            return true;
+        }
+
+        @Override
+        public boolean allUsagesAvailable() {
+            return false;
+        }
+
+        @Override
+        public Integer smallestCompareWidth() {
+            return context.getLowerer().smallestCompareWidth();
+        }
+
+        @Override
+        public OptionValues getOptions() {
+            return graph.getOptions();
+        }
+    }
+}
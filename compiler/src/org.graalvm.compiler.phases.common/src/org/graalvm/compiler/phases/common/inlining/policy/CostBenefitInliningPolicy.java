@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.phases.common.inlining.policy;
+
+import static org.graalvm.compiler.core.common.GraalOptions.InlineEverything;
+import static org.graalvm.compiler.core.common.GraalOptions.MaximumDesiredSize;
+import static org.graalvm.compiler.core.common.GraalOptions.TraceInlining;
+import static org.graalvm.compiler.core.common.GraalOptions.TrivialInliningSize;
+
+import java.util.Map;
+
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.spi.Replacements;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.inlining.InliningUtil;
+import org.graalvm.compiler.phases.common.inlining.info.InlineInfo;
+import org.graalvm.compiler.phases.common.inlining.walker.MethodInvocation;
+
+/**
+ * An inlining policy that weighs the estimated benefit of inlining a whole call tree against the
+ * code size it adds.
+ *
+ * <p>
+ * The {@link org.graalvm.compiler.phases.common.inlining.walker.InliningData walker} explores the
+ * call tree depth-first and asks for a final decision on a callsite only after the callees of its
+ * targets have been processed. At that point the node count of the targets includes every
+ * callee that was inlined into them, and {@link MethodInvocation#inlinedBenefit()} holds the
+ * benefit of those callees. The policy therefore decides on whole subtrees: a subtree is kept if
+ * its total benefit per node of code size reaches {@link Options#CostBenefitInliningThreshold}
+ * and it still fits into {@link Options#CostBenefitInliningBudget}. Otherwise the subtree is cut
+ * at this callsite.
+ * </p>
+ *
+ * <p>
+ * The benefit of a single callsite is its execution frequency relative to the root method times
+ * the work that inlining is expected to remove: the call itself, the dynamic dispatch for virtual
+ * and interface calls, constant folding of constant arguments, and escape analysis of freshly
+ * allocated arguments.
+ * </p>
+ *
+ * <p>
+ * Callsites that are executed less often than {@link Options#CostBenefitInliningMinFrequency} are
+ * neither explored nor inlined unless they are trivial, so that cold paths do not consume the
+ * budget.
+ * </p>
+ */
+public class CostBenefitInliningPolicy extends AbstractInliningPolicy {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Maximum number of nodes the cost/benefit inlining policy lets a compilation unit grow to.", type = OptionType.Expert)
+        public static final OptionKey<Integer> CostBenefitInliningBudget = new OptionKey<>(6000);
+        @Option(help = "Minimum estimated benefit per node of code size for which the cost/benefit inlining policy inlines a call tree.", type = OptionType.Expert)
+        public static final OptionKey<Double> CostBenefitInliningThreshold = new OptionKey<>(0.1);
+        @Option(help = "Call sites executed less often than this fraction of the root method invocations are only inlined by the cost/benefit inlining policy if they are trivial.", type = OptionType.Expert)
+        public static final OptionKey<Double> CostBenefitInliningMinFrequency = new OptionKey<>(0.01);
+        // @formatter:on
+    }
+
+    /**
+     * Estimated work, in nodes, that is removed per execution of an inlined callsite for the call
+     * itself (argument shuffling, frame setup and the return).
+     */
+    private static final double CALL_BENEFIT = 10;
+
+    /**
+     * Additional work removed when inlining replaces a virtual or interface dispatch.
+     */
+    private static final double DEVIRTUALIZATION_BENEFIT = 20;
+
+    /**
+     * Additional work removed for each constant argument that can be folded into the callee.
+     */
+    private static final double CONSTANT_ARGUMENT_BENEFIT = 5;
+
+    /**
+     * Additional work removed for each freshly allocated argument that escape analysis may be able
+     * to virtualize once the callee is inlined.
+     */
+    private static final double FRESH_ARGUMENT_BENEFIT = 10;
+
+    private static final CounterKey inliningStoppedByBudgetCounter = DebugContext.counter("InliningStoppedByCostBenefitBudget");
+
+    public CostBenefitInliningPolicy(Map<Invoke, Double> hints) {
+        super(hints);
+    }
+
+    @Override
+    public boolean continueInlining(StructuredGraph currentGraph) {
+        OptionValues options = currentGraph.getOptions();
+        int nodeCount = InliningUtil.getNodeCount(currentGraph);
+        if (nodeCount >= Options.CostBenefitInliningBudget.getValue(options) || nodeCount >= MaximumDesiredSize.getValue(options)) {
+            DebugContext debug = currentGraph.getDebug();
+            InliningUtil.logInliningDecision(debug, "inlining is cut off by the cost/benefit inlining budget");
+            inliningStoppedByBudgetCounter.increment(debug);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Decision isWorthInlining(Replacements replacements, MethodInvocation invocation, int inliningDepth, boolean fullyProcessed) {
+        final boolean isTracing = TraceInlining.getValue(replacements.getOptions());
+        final InlineInfo info = invocation.callee();
+        OptionValues options = info.graph().getOptions();
+        final double probability = invocation.probability();
+
+        if (InlineEverything.getValue(options)) {
+            return inline(invocation, info, inliningDepth, fullyProcessed, isTracing, "inline everything");
+        }
+
+        if (isIntrinsic(replacements, info)) {
+            return inline(invocation, info, inliningDepth, fullyProcessed, isTracing, "intrinsic");
+        }
+
+        if (info.shouldInline()) {
+            return inline(invocation, info, inliningDepth, fullyProcessed, isTracing, "forced inlining");
+        }
+
+        double inliningBonus = getInliningBonus(info);
+        int nodes = info.determineNodeCount();
+
+        if (nodes < TrivialInliningSize.getValue(options) * inliningBonus) {
+            return inline(invocation, info, inliningDepth, fullyProcessed, isTracing, "trivial (probability=%f, bonus=%f, nodes=%d)", probability, inliningBonus, nodes);
+        }
+
+        if (probability < Options.CostBenefitInliningMinFrequency.getValue(options)) {
+            return reject(info, inliningDepth, isTracing, "cold callsite (probability=%f, nodes=%d)", probability, nodes);
+        }
+
+        int callerNodes = InliningUtil.getNodeCount(info.graph());
+        int budget = Options.CostBenefitInliningBudget.getValue(options);
+        if (callerNodes + nodes > budget) {
+            return reject(info, inliningDepth, isTracing, "exceeds budget (probability=%f, caller nodes=%d, nodes=%d, budget=%d)", probability, callerNodes, nodes, budget);
+        }
+
+        if (!fullyProcessed) {
+            /*
+             * Keep exploring the call tree below this callsite. The benefit of the subtree is only
+             * known once its callees have been decided on.
+             */
+            return InliningPolicy.Decision.YES.withReason(isTracing, "exploring (probability=%f, nodes=%d)", probability, nodes);
+        }
+
+        double benefit = computeBenefit(invocation);
+        double ratio = benefit * inliningBonus / nodes;
+        double threshold = Options.CostBenefitInliningThreshold.getValue(options);
+        if (ratio >= threshold) {
+            return inline(invocation, info, inliningDepth, fullyProcessed, isTracing, "cost/benefit (probability=%f, benefit=%f, bonus=%f, nodes=%d, ratio=%f >= %f)", probability, benefit,
+                            inliningBonus, nodes, ratio, threshold);
+        }
+        return reject(info, inliningDepth, isTracing, "cost/benefit (probability=%f, benefit=%f, bonus=%f, nodes=%d, ratio=%f < %f)", probability, benefit, inliningBonus, nodes, ratio,
+                        threshold);
+    }
+
+    /**
+     * Estimates the benefit of inlining the subtree rooted at {@code invocation}: the work removed
+     * at the callsite itself plus the benefit of all callees already inlined into its targets.
+     */
+    private static double computeBenefit(MethodInvocation invocation) {
+        InlineInfo info = invocation.callee();
+        Invoke invoke = info.invoke();
+        double localBenefit = CALL_BENEFIT;
+        if (invoke.getInvokeKind().isIndirect()) {
+            localBenefit += DEVIRTUALIZATION_BENEFIT;
+        }
+        int constantArguments = 0;
+        for (ValueNode argument : invoke.callTarget().arguments()) {
+            if (argument != null && argument.isConstant()) {
+                constantArguments++;
+            }
+        }
+        localBenefit += constantArguments * CONSTANT_ARGUMENT_BENEFIT;
+        localBenefit += invocation.getSizeFreshArgs() * FRESH_ARGUMENT_BENEFIT;
+        return invocation.probability() * localBenefit + invocation.inlinedBenefit();
+    }
+
+    private static Decision inline(MethodInvocation invocation, InlineInfo info, int inliningDepth, boolean fullyProcessed, boolean isTracing, String reason, Object... args) {
+        if (fullyProcessed) {
+            invocation.setBenefit(computeBenefit(invocation));
+        }
+        InliningUtil.traceInlinedMethod(info, inliningDepth, fullyProcessed, reason, args);
+        return InliningPolicy.Decision.YES.withReason(isTracing, reason, args);
+    }
+
+    private static Decision reject(InlineInfo info, int inliningDepth, boolean isTracing, String reason, Object... args) {
+        InliningUtil.traceNotInlinedMethod(info, inliningDepth, reason, args);
+        return InliningPolicy.Decision.NO.withReason(isTracing, reason, args);
+    }
+}
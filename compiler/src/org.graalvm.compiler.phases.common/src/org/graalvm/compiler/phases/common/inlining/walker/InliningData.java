@@ -458,6 +458,7 @@ public class InliningData {
         InliningPolicy.Decision decision = inliningPolicy.isWorthInlining(context.getReplacements(), calleeInvocation, inliningDepth, true);
         if (decision.shouldInline()) {
             doInline(callerCallsiteHolder, calleeInvocation, decision.getReason());
+            currentInvocation().addInlinedBenefit(calleeInvocation.benefit());
             return true;
         }
 
@@ -53,6 +53,19 @@ public class MethodInvocation {
 
     private int processedGraphs;
 
+    /**
+     * Estimated benefit of inlining this callsite, as assigned by an
+     * {@link org.graalvm.compiler.phases.common.inlining.policy.InliningPolicy} when it decides
+     * to inline it. Policies that do not estimate benefits leave this at zero.
+     */
+    private double benefit;
+
+    /**
+     * Sum of the {@link #benefit() benefits} of the callsites that have already been inlined into
+     * the target graphs of this invocation.
+     */
+    private double inlinedBenefit;
+
     /**
      * <p>
      * The immutable positions of freshly instantiated arguments (ie, positions in
@@ -113,6 +126,22 @@ public class MethodInvocation {
         return relevance;
     }
 
+    public double benefit() {
+        return benefit;
+    }
+
+    public void setBenefit(double benefit) {
+        this.benefit = benefit;
+    }
+
+    public double inlinedBenefit() {
+        return inlinedBenefit;
+    }
+
+    public void addInlinedBenefit(double calleeBenefit) {
+        inlinedBenefit += calleeBenefit;
+    }
+
     public boolean isRoot() {
         return callee == null;
     }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.replacements.test;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.common.spi.ConstantFieldProvider;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.nodes.EncodedGraph;
+import org.graalvm.compiler.nodes.GraphEncoder;
+import org.graalvm.compiler.nodes.ReturnNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.util.Providers;
+import org.graalvm.compiler.replacements.CachingPEGraphDecoder;
+import org.graalvm.compiler.replacements.EncodedGraphCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Tests sharing of encoded graphs between {@link CachingPEGraphDecoder}s through an
+ * {@link EncodedGraphCache}.
+ */
+public class EncodedGraphCacheTest extends GraalCompilerTest {
+
+    static int mutableValue = 1;
+    static final int[] stableValues = {1};
+
+    public static int addSnippet(int a, int b) {
+        return a + b;
+    }
+
+    public static int subSnippet(int a, int b) {
+        return a - b;
+    }
+
+    public static int mulSnippet(int a, int b) {
+        return a * b;
+    }
+
+    public static int readMutableSnippet() {
+        return mutableValue;
+    }
+
+    public static int readStableElementSnippet() {
+        return stableValues[0];
+    }
+
+    /**
+     * Folds every static field, as Truffle does for static {@code @CompilationFinal} fields.
+     */
+    static class FoldStaticFieldsProvider implements ConstantFieldProvider {
+        private final ConstantFieldProvider delegate;
+
+        FoldStaticFieldsProvider(ConstantFieldProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+            if (field.isStatic()) {
+                return tool.foldConstant(tool.readValue());
+            }
+            return delegate.readConstantField(field, tool);
+        }
+    }
+
+    /**
+     * Folds static final arrays as stable arrays, as Truffle does for static
+     * {@code @CompilationFinal(dimensions = 1)} fields.
+     */
+    static class FoldStableArraysProvider implements ConstantFieldProvider {
+        private final ConstantFieldProvider delegate;
+
+        FoldStableArraysProvider(ConstantFieldProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+            if (field.isStatic() && field.isFinal() && field.getType().isArray()) {
+                return tool.foldStableArray(tool.readValue(), 1, false);
+            }
+            return delegate.readConstantField(field, tool);
+        }
+    }
+
+    private StructuredGraph decode(String name, EncodedGraphCache cache, OptionValues options, Providers providers) {
+        ResolvedJavaMethod method = getResolvedJavaMethod(name);
+        DebugContext debug = getDebugContext();
+        StructuredGraph targetGraph = new StructuredGraph.Builder(options, debug, AllowAssumptions.YES).method(method).build();
+        GraphBuilderConfiguration graphBuilderConfig = GraphBuilderConfiguration.getDefault(getDefaultGraphBuilderPlugins()).withEagerResolving(true).withUnresolvedIsError(true);
+        CachingPEGraphDecoder decoder = new CachingPEGraphDecoder(getTarget().arch, targetGraph, providers, graphBuilderConfig, OptimisticOptimizations.NONE, AllowAssumptions.YES,
+                        null, null, null, null, null, null, null, cache);
+        decoder.decode(method, false, false);
+        targetGraph.verify();
+        return targetGraph;
+    }
+
+    private StructuredGraph decode(String name, EncodedGraphCache cache) {
+        return decode(name, cache, getInitialOptions(), getProviders());
+    }
+
+    private EncodedGraph lookup(EncodedGraphCache cache, String name, OptionValues options) {
+        return cache.get(getDebugContext(), getResolvedJavaMethod(name), false, options);
+    }
+
+    @Test
+    public void testHit() {
+        EncodedGraphCache cache = new EncodedGraphCache(8);
+        decode("addSnippet", cache);
+        EncodedGraph cached = lookup(cache, "addSnippet", getInitialOptions());
+        Assert.assertNotNull(cached);
+
+        decode("addSnippet", cache);
+        Assert.assertEquals(1, cache.size());
+        // A miss would have parsed and cached a new graph.
+        Assert.assertSame(cached, lookup(cache, "addSnippet", getInitialOptions()));
+    }
+
+    @Test
+    public void testMissOnDifferentOptions() {
+        EncodedGraphCache cache = new EncodedGraphCache(8);
+        decode("addSnippet", cache);
+        EncodedGraph cached = lookup(cache, "addSnippet", getInitialOptions());
+        Assert.assertNotNull(cached);
+
+        OptionValues otherOptions = new OptionValues(getInitialOptions(), GraalOptions.LoopPeeling, !GraalOptions.LoopPeeling.getValue(getInitialOptions()));
+        Assert.assertNull(lookup(cache, "addSnippet", otherOptions));
+        Assert.assertNotNull(lookup(cache, "addSnippet", new OptionValues(getInitialOptions().getMap())));
+
+        decode("addSnippet", cache, otherOptions, getProviders());
+        EncodedGraph reparsed = lookup(cache, "addSnippet", otherOptions);
+        Assert.assertNotNull(reparsed);
+        Assert.assertNotSame(cached, reparsed);
+    }
+
+    @Test
+    public void testEviction() {
+        EncodedGraphCache cache = new EncodedGraphCache(2);
+        decode("addSnippet", cache);
+        decode("subSnippet", cache);
+        // Makes subSnippet the least recently used graph.
+        Assert.assertNotNull(lookup(cache, "addSnippet", getInitialOptions()));
+        decode("mulSnippet", cache);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(lookup(cache, "addSnippet", getInitialOptions()));
+        Assert.assertNull(lookup(cache, "subSnippet", getInitialOptions()));
+        Assert.assertNotNull(lookup(cache, "mulSnippet", getInitialOptions()));
+    }
+
+    @Test
+    public void testAssumptionsAreNotCached() {
+        EncodedGraphCache cache = new EncodedGraphCache(8);
+        StructuredGraph graph = parseEager("addSnippet", AllowAssumptions.YES);
+        graph.getAssumptions().recordConcreteMethod(graph.method(), graph.method().getDeclaringClass(), graph.method());
+        EncodedGraph encoded = GraphEncoder.encodeSingleGraph(graph, getTarget().arch);
+        cache.put(getDebugContext(), graph.method(), encoded, getInitialOptions());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFoldedMutableFieldIsNotShared() {
+        EncodedGraphCache cache = new EncodedGraphCache(8);
+        Providers providers = getProviders().copyWith(new FoldStaticFieldsProvider(getProviders().getConstantFieldProvider()));
+        int oldValue = mutableValue;
+        try {
+            mutableValue = 1;
+            Assert.assertEquals(1, returnedConstant(decode("readMutableSnippet", cache, getInitialOptions(), providers)));
+            Assert.assertEquals(0, cache.size());
+
+            mutableValue = 2;
+            Assert.assertEquals(2, returnedConstant(decode("readMutableSnippet", cache, getInitialOptions(), providers)));
+        } finally {
+            mutableValue = oldValue;
+        }
+    }
+
+    @Test
+    public void testFoldedStableArrayIsNotShared() {
+        EncodedGraphCache cache = new EncodedGraphCache(8);
+        Providers providers = getProviders().copyWith(new FoldStableArraysProvider(getProviders().getConstantFieldProvider()));
+        int oldValue = stableValues[0];
+        try {
+            stableValues[0] = 1;
+            Assert.assertEquals(1, returnedConstant(decode("readStableElementSnippet", cache, getInitialOptions(), providers)));
+            Assert.assertEquals(0, cache.size());
+
+            stableValues[0] = 2;
+            Assert.assertEquals(2, returnedConstant(decode("readStableElementSnippet", cache, getInitialOptions(), providers)));
+        } finally {
+            stableValues[0] = oldValue;
+        }
+    }
+
+    private static int returnedConstant(StructuredGraph graph) {
+        ValueNode result = graph.getNodes(ReturnNode.TYPE).first().result();
+        Assert.assertTrue(result.isConstant());
+        return result.asJavaConstant().asInt();
+    }
+}
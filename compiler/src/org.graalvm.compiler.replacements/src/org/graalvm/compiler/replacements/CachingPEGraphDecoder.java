@@ -28,6 +28,7 @@ import static org.graalvm.compiler.nodes.graphbuilderconf.IntrinsicContext.Compi
 
 import org.graalvm.collections.EconomicMap;
 import org.graalvm.compiler.bytecode.BytecodeProvider;
+import org.graalvm.compiler.core.common.spi.ConstantFieldProvider;
 import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.graph.SourceLanguagePositionProvider;
 import org.graalvm.compiler.java.GraphBuilderPhase;
@@ -42,6 +43,7 @@ import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins;
 import org.graalvm.compiler.nodes.graphbuilderconf.LoopExplosionPlugin;
 import org.graalvm.compiler.nodes.graphbuilderconf.NodePlugin;
 import org.graalvm.compiler.nodes.graphbuilderconf.ParameterPlugin;
+import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.OptimisticOptimizations;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
 import org.graalvm.compiler.loop.phases.ConvertDeoptimizeToGuardPhase;
@@ -49,11 +51,14 @@ import org.graalvm.compiler.phases.tiers.PhaseContext;
 import org.graalvm.compiler.phases.util.Providers;
 
 import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.ResolvedJavaField;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 
 /**
  * A graph decoder that provides all necessary encoded graphs on-the-fly (by parsing the methods and
- * encoding the graphs).
+ * encoding the graphs). Encoded graphs are cached for the duration of the decoding and, if an
+ * {@link EncodedGraphCache} is provided, shared with the decoders of other compilations.
  */
 public class CachingPEGraphDecoder extends PEGraphDecoder {
 
@@ -62,11 +67,25 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
     protected final OptimisticOptimizations optimisticOpts;
     private final AllowAssumptions allowAssumptions;
     private final EconomicMap<ResolvedJavaMethod, EncodedGraph> graphCache;
+    private final EncodedGraphCache sharedGraphCache;
 
     public CachingPEGraphDecoder(Architecture architecture, StructuredGraph graph, Providers providers, GraphBuilderConfiguration graphBuilderConfig, OptimisticOptimizations optimisticOpts,
                     AllowAssumptions allowAssumptions, LoopExplosionPlugin loopExplosionPlugin, InvocationPlugins invocationPlugins, InlineInvokePlugin[] inlineInvokePlugins,
                     ParameterPlugin parameterPlugin,
                     NodePlugin[] nodePlugins, ResolvedJavaMethod callInlinedMethod, SourceLanguagePositionProvider sourceLanguagePositionProvider) {
+        this(architecture, graph, providers, graphBuilderConfig, optimisticOpts, allowAssumptions, loopExplosionPlugin, invocationPlugins, inlineInvokePlugins, parameterPlugin, nodePlugins,
+                        callInlinedMethod, sourceLanguagePositionProvider, null);
+    }
+
+    /**
+     * @param sharedGraphCache a cache of encoded graphs shared with other compilations, or
+     *            {@code null}. All users of the same cache must parse methods with an equivalent
+     *            {@link GraphBuilderConfiguration}.
+     */
+    public CachingPEGraphDecoder(Architecture architecture, StructuredGraph graph, Providers providers, GraphBuilderConfiguration graphBuilderConfig, OptimisticOptimizations optimisticOpts,
+                    AllowAssumptions allowAssumptions, LoopExplosionPlugin loopExplosionPlugin, InvocationPlugins invocationPlugins, InlineInvokePlugin[] inlineInvokePlugins,
+                    ParameterPlugin parameterPlugin,
+                    NodePlugin[] nodePlugins, ResolvedJavaMethod callInlinedMethod, SourceLanguagePositionProvider sourceLanguagePositionProvider, EncodedGraphCache sharedGraphCache) {
         super(architecture, graph, providers.getMetaAccess(), providers.getConstantReflection(), providers.getConstantFieldProvider(), providers.getStampProvider(), loopExplosionPlugin,
                         invocationPlugins, inlineInvokePlugins, parameterPlugin, nodePlugins, callInlinedMethod, sourceLanguagePositionProvider);
 
@@ -75,11 +94,74 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
         this.optimisticOpts = optimisticOpts;
         this.allowAssumptions = allowAssumptions;
         this.graphCache = EconomicMap.create();
+        this.sharedGraphCache = sharedGraphCache;
     }
 
-    protected GraphBuilderPhase.Instance createGraphBuilderPhaseInstance(IntrinsicContext initialIntrinsicContext) {
-        return new GraphBuilderPhase.Instance(providers.getMetaAccess(), providers.getStampProvider(), providers.getConstantReflection(), providers.getConstantFieldProvider(), graphBuilderConfig,
-                        optimisticOpts, initialIntrinsicContext);
+    protected GraphBuilderPhase.Instance createGraphBuilderPhaseInstance(Providers parsingProviders, IntrinsicContext initialIntrinsicContext) {
+        return new GraphBuilderPhase.Instance(parsingProviders.getMetaAccess(), parsingProviders.getStampProvider(), parsingProviders.getConstantReflection(),
+                        parsingProviders.getConstantFieldProvider(), graphBuilderConfig, optimisticOpts, initialIntrinsicContext);
+    }
+
+    /**
+     * Records whether a value that may change after the graph was parsed was folded. That is the
+     * value of a non-final field, for example of a static {@code @CompilationFinal} field in
+     * Truffle, or an array folded as stable, whose elements, for example of a
+     * {@code @CompilationFinal(dimensions = 1)} array, are then folded as well. A graph with such a
+     * value must not be shared with later compilations.
+     */
+    private static final class FoldRecordingConstantFieldProvider implements ConstantFieldProvider {
+        private final ConstantFieldProvider delegate;
+        private boolean foldedMutableValue;
+
+        FoldRecordingConstantFieldProvider(ConstantFieldProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+            T result = delegate.readConstantField(field, new FoldRecordingConstantFieldTool<>(tool));
+            if (result != null && !field.isFinal()) {
+                foldedMutableValue = true;
+            }
+            return result;
+        }
+
+        private final class FoldRecordingConstantFieldTool<T> implements ConstantFieldTool<T> {
+            private final ConstantFieldTool<T> tool;
+
+            FoldRecordingConstantFieldTool(ConstantFieldTool<T> tool) {
+                this.tool = tool;
+            }
+
+            @Override
+            public OptionValues getOptions() {
+                return tool.getOptions();
+            }
+
+            @Override
+            public JavaConstant readValue() {
+                return tool.readValue();
+            }
+
+            @Override
+            public JavaConstant getReceiver() {
+                return tool.getReceiver();
+            }
+
+            @Override
+            public T foldConstant(JavaConstant ret) {
+                return tool.foldConstant(ret);
+            }
+
+            @Override
+            public T foldStableArray(JavaConstant ret, int stableDimensions, boolean isDefaultStable) {
+                T result = tool.foldStableArray(ret, stableDimensions, isDefaultStable);
+                if (result != null && stableDimensions > 0) {
+                    foldedMutableValue = true;
+                }
+                return result;
+            }
+        }
     }
 
     @SuppressWarnings("try")
@@ -94,11 +176,17 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
                         build();
         // @formatter:on
         try (DebugContext.Scope scope = debug.scope("createGraph", graphToEncode)) {
+            FoldRecordingConstantFieldProvider fieldProvider = null;
+            Providers parsingProviders = providers;
+            if (isShared(intrinsicBytecodeProvider, isSubstitution)) {
+                fieldProvider = new FoldRecordingConstantFieldProvider(providers.getConstantFieldProvider());
+                parsingProviders = providers.copyWith(fieldProvider);
+            }
             IntrinsicContext initialIntrinsicContext = intrinsicBytecodeProvider != null ? new IntrinsicContext(originalMethod, method, intrinsicBytecodeProvider, INLINE_AFTER_PARSING) : null;
-            GraphBuilderPhase.Instance graphBuilderPhaseInstance = createGraphBuilderPhaseInstance(initialIntrinsicContext);
+            GraphBuilderPhase.Instance graphBuilderPhaseInstance = createGraphBuilderPhaseInstance(parsingProviders, initialIntrinsicContext);
             graphBuilderPhaseInstance.apply(graphToEncode);
 
-            PhaseContext context = new PhaseContext(providers);
+            PhaseContext context = new PhaseContext(parsingProviders);
             new CanonicalizerPhase().apply(graphToEncode, context);
             /*
              * ConvertDeoptimizeToGuardPhase reduces the number of merges in the graph, so that
@@ -109,6 +197,9 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
 
             EncodedGraph encodedGraph = GraphEncoder.encodeSingleGraph(graphToEncode, architecture);
             graphCache.put(method, encodedGraph);
+            if (fieldProvider != null && !fieldProvider.foldedMutableValue) {
+                sharedGraphCache.put(debug, method, encodedGraph, options);
+            }
             return encodedGraph;
 
         } catch (Throwable ex) {
@@ -116,10 +207,24 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
         }
     }
 
+    /**
+     * Intrinsic and substitution graphs are parsed in a context that is not captured by the method
+     * alone, so they are only cached for the duration of this decoding.
+     */
+    private boolean isShared(BytecodeProvider intrinsicBytecodeProvider, boolean isSubstitution) {
+        return sharedGraphCache != null && intrinsicBytecodeProvider == null && !isSubstitution;
+    }
+
     @Override
     protected EncodedGraph lookupEncodedGraph(ResolvedJavaMethod method, ResolvedJavaMethod originalMethod, BytecodeProvider intrinsicBytecodeProvider, boolean isSubstitution,
                     boolean trackNodeSourcePosition) {
         EncodedGraph result = graphCache.get(method);
+        if (result == null && isShared(intrinsicBytecodeProvider, isSubstitution) && method.hasBytecodes()) {
+            result = sharedGraphCache.get(debug, method, graphBuilderConfig.trackNodeSourcePosition(), options);
+            if (result != null) {
+                graphCache.put(method, result);
+            }
+        }
         if (result == null && method.hasBytecodes()) {
             result = createGraph(method, originalMethod, intrinsicBytecodeProvider, isSubstitution);
         }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.replacements;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.graalvm.collections.UnmodifiableEconomicMap;
+import org.graalvm.collections.UnmodifiableMapCursor;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.nodes.EncodedGraph;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionValues;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * A bounded cache of {@link EncodedGraph encoded graphs} that is shared by the
+ * {@link CachingPEGraphDecoder graph decoders} of concurrent compilations. When the cache is full,
+ * the least recently used graph is evicted.
+ *
+ * Only graphs that do not depend on {@link EncodedGraph#getAssumptions() assumptions} may be
+ * cached: an assumption that is invalidated after the graph was parsed would otherwise make every
+ * later compilation using the graph fail during code installation. Likewise, the decoder does not
+ * share graphs into which the value of a non-final field was folded. A graph is only reused by a
+ * compilation whose {@link OptionValues} are equal to those it was parsed with.
+ */
+public final class EncodedGraphCache {
+
+    private static final CounterKey Hits = DebugContext.counter("EncodedGraphCacheHits");
+    private static final CounterKey Misses = DebugContext.counter("EncodedGraphCacheMisses");
+    private static final CounterKey Evictions = DebugContext.counter("EncodedGraphCacheEvictions");
+
+    private static final class Entry {
+        final EncodedGraph graph;
+        final OptionValues options;
+
+        Entry(EncodedGraph graph, OptionValues options) {
+            this.graph = graph;
+            this.options = options;
+        }
+    }
+
+    private final int capacity;
+    private final Map<ResolvedJavaMethod, Entry> graphs;
+
+    /**
+     * Counts evictions since the last {@link #put}, so that they can be reported to the
+     * {@link DebugContext} of the compilation that caused them.
+     */
+    private int pendingEvictions;
+
+    public EncodedGraphCache(int capacity) {
+        assert capacity > 0;
+        this.capacity = capacity;
+        this.graphs = new LinkedHashMap<ResolvedJavaMethod, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ResolvedJavaMethod, Entry> eldest) {
+                if (size() > EncodedGraphCache.this.capacity) {
+                    pendingEvictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached graph for {@code method}, or {@code null} if there is none or if the cached
+     * graph was parsed with a different {@code trackNodeSourcePosition} setting or different
+     * options.
+     */
+    public EncodedGraph get(DebugContext debug, ResolvedJavaMethod method, boolean trackNodeSourcePosition, OptionValues options) {
+        Entry entry;
+        synchronized (this) {
+            entry = graphs.get(method);
+        }
+        if (entry != null && entry.graph.trackNodeSourcePosition() == trackNodeSourcePosition && equalOptions(entry.options, options)) {
+            Hits.increment(debug);
+            return entry.graph;
+        }
+        Misses.increment(debug);
+        return null;
+    }
+
+    /**
+     * Caches {@code encodedGraph}, parsed with {@code options}, as the graph for {@code method}
+     * unless it depends on assumptions.
+     */
+    public void put(DebugContext debug, ResolvedJavaMethod method, EncodedGraph encodedGraph, OptionValues options) {
+        if (encodedGraph.getAssumptions() != null && !encodedGraph.getAssumptions().isEmpty()) {
+            return;
+        }
+        int evictions;
+        synchronized (this) {
+            graphs.put(method, new Entry(encodedGraph, options));
+            evictions = pendingEvictions;
+            pendingEvictions = 0;
+        }
+        Evictions.add(debug, evictions);
+    }
+
+    private static boolean equalOptions(OptionValues a, OptionValues b) {
+        if (a == b) {
+            return true;
+        }
+        UnmodifiableEconomicMap<OptionKey<?>, Object> mapA = a.getMap();
+        UnmodifiableEconomicMap<OptionKey<?>, Object> mapB = b.getMap();
+        if (mapA.size() != mapB.size()) {
+            return false;
+        }
+        UnmodifiableMapCursor<OptionKey<?>, Object> cursor = mapA.getEntries();
+        while (cursor.advance()) {
+            if (!mapB.containsKey(cursor.getKey()) || !Objects.equals(cursor.getValue(), mapB.get(cursor.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return graphs.size();
+    }
+
+    public synchronized void clear() {
+        graphs.clear();
+    }
+}
@@ -193,6 +193,24 @@ public class Option {
             .def("0")
             .help("Manually set the number of compiler threads"),
 
+        option("TruffleCompilationQueueHotness")
+            .type("Boolean")
+            .category("EXPERT")
+            .def("true")
+            .help("Order compilation requests of the same tier by the decaying call and loop rate of their call targets instead of by submission order."),
+
+        option("TruffleCompilationQueueHotnessHalfLife")
+            .type("Integer")
+            .category("EXPERT")
+            .def("100")
+            .help("Half-life in milliseconds of the call and loop rate used to order the compilation queue."),
+
+        option("TruffleCompilationQueueStaleThreshold")
+            .type("Integer")
+            .category("EXPERT")
+            .def("10000")
+            .help("Drop queued background compilation requests whose call target did not execute for this many milliseconds (0 disables dropping)."),
+
         option("TruffleReturnTypeSpeculation")
             .type("Boolean")
             .category("DEBUG")
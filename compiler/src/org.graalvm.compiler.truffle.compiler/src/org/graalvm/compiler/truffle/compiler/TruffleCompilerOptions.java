@@ -61,6 +61,9 @@ public final class TruffleCompilerOptions {
     @Option(help = "Prints a histogram of all expanded Java methods.", type = OptionType.Debug)
     public static final OptionKey<Boolean> PrintTruffleExpansionHistogram = new OptionKey<>(false);
 
+    @Option(help = "Maximum number of encoded graphs of parsed methods cached across Truffle compilations (0 disables the cache).", type = OptionType.Expert)
+    public static final OptionKey<Integer> TruffleEncodedGraphCacheCapacity = new OptionKey<>(4096);
+
     @Option(help = "Enable support for simple infopoints in truffle partial evaluations.", type = OptionType.Expert)
     public static final OptionKey<Boolean> TruffleEnableInfopoints = new OptionKey<>(false);
 
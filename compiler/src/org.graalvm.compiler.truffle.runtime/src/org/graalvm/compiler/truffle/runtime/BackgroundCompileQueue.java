@@ -28,6 +28,13 @@ import static org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions.getOpti
 import static org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions.overrideOptions;
 
 import java.lang.ref.WeakReference;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -36,6 +43,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.graalvm.compiler.truffle.common.TruffleCompilationTask;
 import org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions.TruffleRuntimeOptionsOverrideScope;
@@ -46,14 +55,37 @@ import org.graalvm.options.OptionValues;
  *
  * The current queuing policy is to first schedule all the first tier compilation requests, and only
  * handle second tier compilation requests when there are no first tier compilations left. Between
- * the compilation requests of the same optimization tier, the queuing policy is FIFO
- * (first-in-first-out).
+ * the compilation requests of the same optimization tier, the request whose call target currently
+ * has the highest call and loop rate is scheduled first. Calls are counted both in the interpreter
+ * and in first tier code, so that call targets waiting for their second tier compilation are ranked
+ * by how often their first tier code is called. The rate of every queued request is
+ * re-evaluated whenever a compiler thread takes a request from the queue, and it decays over time,
+ * so call targets that got hot after being queued overtake call targets that went cold. Background
+ * requests whose call target did not execute for
+ * {@link SharedTruffleRuntimeOptions#TruffleCompilationQueueStaleThreshold} milliseconds are
+ * dropped. With {@link SharedTruffleRuntimeOptions#TruffleCompilationQueueHotness} disabled, the
+ * queuing policy between requests of the same tier is FIFO (first-in-first-out).
  *
  * Note that all the compilation requests are second tier when the multi-tier option is turned off.
  */
 public class BackgroundCompileQueue {
+    /**
+     * Number of steps in which the hotness of a request decays to half of its value. The hotness is
+     * only updated in whole steps, so that the decay factor can be looked up in
+     * {@link #DECAY_FACTORS}.
+     */
+    private static final int DECAY_TICKS_PER_HALF_LIFE = 16;
+    private static final double[] DECAY_FACTORS = new double[DECAY_TICKS_PER_HALF_LIFE];
+    static {
+        for (int i = 0; i < DECAY_TICKS_PER_HALF_LIFE; i++) {
+            DECAY_FACTORS[i] = Math.pow(0.5, (double) i / DECAY_TICKS_PER_HALF_LIFE);
+        }
+    }
+
     private final AtomicLong idCounter;
     private final ExecutorService compilationExecutorService;
+    private final long decayTick;
+    private final long staleThreshold;
 
     public class Request implements Runnable, Comparable<Request> {
         private final long id;
@@ -62,6 +94,14 @@ public class BackgroundCompileQueue {
         private final WeakReference<OptimizedCallTarget> weakCallTarget;
         private final TruffleCompilationTask task;
         private final boolean isFirstTier;
+        private final long queueTime;
+
+        // The values below are only accessed while holding the lock of the HotnessQueue, or by the
+        // compiler thread that took this request from the queue.
+        private long lastActivityCount;
+        private long lastUpdateTime;
+        private long lastActiveTime;
+        private double hotness;
 
         public Request(GraalTruffleRuntime runtime, OptionValues optionOverrides, OptimizedCallTarget callTarget, TruffleCompilationTask task) {
             this.id = idCounter.getAndIncrement();
@@ -70,6 +110,85 @@ public class BackgroundCompileQueue {
             this.weakCallTarget = new WeakReference<>(callTarget);
             this.task = task;
             this.isFirstTier = !task.isLastTier();
+            this.queueTime = System.nanoTime();
+            OptimizedCompilationProfile profile = callTarget.getCompilationProfile();
+            long activityCount = activityCount(profile);
+            this.lastActivityCount = activityCount;
+            this.lastUpdateTime = queueTime;
+            this.lastActiveTime = queueTime;
+            if (activityCount == 0) {
+                // Explicitly requested compilations (e.g., OSR) are never ranked behind others.
+                this.hotness = Double.POSITIVE_INFINITY;
+            } else {
+                this.hotness = rate(activityCount, queueTime - profile.getTimestamp());
+            }
+        }
+
+        /**
+         * Folds the calls and loop iterations observed since the last update into the decaying
+         * hotness of this request. Does nothing until at least one decay tick has passed.
+         */
+        void updateHotness(long now) {
+            OptimizedCallTarget callTarget = weakCallTarget.get();
+            long ticks = (now - lastUpdateTime) / decayTick;
+            if (callTarget == null || ticks <= 0 || hotness == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            long elapsed = ticks * decayTick;
+            long activityCount = activityCount(callTarget.getCompilationProfile());
+            long delta = Math.max(0, activityCount - lastActivityCount);
+            double decay = decayFactor(ticks);
+            hotness = hotness * decay + rate(delta, elapsed) * (1 - decay);
+            if (delta > 0) {
+                lastActiveTime = now;
+            }
+            lastActivityCount = activityCount;
+            lastUpdateTime += elapsed;
+        }
+
+        /**
+         * Returns {@code true} if running this request will not compile anything, either because
+         * its call target was collected or cancelled, or because the request is stale.
+         */
+        boolean isDisposable(long now) {
+            return weakCallTarget.get() == null || task.isCancelled() || isStale(now);
+        }
+
+        private boolean isStale(long now) {
+            return staleThreshold > 0 && hotness != Double.POSITIVE_INFINITY && now - lastActiveTime > staleThreshold;
+        }
+
+        /**
+         * Called by a compiler thread after it took this request from the queue and before it runs
+         * it.
+         */
+        void taken(long now) {
+            OptimizedCallTarget callTarget = weakCallTarget.get();
+            if (callTarget == null || task.isCancelled()) {
+                return;
+            }
+            if (isStale(now)) {
+                if (task instanceof CancellableCompileTask && ((CancellableCompileTask) task).cancel()) {
+                    runtime.getListener().onCompilationDequeued(callTarget, null, "Stale compilation request");
+                }
+                return;
+            }
+            runtime.getListener().onCompilationQueueWaitFinished(callTarget, now - queueTime);
+        }
+
+        /**
+         * Orders first tier requests before last tier requests, and hotter requests before colder
+         * ones within a tier. Must only be called while holding the lock of the HotnessQueue.
+         */
+        int compareHotness(Request that) {
+            if (this.isFirstTier != that.isFirstTier) {
+                return this.isFirstTier ? -1 : 1;
+            }
+            int result = Double.compare(that.hotness, this.hotness);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(this.id, that.id);
         }
 
         @SuppressWarnings("try")
@@ -102,6 +221,35 @@ public class BackgroundCompileQueue {
         }
     }
 
+    /**
+     * Events (e.g. calls or loop iterations) per millisecond.
+     */
+    private static double rate(long events, long nanos) {
+        return events * 1_000_000.0 / Math.max(nanos, 1_000_000L);
+    }
+
+    /**
+     * The calls and loop iterations of a call target. The call and loop count only includes calls
+     * in the interpreter, so the call count is added to also include calls in first tier code.
+     * Calls in the interpreter are counted twice, which does not change the ranking between
+     * requests of the same tier, as their call targets run in the same mode.
+     */
+    private static long activityCount(OptimizedCompilationProfile profile) {
+        return (long) profile.getCallCount() + profile.getCallAndLoopCount();
+    }
+
+    /**
+     * Returns {@code 0.5^(ticks / DECAY_TICKS_PER_HALF_LIFE)} without calling {@link Math#pow}.
+     */
+    private static double decayFactor(long ticks) {
+        long halfLives = ticks / DECAY_TICKS_PER_HALF_LIFE;
+        if (halfLives > 1100) {
+            // Below the smallest positive double.
+            return 0;
+        }
+        return Math.scalb(DECAY_FACTORS[(int) (ticks % DECAY_TICKS_PER_HALF_LIFE)], (int) -halfLives);
+    }
+
     public class RequestFutureTask<V> extends FutureTask<V> implements Comparable<Runnable> {
         private final Request request;
 
@@ -127,6 +275,14 @@ public class BackgroundCompileQueue {
 
     public BackgroundCompileQueue() {
         this.idCounter = new AtomicLong();
+        long hotnessHalfLife = TimeUnit.MILLISECONDS.toNanos(Math.max(1, TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleCompilationQueueHotnessHalfLife)));
+        this.decayTick = hotnessHalfLife / DECAY_TICKS_PER_HALF_LIFE;
+        if (TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleBackgroundCompilation)) {
+            this.staleThreshold = TimeUnit.MILLISECONDS.toNanos(Math.max(0, TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleCompilationQueueStaleThreshold)));
+        } else {
+            // Foreground compilations are awaited by the requesting thread and are never stale.
+            this.staleThreshold = 0;
+        }
 
         TruffleCompilerThreadFactory factory = new TruffleCompilerThreadFactory("TruffleCompilerThread");
         int selectedProcessors = TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleCompilerThreads);
@@ -138,8 +294,14 @@ public class BackgroundCompileQueue {
             }
         }
         selectedProcessors = Math.max(1, selectedProcessors);
+        BlockingQueue<Runnable> queue;
+        if (TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleCompilationQueueHotness)) {
+            queue = new HotnessQueue();
+        } else {
+            queue = new PriorityBlockingQueue<>();
+        }
         this.compilationExecutorService = new ThreadPoolExecutor(selectedProcessors, selectedProcessors, 0, TimeUnit.MILLISECONDS,
-                        new PriorityBlockingQueue<>(), factory) {
+                        queue, factory) {
             @Override
             protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
                 return new RequestFutureTask<>(runnable, value);
@@ -147,6 +309,243 @@ public class BackgroundCompileQueue {
         };
     }
 
+    /**
+     * An unbounded blocking queue that hands out the hottest queued {@link Request} (see
+     * {@link Request#compareHotness}) instead of keeping its entries sorted. The hotness of queued
+     * requests changes while they wait, so every take re-evaluates all entries, which is linear in
+     * the queue size. The re-evaluation of an entry is a table lookup when its decay tick has
+     * passed, and only a subtraction otherwise. Requests that will not compile anything are handed out first, so that they are
+     * disposed of quickly by the compiler threads.
+     */
+    private final class HotnessQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+        private final ArrayList<Runnable> entries = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        @Override
+        public boolean offer(Runnable e) {
+            Objects.requireNonNull(e);
+            lock.lock();
+            try {
+                entries.add(e);
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void put(Runnable e) {
+            offer(e);
+        }
+
+        @Override
+        public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+            return offer(e);
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            Runnable result;
+            lock.lockInterruptibly();
+            try {
+                while (entries.isEmpty()) {
+                    notEmpty.await();
+                }
+                result = removeHottest();
+            } finally {
+                lock.unlock();
+            }
+            return taken(result);
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            Runnable result;
+            lock.lockInterruptibly();
+            try {
+                while (entries.isEmpty()) {
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                result = removeHottest();
+            } finally {
+                lock.unlock();
+            }
+            return taken(result);
+        }
+
+        @Override
+        public Runnable poll() {
+            Runnable result;
+            lock.lock();
+            try {
+                if (entries.isEmpty()) {
+                    return null;
+                }
+                result = removeHottest();
+            } finally {
+                lock.unlock();
+            }
+            return taken(result);
+        }
+
+        @Override
+        public Runnable peek() {
+            lock.lock();
+            try {
+                if (entries.isEmpty()) {
+                    return null;
+                }
+                return entries.get(indexOfHottest(System.nanoTime()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            lock.lock();
+            try {
+                return entries.remove(o);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            lock.lock();
+            try {
+                entries.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            Objects.requireNonNull(c);
+            if (c == this) {
+                throw new IllegalArgumentException();
+            }
+            lock.lock();
+            try {
+                int n = Math.min(entries.size(), maxElements);
+                for (int i = 0; i < n; i++) {
+                    c.add(entries.get(i));
+                }
+                entries.subList(0, n).clear();
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            Object[] snapshot;
+            lock.lock();
+            try {
+                snapshot = entries.toArray();
+            } finally {
+                lock.unlock();
+            }
+            return new Iterator<Runnable>() {
+                private int cursor;
+                private Runnable last;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor < snapshot.length;
+                }
+
+                @Override
+                public Runnable next() {
+                    if (cursor >= snapshot.length) {
+                        throw new NoSuchElementException();
+                    }
+                    last = (Runnable) snapshot[cursor++];
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    HotnessQueue.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+
+        private Runnable removeHottest() {
+            assert lock.isHeldByCurrentThread();
+            return entries.remove(indexOfHottest(System.nanoTime()));
+        }
+
+        private int indexOfHottest(long now) {
+            assert lock.isHeldByCurrentThread() && !entries.isEmpty();
+            int hottestIndex = -1;
+            Request hottest = null;
+            for (int i = 0; i < entries.size(); i++) {
+                Request request = requestOf(entries.get(i));
+                if (request == null) {
+                    return i;
+                }
+                request.updateHotness(now);
+                if (request.isDisposable(now)) {
+                    return i;
+                }
+                if (hottest == null || request.compareHotness(hottest) < 0) {
+                    hottestIndex = i;
+                    hottest = request;
+                }
+            }
+            return hottestIndex;
+        }
+
+        private Runnable taken(Runnable runnable) {
+            Request request = requestOf(runnable);
+            if (request != null) {
+                request.taken(System.nanoTime());
+            }
+            return runnable;
+        }
+
+        private Request requestOf(Runnable runnable) {
+            if (runnable instanceof RequestFutureTask) {
+                return ((RequestFutureTask<?>) runnable).request;
+            }
+            return null;
+        }
+    }
+
     private static final class TruffleCompilerThreadFactory implements ThreadFactory {
         private final String namePrefix;
 
@@ -39,7 +39,7 @@ import com.oracle.truffle.api.nodes.Node;
  * described using the following deterministic automata: * <code>
  * <pre>
  * ( (split | (queue . unqueue))*
- *    . queue . started
+ *    . queue . [queueWaitFinished] . started
  *    . (truffleTierFinished . graalTierFinished . success)
  *      | ([truffleTierFinished] . [graalTierFinished] . failed)
  *    . invalidate )*
@@ -82,6 +82,16 @@ public interface GraalTruffleRuntimeListener {
     default void onCompilationDequeued(OptimizedCallTarget target, Object source, CharSequence reason) {
     }
 
+    /**
+     * Notifies this object when a compiler thread has taken the compilation request for
+     * {@code target} from the compilation queue and is about to run it.
+     *
+     * @param target the call target about to be compiled
+     * @param waitTime the time in nanoseconds the request spent in the compilation queue
+     */
+    default void onCompilationQueueWaitFinished(OptimizedCallTarget target, long waitTime) {
+    }
+
     /**
      * Notifies this object when compilation of {@code target} is about to start.
      *
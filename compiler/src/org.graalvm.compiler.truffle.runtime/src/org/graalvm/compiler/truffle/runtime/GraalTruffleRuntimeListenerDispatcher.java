@@ -68,6 +68,13 @@ final class GraalTruffleRuntimeListenerDispatcher extends ArrayList<GraalTruffle
         }
     }
 
+    @Override
+    public void onCompilationQueueWaitFinished(OptimizedCallTarget target, long waitTime) {
+        for (GraalTruffleRuntimeListener l : this) {
+            l.onCompilationQueueWaitFinished(target, waitTime);
+        }
+    }
+
     @Override
     public void onCompilationFailed(OptimizedCallTarget target, String reason, boolean bailout, boolean permanent) {
         for (GraalTruffleRuntimeListener l : this) {
@@ -73,6 +73,7 @@ public final class StatisticsListener extends AbstractGraalTruffleRuntimeListene
 
     private final LongSummaryStatistics timeToQueue = new LongSummaryStatistics();
     private final LongSummaryStatistics timeToCompilation = new LongSummaryStatistics();
+    private final LongSummaryStatistics timeInQueue = new LongSummaryStatistics();
 
     private final IntSummaryStatistics nodeCount = new IntSummaryStatistics();
     private final IntSummaryStatistics nodeCountTrivial = new IntSummaryStatistics();
@@ -147,6 +148,11 @@ public final class StatisticsListener extends AbstractGraalTruffleRuntimeListene
         dequeues++;
     }
 
+    @Override
+    public synchronized void onCompilationQueueWaitFinished(OptimizedCallTarget target, long waitTime) {
+        timeInQueue.accept(waitTime);
+    }
+
     @Override
     public synchronized void onCompilationInvalidated(OptimizedCallTarget target, Object source, CharSequence reason) {
         invalidations++;
@@ -264,6 +270,7 @@ public final class StatisticsListener extends AbstractGraalTruffleRuntimeListene
 
         printStatisticTime(rt, "Time to queue", timeToQueue);
         printStatisticTime(rt, "Time to compilation", timeToCompilation);
+        printStatisticTime(rt, "Time in queue", timeInQueue);
 
         printStatisticTime(rt, "Compilation time", compilationTime);
         printStatisticTime(rt, "  Truffle Tier", compilationTimeTruffleTier);
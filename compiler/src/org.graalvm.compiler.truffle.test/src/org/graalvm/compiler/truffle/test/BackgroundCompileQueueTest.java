@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.truffle.test;
+
+import static org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions.overrideOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.graalvm.compiler.truffle.runtime.BackgroundCompileQueue;
+import org.graalvm.compiler.truffle.runtime.CancellableCompileTask;
+import org.graalvm.compiler.truffle.runtime.GraalCompilerDirectives;
+import org.graalvm.compiler.truffle.runtime.GraalTruffleRuntime;
+import org.graalvm.compiler.truffle.runtime.GraalTruffleRuntimeListener;
+import org.graalvm.compiler.truffle.runtime.OptimizedCallTarget;
+import org.graalvm.compiler.truffle.runtime.SharedTruffleRuntimeOptions;
+import org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions.TruffleRuntimeOptionsOverrideScope;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests the ordering and the stale request dropping of the hotness based compilation queue. The
+ * tests hold the single compiler thread of their own queue in a compilation of a blocker target
+ * while they set up the queued requests.
+ */
+public class BackgroundCompileQueueTest extends TestWithSynchronousCompiling {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private static final class TierRootNode extends RootNode {
+        private final String name;
+
+        TierRootNode(String name) {
+            super(null);
+            this.name = name;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            if (CompilerDirectives.inInterpreter()) {
+                return "interpreter";
+            }
+            if (GraalCompilerDirectives.inFirstTier()) {
+                return "first-tier";
+            }
+            return "last-tier";
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Blocks the compilation of {@link #blocker} until {@link #release()} is called, and records the
+     * queue events of all other targets.
+     */
+    private static final class QueueListener implements GraalTruffleRuntimeListener {
+        final OptimizedCallTarget blocker = createTarget("blocker");
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch blockerReleased = new CountDownLatch(1);
+        final List<OptimizedCallTarget> waitFinished = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> waitTimes = Collections.synchronizedList(new ArrayList<>());
+        final List<OptimizedCallTarget> dequeued = Collections.synchronizedList(new ArrayList<>());
+        final List<CharSequence> dequeueReasons = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onCompilationQueueWaitFinished(OptimizedCallTarget target, long waitTime) {
+            if (target != blocker) {
+                waitFinished.add(target);
+                waitTimes.add(waitTime);
+            }
+        }
+
+        @Override
+        public void onCompilationDequeued(OptimizedCallTarget target, Object source, CharSequence reason) {
+            dequeued.add(target);
+            dequeueReasons.add(reason);
+        }
+
+        @Override
+        public void onCompilationStarted(OptimizedCallTarget target) {
+            if (target == blocker) {
+                blockerStarted.countDown();
+                try {
+                    blockerReleased.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+
+        void block(BackgroundCompileQueue queue) throws InterruptedException {
+            queue.submitCompilationRequest(runtime, blocker, true);
+            Assert.assertTrue("blocker compilation did not start", blockerStarted.await(1, TimeUnit.MINUTES));
+        }
+
+        void release() {
+            blockerReleased.countDown();
+        }
+    }
+
+    private QueueListener listener;
+    private BackgroundCompileQueue queue;
+
+    @Before
+    public void addListener() {
+        listener = new QueueListener();
+        runtime.addListener(listener);
+    }
+
+    @After
+    public void removeListener() {
+        listener.release();
+        if (queue != null) {
+            queue.shutdownAndAwaitTermination(TimeUnit.MINUTES.toMillis(1));
+        }
+        runtime.removeListener(listener);
+    }
+
+    private static OptimizedCallTarget createTarget(String name) {
+        return (OptimizedCallTarget) runtime.createCallTarget(new TierRootNode(name));
+    }
+
+    private static void awaitCompletion(CancellableCompileTask... tasks) throws InterruptedException, ExecutionException, TimeoutException {
+        for (CancellableCompileTask task : tasks) {
+            task.awaitCompletion(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testHotnessOrdering() throws Exception {
+        OptimizedCallTarget cold = createTarget("cold");
+        OptimizedCallTarget warm = createTarget("warm");
+        OptimizedCallTarget hot = createTarget("hot");
+        OptimizedCallTarget firstTier = createTarget("firstTier");
+        cold.reportLoopCount(1);
+        warm.reportLoopCount(1_000);
+        hot.reportLoopCount(1_000_000);
+        firstTier.reportLoopCount(1);
+        try (TruffleRuntimeOptionsOverrideScope scope = overrideOptions(
+                        SharedTruffleRuntimeOptions.TruffleBackgroundCompilation, true,
+                        SharedTruffleRuntimeOptions.TruffleCompilerThreads, 1,
+                        SharedTruffleRuntimeOptions.TruffleCompilationQueueHotness, true,
+                        SharedTruffleRuntimeOptions.TruffleCompilationQueueStaleThreshold, 0)) {
+            queue = new BackgroundCompileQueue();
+            listener.block(queue);
+            CancellableCompileTask[] tasks = {
+                            queue.submitCompilationRequest(runtime, cold, true),
+                            queue.submitCompilationRequest(runtime, warm, true),
+                            queue.submitCompilationRequest(runtime, hot, true),
+                            queue.submitCompilationRequest(runtime, firstTier, false),
+            };
+            long submitted = System.nanoTime();
+            Assert.assertEquals(tasks.length, queue.getQueueSize());
+            Thread.sleep(10);
+            long released = System.nanoTime();
+            listener.release();
+            awaitCompletion(tasks);
+
+            // First tier requests go first, then the hotter last tier requests.
+            Assert.assertEquals(Arrays.asList(firstTier, hot, warm, cold), listener.waitFinished);
+            Assert.assertTrue(listener.dequeued.isEmpty());
+            for (long waitTime : listener.waitTimes) {
+                Assert.assertTrue("wait time " + waitTime + " too short", waitTime >= released - submitted);
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testDropStaleRequests() throws Exception {
+        int staleThreshold = 100;
+        try (TruffleRuntimeOptionsOverrideScope scope = overrideOptions(
+                        SharedTruffleRuntimeOptions.TruffleMultiTier, true,
+                        SharedTruffleRuntimeOptions.TruffleFirstTierCompilationThreshold, 10,
+                        SharedTruffleRuntimeOptions.TruffleCompilationThreshold, 1_000_000_000)) {
+            OptimizedCallTarget idle = createTarget("idle");
+            OptimizedCallTarget calledFromFirstTier = createTarget("calledFromFirstTier");
+            idle.reportLoopCount(1_000);
+            // Compiles the first tier synchronously.
+            for (int i = 0; i < 10; i++) {
+                calledFromFirstTier.call();
+            }
+            Assert.assertEquals("first-tier", calledFromFirstTier.call());
+            int callAndLoopCount = calledFromFirstTier.getCompilationProfile().getCallAndLoopCount();
+
+            try (TruffleRuntimeOptionsOverrideScope queueScope = overrideOptions(
+                            SharedTruffleRuntimeOptions.TruffleBackgroundCompilation, true,
+                            SharedTruffleRuntimeOptions.TruffleCompilerThreads, 1,
+                            SharedTruffleRuntimeOptions.TruffleCompilationQueueHotness, true,
+                            SharedTruffleRuntimeOptions.TruffleCompilationQueueStaleThreshold, staleThreshold)) {
+                queue = new BackgroundCompileQueue();
+                listener.block(queue);
+                CancellableCompileTask idleTask = queue.submitCompilationRequest(runtime, idle, true);
+                CancellableCompileTask calledTask = queue.submitCompilationRequest(runtime, calledFromFirstTier, true);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(3 * staleThreshold);
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1_000; i++) {
+                        calledFromFirstTier.call();
+                    }
+                    Thread.sleep(1);
+                }
+                // The calls ran in first tier code, which does not count them as calls and loops.
+                Assert.assertEquals(callAndLoopCount, calledFromFirstTier.getCompilationProfile().getCallAndLoopCount());
+                listener.release();
+                awaitCompletion(idleTask, calledTask);
+
+                Assert.assertEquals(Collections.singletonList(idle), listener.dequeued);
+                Assert.assertEquals("Stale compilation request", listener.dequeueReasons.get(0).toString());
+                Assert.assertTrue(idleTask.isCancelled());
+                Assert.assertEquals(Collections.singletonList(calledFromFirstTier), listener.waitFinished);
+                Assert.assertFalse(calledTask.isCancelled());
+                Assert.assertEquals("last-tier", calledFromFirstTier.call());
+            }
+        }
+    }
+}
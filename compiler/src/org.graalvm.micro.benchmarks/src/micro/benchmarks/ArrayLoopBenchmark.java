@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counted loops over primitive arrays that are candidates for SIMD code generation: element-wise
+ * arithmetic, reductions, fills and copies. The AMD64 backend can already emit packed AVX
+ * instructions, but the high-level IR has no vector nodes or stamps, so these loops are currently
+ * compiled to scalar code.
+ */
+@State(Scope.Thread)
+public class ArrayLoopBenchmark extends BenchmarkBase {
+
+    private static final int SIZE = 4096;
+
+    private int[] intA;
+    private int[] intB;
+    private int[] intResult;
+    private long[] longA;
+    private float[] floatA;
+    private float[] floatB;
+    private float[] floatResult;
+    private double[] doubleA;
+    private double[] doubleB;
+    private double[] doubleResult;
+    private byte[] byteA;
+    private byte[] byteResult;
+
+    @Setup
+    public void setup() {
+        intA = new int[SIZE];
+        intB = new int[SIZE];
+        intResult = new int[SIZE];
+        longA = new long[SIZE];
+        floatA = new float[SIZE];
+        floatB = new float[SIZE];
+        floatResult = new float[SIZE];
+        doubleA = new double[SIZE];
+        doubleB = new double[SIZE];
+        doubleResult = new double[SIZE];
+        byteA = new byte[SIZE];
+        byteResult = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            intA[i] = i;
+            intB[i] = SIZE - i;
+            longA[i] = i * 31L;
+            floatA[i] = i * 0.5f;
+            floatB[i] = i * 0.25f;
+            doubleA[i] = i * 0.5;
+            doubleB[i] = i * 0.25;
+            byteA[i] = (byte) i;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] addInt() {
+        int[] a = intA;
+        int[] b = intB;
+        int[] result = intResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] mulAddInt() {
+        int[] a = intA;
+        int[] b = intB;
+        int[] result = intResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] * b[i] + 7;
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public float[] mulFloat() {
+        float[] a = floatA;
+        float[] b = floatB;
+        float[] result = floatResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] * b[i];
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] axpyDouble() {
+        double[] x = doubleA;
+        double[] y = doubleB;
+        double[] result = doubleResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = 3.0 * x[i] + y[i];
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int sumInt() {
+        int[] a = intA;
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long sumLong() {
+        long[] a = longA;
+        long sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int maxInt() {
+        int[] a = intA;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            max = Math.max(max, a[i]);
+        }
+        return max;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double dotProductDouble() {
+        double[] a = doubleA;
+        double[] b = doubleB;
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] fillInt() {
+        int[] result = intResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = 42;
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] fillByte() {
+        byte[] result = byteResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = 42;
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] copyInt() {
+        int[] a = intA;
+        int[] result = intResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i];
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] copyByte() {
+        byte[] a = byteA;
+        byte[] result = byteResult;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i];
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] arraycopyInt() {
+        System.arraycopy(intA, 0, intResult, 0, SIZE);
+        return intResult;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the greedy inlining policy with the cost/benefit inlining policy. The benchmarks in this
+ * class run with the default (greedy) policy, the ones inherited by {@link CostBenefit} run with
+ * {@code -Dgraal.CostBenefitInlining=true}.
+ *
+ * The workloads mimic the shape of typical application benchmarks: deep chains of small virtual
+ * calls, collection pipelines over boxed values, and short-lived helper objects.
+ */
+public class InliningPolicyBenchmark extends BenchmarkBase {
+
+    @Fork(value = BenchmarkBase.Defaults.FORKS, jvmArgsAppend = "-Dgraal.CostBenefitInlining=true")
+    public static class CostBenefit extends InliningPolicyBenchmark {
+    }
+
+    private static final int N = 1000;
+
+    abstract static class Shape {
+        abstract double area();
+
+        double scaledArea(double factor) {
+            return area() * factor;
+        }
+    }
+
+    static final class Circle extends Shape {
+        final double radius;
+
+        Circle(double radius) {
+            this.radius = radius;
+        }
+
+        @Override
+        double area() {
+            return Math.PI * radius * radius;
+        }
+    }
+
+    static final class Rectangle extends Shape {
+        final double width;
+        final double height;
+
+        Rectangle(double width, double height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        double area() {
+            return width * height;
+        }
+    }
+
+    static final class Square extends Shape {
+        final double side;
+
+        Square(double side) {
+            this.side = side;
+        }
+
+        @Override
+        double area() {
+            return side * side;
+        }
+    }
+
+    static final class Vector {
+        final double x;
+        final double y;
+
+        Vector(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        Vector add(Vector other) {
+            return new Vector(x + other.x, y + other.y);
+        }
+
+        Vector scale(double factor) {
+            return new Vector(x * factor, y * factor);
+        }
+
+        double length() {
+            return Math.sqrt(x * x + y * y);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ThreadState {
+        final Shape[] shapes = new Shape[N];
+        final List<Integer> values = new ArrayList<>(N);
+        final String[] words = new String[N];
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            for (int i = 0; i < N; i++) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        shapes[i] = new Circle(random.nextDouble());
+                        break;
+                    case 1:
+                        shapes[i] = new Rectangle(random.nextDouble(), random.nextDouble());
+                        break;
+                    default:
+                        shapes[i] = new Square(random.nextDouble());
+                        break;
+                }
+                values.add(random.nextInt(N));
+                words[i] = "w" + random.nextInt(N / 10);
+            }
+        }
+    }
+
+    @Benchmark
+    public double polymorphicDispatch(ThreadState state) {
+        double sum = 0;
+        for (Shape shape : state.shapes) {
+            sum += shape.scaledArea(2.0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long boxedCollectionPipeline(ThreadState state) {
+        long sum = 0;
+        for (Integer value : state.values) {
+            if (isEven(value)) {
+                sum += square(value);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double shortLivedObjects(ThreadState state) {
+        Vector position = new Vector(0, 0);
+        for (Shape shape : state.shapes) {
+            position = position.add(new Vector(shape.area(), 1.0).scale(0.5));
+        }
+        return position.length();
+    }
+
+    @Benchmark
+    public int wordCount(ThreadState state) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : state.words) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        return counts.size();
+    }
+
+    private static boolean isEven(int value) {
+        return (value & 1) == 0;
+    }
+
+    private static long square(int value) {
+        return (long) value * value;
+    }
+}
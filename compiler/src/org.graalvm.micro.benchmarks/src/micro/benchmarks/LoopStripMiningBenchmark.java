@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares counted loops with and without loop strip mining. The benchmarks in this class run with
+ * the default options, the ones inherited by {@link StripMining} run with
+ * {@code -Dgraal.LoopStripMining=true}. Loops with a 64-bit counter poll on every iteration by
+ * default and are strip mined with the option. Loops with a 32-bit counter have no poll in either
+ * configuration, so their scores must not change.
+ */
+@State(Scope.Thread)
+public class LoopStripMiningBenchmark extends BenchmarkBase {
+
+    @Fork(value = BenchmarkBase.Defaults.FORKS, jvmArgsAppend = "-Dgraal.LoopStripMining=true")
+    public static class StripMining extends LoopStripMiningBenchmark {
+    }
+
+    private static final int SIZE = 1 << 16;
+
+    private int[] ints;
+    private long[] longs;
+
+    @Setup
+    public void setup() {
+        ints = new int[SIZE];
+        longs = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ints[i] = i * 31;
+            longs[i] = i * 31L;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long sumLongCounter() {
+        long sum = 0;
+        long[] a = longs;
+        for (long i = 0; i < a.length; i++) {
+            sum += a[(int) i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE / 4)
+    public long sumLongCounterStride() {
+        long sum = 0;
+        long[] a = longs;
+        for (long i = 0; i < a.length; i += 4) {
+            sum += a[(int) i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long countLongCounter() {
+        long count = 0;
+        for (long i = 0; i < SIZE; i++) {
+            count += i & 7;
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int sumIntCounter() {
+        int sum = 0;
+        int[] a = ints;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE / 4)
+    public int sumIntCounterStride() {
+        int sum = 0;
+        int[] a = ints;
+        for (int i = 0; i < a.length; i += 4) {
+            sum += a[i];
+        }
+        return sum;
+    }
+}
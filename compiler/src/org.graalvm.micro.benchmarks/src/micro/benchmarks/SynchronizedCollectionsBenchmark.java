@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks cost of non-contended synchronization in the synchronized JDK collections.
+ */
+public class SynchronizedCollectionsBenchmark extends BenchmarkBase {
+
+    private static final int N = 100;
+
+    @State(Scope.Benchmark)
+    public static class ThreadState {
+        final StringBuffer buffer = new StringBuffer(N * 4);
+        final Vector<Integer> vector = new Vector<>(N);
+        final Hashtable<Integer, Integer> table = new Hashtable<>(N * 2);
+        final Integer[] values = new Integer[N];
+
+        public ThreadState() {
+            for (int i = 0; i < N; ++i) {
+                values[i] = i;
+                table.put(values[i], values[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public String stringBufferAppend(ThreadState state) {
+        StringBuffer buffer = state.buffer;
+        buffer.setLength(0);
+        for (int i = 0; i < N; ++i) {
+            buffer.append(i).append(',');
+        }
+        return buffer.toString();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public int vectorAddAndGet(ThreadState state) {
+        Vector<Integer> vector = state.vector;
+        vector.clear();
+        for (int i = 0; i < N; ++i) {
+            vector.add(state.values[i]);
+        }
+        int sum = 0;
+        for (int i = 0; i < N; ++i) {
+            sum += vector.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public int hashtableGet(ThreadState state) {
+        Hashtable<Integer, Integer> table = state.table;
+        int sum = 0;
+        for (int i = 0; i < N; ++i) {
+            sum += table.get(state.values[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public Object hashtablePut(ThreadState state) {
+        Hashtable<Integer, Integer> table = state.table;
+        Object last = null;
+        for (int i = 0; i < N; ++i) {
+            last = table.put(state.values[i], state.values[N - 1 - i]);
+        }
+        for (int i = 0; i < N; ++i) {
+            table.put(state.values[i], state.values[i]);
+        }
+        return last;
+    }
+}
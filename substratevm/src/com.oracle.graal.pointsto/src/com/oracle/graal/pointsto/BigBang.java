@@ -112,6 +112,7 @@ public abstract class BigBang {
      * Processing queue.
      */
     private final CompletionExecutor executor;
+    private final ForkJoinPool executorService;
 
     private ConcurrentMap<AbstractUnsafeLoadTypeFlow, Boolean> unsafeLoads;
     private ConcurrentMap<AbstractUnsafeStoreTypeFlow, Boolean> unsafeStores;
@@ -157,6 +158,7 @@ public abstract class BigBang {
         unsafeStores = new ConcurrentHashMap<>();
 
         timing = PointstoOptions.ProfileAnalysisOperations.getValue(options) ? new AnalysisTiming() : null;
+        this.executorService = executorService;
         executor = new CompletionExecutor(this, executorService);
         executor.init(timing);
     }
@@ -586,7 +588,15 @@ public abstract class BigBang {
     @SuppressWarnings("try")
     private void checkObjectGraph() {
         // scan constants
-        ObjectScanner objectScanner = new AnalysisObjectScanner(this);
+        CompletionExecutor scanExecutor = null;
+        if (executorService != null && PointstoOptions.ScanObjectsParallel.getValue(options)) {
+            /*
+             * The scan runs between two analysis iterations, so it gets its own executor. The type
+             * flow updates it triggers are posted to the analysis executor for the next iteration.
+             */
+            scanExecutor = new CompletionExecutor(this, executorService);
+        }
+        ObjectScanner objectScanner = new AnalysisObjectScanner(this, scanExecutor);
         checkObjectGraph(objectScanner);
         objectScanner.scanBootImageHeapRoots();
 
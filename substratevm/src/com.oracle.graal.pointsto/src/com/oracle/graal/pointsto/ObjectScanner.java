@@ -29,10 +29,14 @@ import java.util.ArrayDeque;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.StreamSupport;
 
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.DebugHandlersFactory;
 import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.word.WordBase;
 
 import com.oracle.graal.pointsto.constraints.UnsupportedFeatureException;
@@ -40,22 +44,45 @@ import com.oracle.graal.pointsto.meta.AnalysisField;
 import com.oracle.graal.pointsto.meta.AnalysisMethod;
 import com.oracle.graal.pointsto.meta.AnalysisType;
 import com.oracle.graal.pointsto.util.AnalysisError;
+import com.oracle.graal.pointsto.util.CompletionExecutor;
+import com.oracle.graal.pointsto.util.CompletionExecutor.DebugContextRunnable;
 
 import jdk.vm.ci.meta.JavaConstant;
 import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.ResolvedJavaField;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 
-/** Provides functionality for scanning constant objects. */
+/**
+ * Provides functionality for scanning constant objects.
+ *
+ * The scan is sequential by default. When an executor is provided, the roots are still found on the
+ * calling thread, but each reachable object is scanned by a separate task, so the object graph is
+ * traversed by all threads of the executor. The hooks of subclasses that scan in parallel must then
+ * be thread safe.
+ */
 public abstract class ObjectScanner {
 
+    /** Number of independently locked parts of the set of scanned objects. */
+    private static final int SCANNED_OBJECTS_STRIPES = 64;
+
     protected final BigBang bb;
-    protected final Map<Object, Boolean> scannedObjects;
+    private final Map<Object, Boolean>[] scannedObjects;
     protected final Deque<WorklistEntry> worklist;
+    private final CompletionExecutor executor;
 
     public ObjectScanner(BigBang bigbang) {
+        this(bigbang, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ObjectScanner(BigBang bigbang, CompletionExecutor executor) {
         this.bb = bigbang;
-        this.scannedObjects = new IdentityHashMap<>();
+        this.executor = executor;
+        int stripes = executor == null ? 1 : SCANNED_OBJECTS_STRIPES;
+        this.scannedObjects = (Map<Object, Boolean>[]) new Map<?, ?>[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.scannedObjects[i] = new IdentityHashMap<>();
+        }
         this.worklist = new ArrayDeque<>();
     }
 
@@ -64,6 +91,14 @@ public abstract class ObjectScanner {
     }
 
     public void scanBootImageHeapRoots(Comparator<AnalysisField> fieldComparator, Comparator<AnalysisMethod> methodComparator) {
+        if (executor != null) {
+            executor.init();
+            executor.start();
+            /* Objects that were found before the start are already in the worklist. */
+            while (!worklist.isEmpty()) {
+                postScan(worklist.pop());
+            }
+        }
 
         // scan the original roots
         // the original roots are all the static fields, of object type, that were accessed
@@ -220,14 +255,43 @@ public abstract class ObjectScanner {
 
     public final void scanConstant(JavaConstant value, Object reason) {
         Object valueObj = bb.getSnippetReflectionProvider().asObject(Object.class, value);
-        if (valueObj == null || scannedObjects.containsKey(valueObj) || valueObj instanceof WordBase) {
+        if (valueObj == null || valueObj instanceof WordBase || !markScanned(valueObj)) {
             return;
         }
-        scannedObjects.put(valueObj, Boolean.TRUE);
 
         forScannedConstant(value, reason);
 
-        worklist.push(new WorklistEntry(value, reason));
+        WorklistEntry entry = new WorklistEntry(value, reason);
+        if (executor != null && executor.isStarted()) {
+            postScan(entry);
+        } else {
+            worklist.push(entry);
+        }
+    }
+
+    /** Returns true if the object was not scanned before. */
+    private boolean markScanned(Object valueObj) {
+        Map<Object, Boolean> stripe = scannedObjects[(System.identityHashCode(valueObj) & Integer.MAX_VALUE) % scannedObjects.length];
+        if (executor == null) {
+            return stripe.put(valueObj, Boolean.TRUE) == null;
+        }
+        synchronized (stripe) {
+            return stripe.put(valueObj, Boolean.TRUE) == null;
+        }
+    }
+
+    private void postScan(WorklistEntry entry) {
+        executor.execute(new DebugContextRunnable() {
+            @Override
+            public void run(DebugContext ignored) {
+                doScan(entry);
+            }
+
+            @Override
+            public DebugContext getDebug(OptionValues options, List<DebugHandlersFactory> factories) {
+                return DebugContext.DISABLED;
+            }
+        });
     }
 
     private void unsupportedFeature(String key, String message, Object entry) {
@@ -315,8 +379,17 @@ public abstract class ObjectScanner {
     }
 
     protected void finish() {
-        while (!worklist.isEmpty()) {
-            doScan(worklist.pop());
+        if (executor != null) {
+            try {
+                executor.complete();
+            } catch (InterruptedException e) {
+                throw AnalysisError.shouldNotReachHere(e);
+            }
+            executor.shutdown();
+        } else {
+            while (!worklist.isEmpty()) {
+                doScan(worklist.pop());
+            }
         }
     }
 
@@ -89,6 +89,9 @@ public class PointstoOptions {
     @Option(help = "The maximum size of type and method profiles returned by the static analysis. -1 indicates no limitation.")//
     public static final OptionKey<Integer> AnalysisSizeCutoff = new OptionKey<>(8);
 
+    @Option(help = "Scan the constant objects reachable from static fields and compiled code in parallel.")//
+    public static final OptionKey<Boolean> ScanObjectsParallel = new OptionKey<>(true);
+
     @Option(help = "Unsupported features are fatal.")//
     public static final OptionKey<Boolean> ReportUnsupportedFeaturesDuringAnalysis = new OptionKey<>(true);
 
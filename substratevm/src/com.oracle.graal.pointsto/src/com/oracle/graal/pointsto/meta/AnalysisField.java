@@ -66,6 +66,7 @@ public class AnalysisField implements ResolvedJavaField {
     private boolean isAccessed;
     private boolean isRead;
     private boolean isWritten;
+    private boolean isWrittenOutsideConstructors;
     private boolean isUsedInComparison;
     private AtomicBoolean isUnsafeAccessed;
     private AtomicBoolean unsafeFrozenTypeState;
@@ -121,6 +122,7 @@ public class AnalysisField implements ResolvedJavaField {
         this.isUnsafeAccessed = other.isUnsafeAccessed;
         this.canBeNull = other.canBeNull;
         this.isWritten = other.isWritten;
+        this.isWrittenOutsideConstructors = other.isWrittenOutsideConstructors;
         this.isRead = other.isRead;
     }
 
@@ -232,6 +234,9 @@ public class AnalysisField implements ResolvedJavaField {
      */
     public void registerAsWritten(MethodTypeFlow method) {
         isWritten = true;
+        if (method == null || !method.getMethod().isConstructor()) {
+            isWrittenOutsideConstructors = true;
+        }
         if (writtenBy != null && method != null) {
             writtenBy.put(method, Boolean.TRUE);
         }
@@ -309,6 +314,16 @@ public class AnalysisField implements ResolvedJavaField {
         return isAccessed || isWritten;
     }
 
+    /**
+     * Returns true if the field is written by a method that is not a constructor, or by an unknown
+     * method, e.g., with an unsafe access. Objects that already exist when the analysis runs are
+     * never passed to a constructor again, so for them such a field is the only kind that is
+     * written at run time.
+     */
+    public boolean isWrittenOutsideConstructors() {
+        return isAccessed || isWrittenOutsideConstructors;
+    }
+
     public void setCanBeNull(boolean canBeNull) {
         this.canBeNull = canBeNull;
     }
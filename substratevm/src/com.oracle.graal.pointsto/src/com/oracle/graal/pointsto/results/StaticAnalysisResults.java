@@ -92,6 +92,14 @@ public class StaticAnalysisResults implements ProfilingInfo {
         this.graphSize = -1;
     }
 
+    /**
+     * Constructor for subclasses that augment the results of the static analysis with information
+     * from other sources.
+     */
+    protected StaticAnalysisResults(StaticAnalysisResults original) {
+        this(original.codeSize, original.parameterTypeProfiles, original.resultTypeProfile, original.first);
+    }
+
     /**
      * Returns the type profile for the parameter with the given number, or {@code null} if no type
      * profile is available. For non-static methods, the receiver is the parameter with number 0.
@@ -146,8 +146,13 @@ public final class CompletionExecutor {
             case UNUSED:
                 throw JVMCIError.shouldNotReachHere();
             case BEFORE_START:
-                assert Thread.currentThread() == mainThread;
-                postedBeforeStart.add(command);
+                /*
+                 * Operations can be posted from other threads before the start, e.g., by a parallel
+                 * object scan that runs between two analysis iterations.
+                 */
+                synchronized (postedBeforeStart) {
+                    postedBeforeStart.add(command);
+                }
                 break;
             case STARTED:
                 postedOperations.increment();
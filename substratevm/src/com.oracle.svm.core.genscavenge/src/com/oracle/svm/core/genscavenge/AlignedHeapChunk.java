@@ -213,8 +213,8 @@ public class AlignedHeapChunk extends HeapChunk {
     static void setUpRememberedSetForObjectOfAlignedHeapChunk(AlignedHeader that, Object obj) {
         VMOperation.guaranteeInProgress("Should only be called from the collector.");
         /*
-         * There is only a remembered set maintained in the old To-Space. Testing against the Young
-         * space compiles to a test against a constant.
+         * There is only a remembered set maintained in the old To-Space. Without survivor spaces,
+         * testing against the Young space compiles to a test against a constant.
          */
         final HeapImpl heap = HeapImpl.getHeapImpl();
         if (!heap.isYoungGeneration(that.getSpace())) {
@@ -480,6 +480,13 @@ public class AlignedHeapChunk extends HeapChunk {
                     }
                 }
                 trace.newline();
+                /*
+                 * Clean the card before visiting the objects on it, so that visiting an object
+                 * that still references a young object can dirty the card again.
+                 */
+                if (clean) {
+                    CardTable.cleanEntryAtIndex(cardTableStart, index);
+                }
                 /*
                  * Iterate through the objects on that card. Find the start of the
                  * imprecisely-marked card.
@@ -511,9 +518,6 @@ public class AlignedHeapChunk extends HeapChunk {
                     }
                     ptr = objEnd;
                 }
-                if (clean) {
-                    CardTable.cleanEntryAtIndex(cardTableStart, index);
-                }
             }
         }
         trace.string("]").newline();
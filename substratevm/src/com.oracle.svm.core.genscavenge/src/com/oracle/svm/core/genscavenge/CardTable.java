@@ -100,6 +100,23 @@ public final class CardTable {
         table.writeByte(indexToTableOffset(index), (byte) DIRTY_ENTRY, CARD_REMEMBERED_SET_LOCATION);
     }
 
+    /**
+     * Dirty the card of an Object, if it has a card remembered set.
+     *
+     * This is used by the collector for Objects that still reference young Objects after they have
+     * been blackened, e.g., references to Objects in survivor spaces.
+     */
+    static void dirtyCardForObject(Object obj) {
+        final UnsignedWord header = ObjectHeader.readHeaderFromObject(obj);
+        if (ObjectHeaderImpl.hasRememberedSet(header)) {
+            if (ObjectHeaderImpl.isHeapObjectUnaligned(header)) {
+                UnalignedHeapChunk.dirtyCardForObjectOfUnalignedHeapChunk(obj);
+            } else {
+                AlignedHeapChunk.dirtyCardForObjectOfAlignedHeapChunk(obj);
+            }
+        }
+    }
+
     static boolean isDirtyEntryAtIndex(Pointer table, UnsignedWord index) {
         VMOperation.guaranteeInProgress("Should only be called from the collector.");
         return isDirtyEntryAtIndexUnchecked(table, index);
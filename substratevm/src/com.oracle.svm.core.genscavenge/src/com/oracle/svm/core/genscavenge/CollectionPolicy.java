@@ -29,11 +29,14 @@ import org.graalvm.nativeimage.Feature.FeatureAccess;
 import org.graalvm.nativeimage.Platform;
 import org.graalvm.nativeimage.Platforms;
 import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.option.HostedOptionKey;
 import com.oracle.svm.core.option.RuntimeOptionKey;
+import com.oracle.svm.core.option.XOptions;
 import com.oracle.svm.core.util.TimeUtils;
+import com.oracle.svm.core.util.UnsignedUtils;
 
 /** A collection policy to decide when to collect incrementally or completely. */
 public abstract class CollectionPolicy {
@@ -52,6 +55,12 @@ public abstract class CollectionPolicy {
          */
         @Option(help = "Percentage of time that should be spent in young generation collections.")//
         public static final RuntimeOptionKey<Integer> PercentTimeInIncrementalCollection = new RuntimeOptionKey<>(50);
+
+        @Option(help = "Goal for the pause time of incremental collections, in milliseconds, of the Adaptive collection policy.")//
+        public static final RuntimeOptionKey<Integer> AdaptivePauseTimeGoalMillis = new RuntimeOptionKey<>(50);
+
+        @Option(help = "Goal for the percentage of time spent in incremental collections of the Adaptive collection policy.")//
+        public static final RuntimeOptionKey<Integer> AdaptiveGCTimePercentGoal = new RuntimeOptionKey<>(5);
     }
 
     @Platforms(Platform.HOSTED_ONLY.class)
@@ -72,6 +81,14 @@ public abstract class CollectionPolicy {
 
     public abstract void nameToLog(Log log);
 
+    /**
+     * Called after every collection with the duration of the collection and of the mutator
+     * interval before it, so that policies can adapt to the behavior of the application.
+     */
+    void afterCollection(boolean completeCollection, long collectionNanos, long mutatorNanos) {
+        /* Nothing to do by default. */
+    }
+
     protected static GCImpl.Accounting getAccounting() {
         return HeapImpl.getHeapImpl().getGCImpl().getAccounting();
     }
@@ -297,4 +314,88 @@ public abstract class CollectionPolicy {
             return veto;
         }
     }
+
+    /**
+     * A collection policy that decides on complete collections like {@link BySpaceAndTime}, and
+     * resizes the young generation after each incremental collection to meet a pause time goal
+     * and a throughput goal. If the pause times are above
+     * {@link Options#AdaptivePauseTimeGoalMillis}, the young generation is shrunk so that fewer
+     * objects survive each collection. Otherwise, if more than
+     * {@link Options#AdaptiveGCTimePercentGoal} of the time is spent in incremental collections,
+     * the young generation is grown so that collections happen less often. An explicit `-Xmn`
+     * disables the resizing.
+     */
+    public static class Adaptive extends BySpaceAndTime {
+
+        /** The weight of the most recent collection in the averages, in percent. */
+        private static final int AVERAGE_WEIGHT_PERCENT = 25;
+        /** The maximum factor by which the young generation is resized after one collection. */
+        private static final double MAXIMUM_RESIZE_FACTOR = 2.0;
+        /** The minimum size of the young generation, in aligned chunks. */
+        private static final int MINIMUM_YOUNG_GENERATION_CHUNKS = 4;
+
+        /* Decaying averages over incremental collections. */
+        private boolean haveAverages;
+        private double averagePauseNanos;
+        private double averageGCTimeFraction;
+
+        @Override
+        public void nameToLog(Log log) {
+            log.string("adaptive: pause time goal ").signed(Options.AdaptivePauseTimeGoalMillis.getValue()).string(" msec, ")
+                            .signed(Options.AdaptiveGCTimePercentGoal.getValue()).string("% in incremental collections");
+        }
+
+        @Override
+        void afterCollection(boolean completeCollection, long collectionNanos, long mutatorNanos) {
+            final Log trace = Log.noopLog().string("[CollectionPolicy.Adaptive.afterCollection:");
+            /* Complete collections are dominated by the old generation, which does not shrink. */
+            if (completeCollection || XOptions.getXmn().getEpoch() > 0) {
+                trace.string("  no resizing]").newline();
+                return;
+            }
+            final long totalNanos = collectionNanos + mutatorNanos;
+            final double gcTimeFraction = (totalNanos > 0 ? (double) collectionNanos / totalNanos : 0.0);
+            if (haveAverages) {
+                averagePauseNanos = decayingAverage(averagePauseNanos, collectionNanos);
+                averageGCTimeFraction = decayingAverage(averageGCTimeFraction, gcTimeFraction);
+            } else {
+                averagePauseNanos = collectionNanos;
+                averageGCTimeFraction = gcTimeFraction;
+                haveAverages = true;
+            }
+
+            final double pauseGoalNanos = TimeUtils.millisToNanos(Options.AdaptivePauseTimeGoalMillis.getValue());
+            final double gcTimeFractionGoal = Options.AdaptiveGCTimePercentGoal.getValue() / 100.0;
+            double factor;
+            if (averagePauseNanos > pauseGoalNanos) {
+                factor = Math.max(pauseGoalNanos / averagePauseNanos, 1.0 / MAXIMUM_RESIZE_FACTOR);
+            } else if (averageGCTimeFraction > gcTimeFractionGoal) {
+                /* Grow only as far as the pause times allow. */
+                factor = Math.min(Math.min(averageGCTimeFraction / gcTimeFractionGoal, pauseGoalNanos / averagePauseNanos), MAXIMUM_RESIZE_FACTOR);
+            } else {
+                factor = 1.0;
+            }
+
+            final UnsignedWord oldSize = HeapPolicy.getMaximumYoungGenerationSize();
+            final UnsignedWord chunkSize = HeapPolicy.getAlignedHeapChunkSize();
+            final UnsignedWord minimumSize = chunkSize.multiply(MINIMUM_YOUNG_GENERATION_CHUNKS);
+            /* Leave room in the heap to promote the whole young generation. */
+            final UnsignedWord maximumSize = UnsignedUtils.max(HeapPolicy.getMaximumHeapSize().unsignedDivide(2), minimumSize);
+            UnsignedWord newSize = UnsignedUtils.roundDown(WordFactory.unsigned((long) (oldSize.rawValue() * factor)), chunkSize);
+            newSize = UnsignedUtils.min(UnsignedUtils.max(newSize, minimumSize), maximumSize);
+            trace.string("  averagePauseNanos: ").signed((long) averagePauseNanos)
+                            .string("  averageGCTimePercent: ").signed((long) (averageGCTimeFraction * 100))
+                            .string("  oldSize: ").unsigned(oldSize)
+                            .string("  newSize: ").unsigned(newSize);
+            if (newSize.notEqual(oldSize)) {
+                HeapPolicy.setMaximumYoungGenerationSize(newSize);
+                getAccounting().recordYoungGenerationResize(newSize.aboveThan(oldSize));
+            }
+            trace.string("]").newline();
+        }
+
+        private static double decayingAverage(double average, double sample) {
+            return (average * (100 - AVERAGE_WEIGHT_PERCENT) + sample * AVERAGE_WEIGHT_PERCENT) / 100;
+        }
+    }
 }
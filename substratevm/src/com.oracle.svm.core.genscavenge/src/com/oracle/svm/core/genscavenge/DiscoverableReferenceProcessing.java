@@ -132,6 +132,7 @@ public class DiscoverableReferenceProcessing {
             /* If the referent got forwarded, then update the referent. */
             final Pointer forwardedPointer = ObjectHeaderImpl.getObjectHeaderImpl().getForwardingPointer(refPointer);
             dr.setReferentPointer(forwardedPointer);
+            noteSurvivingReferent(dr, forwardedPointer.toObject());
             trace.string("  forwarded header: updated referent: ").hex(forwardedPointer).string("]").newline();
             return true;
         }
@@ -141,6 +142,7 @@ public class DiscoverableReferenceProcessing {
         final Object refObject = refPointer.toObject();
         if (HeapImpl.getHeapImpl().hasSurvivedThisCollection(refObject)) {
             /* The referent has survived, it does not need to be updated. */
+            noteSurvivingReferent(dr, refObject);
             trace.string("  referent will survive: not updated").string("]").newline();
             return true;
         }
@@ -156,6 +158,16 @@ public class DiscoverableReferenceProcessing {
         return false;
     }
 
+    /**
+     * If the referent stays in a survivor space of the young generation, dirty the card of the
+     * DiscoverableReference, so that it is discovered again by the next incremental collection.
+     */
+    private static void noteSurvivingReferent(DiscoverableReference dr, Object referent) {
+        if (HeapPolicyOptions.MaxSurvivorSpaces.getValue() > 0 && HeapImpl.getHeapImpl().isInYoungGeneration(referent)) {
+            CardTable.dirtyCardForObject(dr);
+        }
+    }
+
     /** Pop the first element off the discovered references list. */
     private static DiscoverableReference popDiscoveredReference() {
         final DiscoverableReference result = getDiscoveredList();
@@ -304,7 +304,9 @@ public class GCImpl implements GC {
                  * generation, so that when the scavenge of the old generation needs chunks it will
                  * find them on the free list.
                  *
+                 * The incremental scavenge must not see the kind of the previous collection.
                  */
+                completeCollection = false;
                 if (getPolicy().collectIncrementally()) {
                     scavenge(true);
                 }
@@ -318,6 +320,7 @@ public class GCImpl implements GC {
         }
 
         getAccounting().afterCollection(completeCollection, collectionTimer);
+        getPolicy().afterCollection(completeCollection, collectionTimer.getCollectedNanos(), mutatorTimer.getLastIntervalNanos());
 
         trace.string("  Verify after: ");
         try (Timer vat = verifyAfterTimer.open()) {
@@ -495,8 +498,8 @@ public class GCImpl implements GC {
     private OutOfMemoryError checkIfOutOfMemory() {
         OutOfMemoryError result = null;
         final UnsignedWord allowed = HeapPolicy.getMaximumHeapSize();
-        /* Only the old generation has objects in it because the young generation is empty. */
-        final UnsignedWord inUse = getAccounting().getOldGenerationAfterChunkBytes();
+        /* Only the old generation and the survivor spaces of the young generation have objects. */
+        final UnsignedWord inUse = getAccounting().getOldGenerationAfterChunkBytes().add(getAccounting().getSurvivorChunkBytesAfter());
         if (allowed.belowThan(inUse)) {
             result = oldGenerationSizeExceeded;
         }
@@ -556,6 +559,9 @@ public class GCImpl implements GC {
         /* Exchange the from and to Spaces. */
         swapSpaces();
 
+        /* Adapt the age at which objects are promoted to what survived this scavenge. */
+        HeapImpl.getHeapImpl().getYoungGeneration().updateTenuringThreshold();
+
         trace.string("]").newline();
     }
 
@@ -576,7 +582,7 @@ public class GCImpl implements GC {
              * Objects into each of the blackening methods, or even put them around individual
              * Object reference visits.
              */
-            prepareForPromotion();
+            prepareForPromotion(false);
 
             /*
              * Make sure all chunks with pinned objects are in toSpace, and any formerly pinned
@@ -639,7 +645,7 @@ public class GCImpl implements GC {
              * Objects into each of the blackening methods, or even put them around individual
              * Object reference visits.
              */
-            prepareForPromotion();
+            prepareForPromotion(true);
 
             /*
              * Make sure all chunks with pinned Objects are in pinned toSpace, and any released
@@ -817,8 +823,9 @@ public class GCImpl implements GC {
         trace.string("]").newline();
     }
 
-    private static void prepareForPromotion() {
+    private static void prepareForPromotion(boolean incremental) {
         final HeapImpl heap = HeapImpl.getHeapImpl();
+        heap.getYoungGeneration().prepareForPromotion(incremental);
         final OldGeneration oldGen = heap.getOldGeneration();
         oldGen.prepareForPromotion();
     }
@@ -827,9 +834,14 @@ public class GCImpl implements GC {
     private void scanGreyObjects() {
         final Log trace = Log.noopLog().string("[GCImpl.scanGreyObjects").newline();
         final HeapImpl heap = HeapImpl.getHeapImpl();
+        final YoungGeneration youngGen = heap.getYoungGeneration();
         final OldGeneration oldGen = heap.getOldGeneration();
         try (Timer sgot = scanGreyObjectsTimer.open()) {
-            oldGen.scanGreyObjects();
+            /* Scanning either generation can make objects in the other one grey. */
+            do {
+                youngGen.scanGreyObjects();
+                oldGen.scanGreyObjects();
+            } while (youngGen.hasGreyObjects());
         }
         trace.string("]").newline();
     }
@@ -855,6 +867,7 @@ public class GCImpl implements GC {
     private static void swapSpaces() {
         final Log trace = Log.noopLog().string("[GCImpl.swapSpaces:");
         final HeapImpl heap = HeapImpl.getHeapImpl();
+        heap.getYoungGeneration().swapSpaces();
         final OldGeneration oldGen = heap.getOldGeneration();
         oldGen.swapSpaces();
         trace.string("]").newline();
@@ -1153,12 +1166,15 @@ public class GCImpl implements GC {
         private UnsignedWord normalChunkBytes;
         private UnsignedWord promotedTotalChunkBytes;
         private UnsignedWord copiedTotalChunkBytes;
+        private long youngGenerationGrowCount;
+        private long youngGenerationShrinkCount;
         /* Before and after measures. */
         private UnsignedWord youngChunkBytesBefore;
         private UnsignedWord oldChunkBytesBefore;
         private UnsignedWord oldChunkBytesAfter;
         private UnsignedWord pinnedChunkBytesBefore;
         private UnsignedWord pinnedChunkBytesAfter;
+        private UnsignedWord survivorChunkBytesAfter;
         /* History of promotions and copies. */
         private int history;
         private UnsignedWord[] promotedUnpinnedChunkBytes;
@@ -1189,12 +1205,15 @@ public class GCImpl implements GC {
             this.promotedTotalChunkBytes = WordFactory.zero();
             this.collectedTotalChunkBytes = WordFactory.zero();
             this.copiedTotalChunkBytes = WordFactory.zero();
+            this.youngGenerationGrowCount = 0L;
+            this.youngGenerationShrinkCount = 0L;
             this.history = 0;
             this.youngChunkBytesBefore = WordFactory.zero();
             this.oldChunkBytesBefore = WordFactory.zero();
             this.oldChunkBytesAfter = WordFactory.zero();
             this.pinnedChunkBytesBefore = WordFactory.zero();
             this.pinnedChunkBytesAfter = WordFactory.zero();
+            this.survivorChunkBytesAfter = WordFactory.zero();
             /* Initialize histories. */
             this.promotedUnpinnedChunkBytes = historyFactory(WordFactory.zero());
             this.promotedPinnedChunkBytes = historyFactory(WordFactory.zero());
@@ -1276,6 +1295,28 @@ public class GCImpl implements GC {
             return pinnedObjectBytesAfter;
         }
 
+        /** Bytes held in the survivor spaces of the young generation. */
+        UnsignedWord getSurvivorChunkBytesAfter() {
+            return survivorChunkBytesAfter;
+        }
+
+        long getYoungGenerationGrowCount() {
+            return youngGenerationGrowCount;
+        }
+
+        long getYoungGenerationShrinkCount() {
+            return youngGenerationShrinkCount;
+        }
+
+        /** Record that a collection policy changed the size of the young generation. */
+        void recordYoungGenerationResize(boolean grow) {
+            if (grow) {
+                youngGenerationGrowCount += 1;
+            } else {
+                youngGenerationShrinkCount += 1;
+            }
+        }
+
         /** Bytes held in the old generation. */
         UnsignedWord getOldGenerationAfterChunkBytes() {
             return oldChunkBytesAfter.add(pinnedChunkBytesAfter);
@@ -1362,14 +1403,16 @@ public class GCImpl implements GC {
             /* Gather some space statistics. */
             incrementHistory();
             final HeapImpl heap = HeapImpl.getHeapImpl();
-            final Space youngSpace = heap.getYoungGeneration().getSpace();
-            youngChunkBytesBefore = youngSpace.getChunkBytes();
+            final YoungGeneration youngGen = heap.getYoungGeneration();
+            final Space youngSpace = youngGen.getSpace();
+            final UnsignedWord allocatedYoungChunkBytes = youngSpace.getChunkBytes();
+            youngChunkBytesBefore = allocatedYoungChunkBytes.add(youngGen.getSurvivorChunkBytes());
             /* This is called before the collection, so OldSpace is FromSpace. */
             final Space oldSpace = heap.getOldGeneration().getFromSpace();
             oldChunkBytesBefore = oldSpace.getChunkBytes();
             final Space pinnedSpace = heap.getOldGeneration().getPinnedFromSpace();
-            /* Objects are allocated in the young generation. */
-            normalChunkBytes = normalChunkBytes.add(youngChunkBytesBefore);
+            /* Objects are allocated in the young generation, but not in its survivor spaces. */
+            normalChunkBytes = normalChunkBytes.add(allocatedYoungChunkBytes);
             /*
              * Pinned objects are *already* flushed from the thread-local allocation buffers to
              * pinned space, so the `before` size is the previous `after` size.
@@ -1380,12 +1423,13 @@ public class GCImpl implements GC {
             pinnedChunkBytes = pinnedChunkBytes.add(allocatedPinnedChunkBytes);
             /* Keep some aggregate metrics. */
             if (SubstrateOptions.PrintGCSummary.getValue()) {
-                youngObjectBytesBefore = youngSpace.getObjectBytes();
+                final UnsignedWord allocatedYoungObjectBytes = youngSpace.getObjectBytes();
+                youngObjectBytesBefore = allocatedYoungObjectBytes.add(youngGen.getSurvivorObjectBytes());
                 oldObjectBytesBefore = oldSpace.getObjectBytes();
                 pinnedObjectBytesBefore = pinnedObjectBytesAfter;
                 final UnsignedWord allocatedPinnedObjectBytes = pinnedSpace.getObjectBytes().subtract(pinnedObjectBytesBefore);
                 pinnedObjectBytes = pinnedObjectBytes.add(allocatedPinnedObjectBytes);
-                normalObjectBytes = normalObjectBytes.add(youngObjectBytesBefore);
+                normalObjectBytes = normalObjectBytes.add(allocatedYoungObjectBytes);
             }
             trace.string("  youngChunkBytesBefore: ").unsigned(youngChunkBytesBefore)
                             .string("  oldChunkBytesBefore: ").unsigned(oldChunkBytesBefore)
@@ -1447,16 +1491,18 @@ public class GCImpl implements GC {
             oldChunkBytesAfter = oldSpace.getChunkBytes();
             final Space pinnedSpace = heap.getOldGeneration().getPinnedFromSpace();
             pinnedChunkBytesAfter = pinnedSpace.getChunkBytes();
+            final YoungGeneration youngGen = heap.getYoungGeneration();
+            survivorChunkBytesAfter = youngGen.getSurvivorChunkBytes();
             final UnsignedWord beforeChunkBytes = youngChunkBytesBefore.add(oldChunkBytesBefore).add(pinnedChunkBytesBefore);
-            final UnsignedWord afterChunkBytes = oldChunkBytesAfter.add(pinnedChunkBytesAfter);
+            final UnsignedWord afterChunkBytes = oldChunkBytesAfter.add(pinnedChunkBytesAfter).add(survivorChunkBytesAfter);
             final UnsignedWord collectedChunkBytes = beforeChunkBytes.subtract(afterChunkBytes);
             collectedTotalChunkBytes = collectedTotalChunkBytes.add(collectedChunkBytes);
             if (SubstrateOptions.PrintGCSummary.getValue()) {
-                /* The young generation is empty after the collection. */
+                /* Only the survivor spaces of the young generation are in use after the collection. */
                 pinnedObjectBytesAfter = pinnedSpace.getObjectBytes();
                 oldObjectBytesAfter = oldSpace.getObjectBytes();
                 final UnsignedWord beforeObjectBytes = youngObjectBytesBefore.add(oldObjectBytesBefore).add(pinnedObjectBytesBefore);
-                final UnsignedWord afterObjectBytes = oldObjectBytesAfter.add(pinnedObjectBytesAfter);
+                final UnsignedWord afterObjectBytes = oldObjectBytesAfter.add(pinnedObjectBytesAfter).add(youngGen.getSurvivorObjectBytes());
                 final UnsignedWord collectedObjectBytes = beforeObjectBytes.subtract(afterObjectBytes);
                 collectedTotalObjectBytes = collectedTotalObjectBytes.add(collectedObjectBytes);
             }
@@ -1677,6 +1723,13 @@ public class GCImpl implements GC {
         log.string(prefix).string("AllocatedTotalChunkBytes: ").signed(allocatedTotalChunkBytes).newline();
         log.string(prefix).string("AllocatedTotalObjectBytes: ").signed(allocatedTotalObjectBytes).newline();
 
+        /* Print how much of the allocated memory was promoted to the old generation. */
+        final UnsignedWord promotedChunkBytes = accounting.getPromotedTotalChunkBytes();
+        final long roundedPromotedPercent = (allocatedTotalChunkBytes.aboveThan(0) ? TimeUtils.roundedDivide(100 * promotedChunkBytes.rawValue(), allocatedTotalChunkBytes.rawValue()) : 0);
+        log.string(prefix).string("PromotedTotalChunkBytes: ").signed(promotedChunkBytes).newline();
+        log.string(prefix).string("PromotedPercent: ").signed(roundedPromotedPercent).newline();
+        log.string(prefix).string("TenuringThreshold: ").signed(heap.getYoungGeneration().getTenuringThreshold()).newline();
+
         /* Print the collection counts and times. */
         final long incrementalNanos = accounting.getIncrementalCollectionTotalNanos();
         log.string(prefix).string("IncrementalGCCount: ").signed(accounting.getIncrementalCollectionCount()).newline();
@@ -1727,7 +1780,7 @@ final class GarbageCollectorManagementFactory {
     }
 
     /** A GarbageCollectorMXBean for the incremental collector. */
-    private static final class IncrementalGarbageCollectorMXBean implements GarbageCollectorMXBean {
+    private static final class IncrementalGarbageCollectorMXBean implements YoungGenerationSizingMXBean {
 
         private IncrementalGarbageCollectorMXBean() {
             /* Nothing to do. */
@@ -1744,6 +1797,21 @@ final class GarbageCollectorManagementFactory {
             return TimeUtils.roundNanosToMillis(nanos);
         }
 
+        @Override
+        public long getYoungGenerationSize() {
+            return HeapPolicy.getMaximumYoungGenerationSize().rawValue();
+        }
+
+        @Override
+        public long getYoungGenerationGrowCount() {
+            return HeapImpl.getHeapImpl().getGCImpl().getAccounting().getYoungGenerationGrowCount();
+        }
+
+        @Override
+        public long getYoungGenerationShrinkCount() {
+            return HeapImpl.getHeapImpl().getGCImpl().getAccounting().getYoungGenerationShrinkCount();
+        }
+
         @Override
         public String[] getMemoryPoolNames() {
             /* Return a new array each time because arrays are not immutable. */
@@ -94,6 +94,7 @@ public class GreyToBlackObjRefVisitor implements ObjectReferenceVisitor {
             // Update the reference to point to the forwarded Object.
             final Object obj = ohi.getForwardedObject(p);
             ReferenceAccess.singleton().writeObjectAt(objRef, obj, compressed);
+            noteReferent(obj);
             trace.object(obj);
             if (trace.isEnabled()) {
                 trace.string("  objectHeader: ").string(ohi.toStringFromObject(obj)).string("]").newline();
@@ -131,10 +132,29 @@ public class GreyToBlackObjRefVisitor implements ObjectReferenceVisitor {
         } else {
             getCounters().noteUnmodifiedReference();
         }
+        noteReferent(copy);
         trace.string("]").newline();
         return true;
     }
 
+    /** Note if a referent stays in a survivor space of the young generation. */
+    @AlwaysInline("GC performance")
+    private void noteReferent(Object referent) {
+        if (HeapPolicyOptions.MaxSurvivorSpaces.getValue() > 0 && HeapImpl.getHeapImpl().isInYoungGeneration(referent)) {
+            youngReferentSeen = true;
+        }
+    }
+
+    /**
+     * Return true if a reference to an Object in the young generation has been visited since the
+     * last call, and start looking again.
+     */
+    boolean getAndResetYoungReferentSeen() {
+        final boolean result = youngReferentSeen;
+        youngReferentSeen = false;
+        return result;
+    }
+
     protected Counters getCounters() {
         return counters;
     }
@@ -161,6 +181,10 @@ public class GreyToBlackObjRefVisitor implements ObjectReferenceVisitor {
     // Immutable state.
     protected final Counters counters;
 
+    // Mutable state.
+    /** Has a reference to an Object that stays in the young generation been visited? */
+    private boolean youngReferentSeen;
+
     /** A set of counters. The default implementation is a noop. */
     public interface Counters extends AutoCloseable {
 
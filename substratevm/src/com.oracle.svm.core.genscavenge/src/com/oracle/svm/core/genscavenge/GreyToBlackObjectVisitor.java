@@ -37,7 +37,6 @@ import com.oracle.svm.core.annotate.AlwaysInline;
 import com.oracle.svm.core.annotate.RestrictHeapAccess;
 import com.oracle.svm.core.heap.NativeImageInfo;
 import com.oracle.svm.core.heap.ObjectHeader;
-import com.oracle.svm.core.heap.ObjectReferenceVisitor;
 import com.oracle.svm.core.heap.ObjectVisitor;
 import com.oracle.svm.core.hub.DynamicHub;
 import com.oracle.svm.core.hub.InteriorObjRefWalker;
@@ -48,7 +47,9 @@ import com.oracle.svm.core.snippets.KnownIntrinsics;
 
 /**
  * Run an ObjectReferenceVisitor ({@link GreyToBlackObjRefVisitor}) over any interior object
- * references in the Object, turning this Object from grey to black.
+ * references in the Object, turning this Object from grey to black. If the Object still references
+ * an Object in a survivor space afterwards, the card of the Object is dirtied, so that the next
+ * incremental collection finds the reference.
  *
  * This visitor is used during GC and so it must be constructed during native image generation.
  *
@@ -60,7 +61,7 @@ public final class GreyToBlackObjectVisitor implements ObjectVisitor {
     private final DiagnosticReporter diagnosticReporter;
 
     @Platforms(Platform.HOSTED_ONLY.class)
-    public static GreyToBlackObjectVisitor factory(final ObjectReferenceVisitor objRefVisitor) {
+    public static GreyToBlackObjectVisitor factory(final GreyToBlackObjRefVisitor objRefVisitor) {
         return new GreyToBlackObjectVisitor(objRefVisitor);
     }
 
@@ -92,13 +93,22 @@ public final class GreyToBlackObjectVisitor implements ObjectVisitor {
         }
         trace.string("[GreyToBlackObjectVisitor:").string("  o: ").object(o);
         DiscoverableReferenceProcessing.discoverDiscoverableReference(o);
-        InteriorObjRefWalker.walkObjectInline(o, objRefVisitor);
+        if (HeapPolicyOptions.MaxSurvivorSpaces.getValue() > 0) {
+            objRefVisitor.getAndResetYoungReferentSeen();
+            InteriorObjRefWalker.walkObjectInline(o, objRefVisitor);
+            if (objRefVisitor.getAndResetYoungReferentSeen()) {
+                /* The Object still references an Object in a survivor space. */
+                CardTable.dirtyCardForObject(o);
+            }
+        } else {
+            InteriorObjRefWalker.walkObjectInline(o, objRefVisitor);
+        }
         trace.string("]").newline();
         return true;
     }
 
     @Platforms(Platform.HOSTED_ONLY.class)
-    private GreyToBlackObjectVisitor(final ObjectReferenceVisitor objRefVisitor) {
+    private GreyToBlackObjectVisitor(final GreyToBlackObjRefVisitor objRefVisitor) {
         super();
         this.objRefVisitor = objRefVisitor;
         if (DiagnosticReporter.getHistoryLength() > 0) {
@@ -110,7 +120,7 @@ public final class GreyToBlackObjectVisitor implements ObjectVisitor {
     }
 
     // Immutable state.
-    private final ObjectReferenceVisitor objRefVisitor;
+    private final GreyToBlackObjRefVisitor objRefVisitor;
 
     /*
      * History.
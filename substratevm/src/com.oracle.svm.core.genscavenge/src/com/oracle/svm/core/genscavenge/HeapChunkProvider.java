@@ -41,6 +41,7 @@ import com.oracle.svm.core.genscavenge.UnalignedHeapChunk.UnalignedHeader;
 import com.oracle.svm.core.jdk.UninterruptibleUtils;
 import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.os.CommittedMemoryProvider;
+import com.oracle.svm.core.os.VirtualMemoryProvider;
 import com.oracle.svm.core.thread.VMThreads;
 import com.oracle.svm.core.util.AtomicUnsigned;
 
@@ -136,6 +137,7 @@ class HeapChunkProvider {
                 throw AllocatorOutOfMemoryError.throwError("No virtual memory for aligned chunk");
             }
             log().string("  new chunk: ").hex(result).newline();
+            adviseHugePages(result, chunkSize);
 
             initializeChunk(result, chunkSize);
             resetAlignedHeapChunk(result);
@@ -175,8 +177,15 @@ class HeapChunkProvider {
         final UnsignedWord heapChunkBytes = HeapImpl.getHeapImpl().getUsedChunkBytes();
         final UnsignedWord unusedChunkBytes = bytesInUnusedAlignedChunks.get();
         final UnsignedWord bytesInUse = heapChunkBytes.add(unusedChunkBytes);
-        /* If I am under the minimum heap size, then I can keep this chunk. */
-        final boolean result = bytesInUse.belowThan(minimumHeapSize);
+        final long maxUnusedChunkBytes = HeapPolicyOptions.MaxUnusedAlignedChunkBytes.getValue();
+        final boolean result;
+        if (maxUnusedChunkBytes >= 0) {
+            /* If the pool of unused chunks has room, then I can keep this chunk. */
+            result = unusedChunkBytes.add(HeapPolicy.getAlignedHeapChunkSize()).belowOrEqual(WordFactory.unsigned(maxUnusedChunkBytes));
+        } else {
+            /* If I am under the minimum heap size, then I can keep this chunk. */
+            result = bytesInUse.belowThan(minimumHeapSize);
+        }
         trace
                         .string("  minimumHeapSize: ").unsigned(minimumHeapSize)
                         .string("  heapChunkBytes: ").unsigned(heapChunkBytes)
@@ -187,6 +196,15 @@ class HeapChunkProvider {
         return result;
     }
 
+    /** Advise the operating system to back newly allocated chunk memory with huge pages. */
+    private static void adviseHugePages(Header<?> chunk, UnsignedWord chunkSize) {
+        if (HeapPolicyOptions.UseTransparentHugePages.getValue()) {
+            if (VirtualMemoryProvider.get().adviseHugePages(chunk, chunkSize) != 0) {
+                log().string("  huge page advice failed").newline();
+            }
+        }
+    }
+
     /** Clean a chunk before putting it on a free list. */
     private static void cleanAlignedChunk(AlignedHeader alignedChunk) {
         resetAlignedHeapChunk(alignedChunk);
@@ -280,6 +298,7 @@ class HeapChunkProvider {
         if (result.isNull()) {
             throw AllocatorOutOfMemoryError.throwError("No virtual memory for unaligned chunk");
         }
+        adviseHugePages(result, chunkSize);
 
         initializeChunk(result, chunkSize);
         resetUnalignedChunk(result);
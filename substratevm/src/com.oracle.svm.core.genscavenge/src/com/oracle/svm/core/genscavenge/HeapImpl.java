@@ -318,8 +318,14 @@ public class HeapImpl extends Heap {
     public Object promoteObject(Object original) {
         final Log trace = Log.noopLog().string("[HeapImpl.promoteObject:").string("  original: ").object(original);
 
-        final OldGeneration oldGen = getOldGeneration();
-        final Object result = oldGen.promoteObject(original);
+        final Object result;
+        if (HeapPolicyOptions.MaxSurvivorSpaces.getValue() > 0 && getObjectHeaderImpl().isAlignedObject(original)) {
+            /* Young aligned objects might be kept in a survivor space. */
+            result = getYoungGeneration().promoteAlignedObject(original);
+        } else {
+            final OldGeneration oldGen = getOldGeneration();
+            result = oldGen.promoteObject(original);
+        }
 
         trace.string("  result: ").object(result).string("]").newline();
         return result;
@@ -334,12 +340,12 @@ public class HeapImpl extends Heap {
         if (ohi.isHeapAllocated(obj)) {
             /*
              * If the object is in the heap, then check if it is in the destination part of the old
-             * generation.
+             * generation, or in a survivor space it has been copied to during this collection.
              */
             final HeapChunk.Header<?> chunk = getEnclosingHeapChunk(obj);
             final Space space = chunk.getSpace();
             final OldGeneration oldGen = getOldGeneration();
-            return ((space == oldGen.getToSpace()) || (space == oldGen.getPinnedToSpace()));
+            return ((space == oldGen.getToSpace()) || (space == oldGen.getPinnedToSpace()) || getYoungGeneration().isSurvivorToSpace(space));
         }
         return false;
     }
@@ -358,13 +364,25 @@ public class HeapImpl extends Heap {
      * against a constant because the YoungGeneration and its Space are allocated during image
      * build, so the *address* of the young generation space is a runtime constant. Compare that to
      * asking the Space for its generation: a field fetch and then comparing that against the
-     * constant getYoungGeneration().getSpace(), which is not as good.
+     * constant getYoungGeneration().getSpace(), which is not as good. Only if there are survivor
+     * spaces, the young generation consists of several spaces and I have to ask the Space.
      */
 
     public boolean isYoungGeneration(Space space) {
+        if (HeapPolicyOptions.MaxSurvivorSpaces.getValue() > 0) {
+            return (space != null) && space.isYoungSpace();
+        }
         return getYoungGeneration().isYoungSpace(space);
     }
 
+    /** Is the Object in a Space of the young generation, e.g., in a survivor space? */
+    boolean isInYoungGeneration(Object obj) {
+        if (!getObjectHeaderImpl().isHeapAllocated(obj)) {
+            return false;
+        }
+        return isYoungGeneration(getEnclosingHeapChunk(obj).getSpace());
+    }
+
     public YoungGeneration getYoungGeneration() {
         return youngGeneration;
     }
@@ -433,7 +451,8 @@ public class HeapImpl extends Heap {
 
     UnsignedWord getYoungUsedChunkBytes() {
         final Space.Accounting young = getYoungGeneration().getSpace().getAccounting();
-        return young.getAlignedChunkBytes().add(young.getUnalignedChunkBytes());
+        final UnsignedWord youngBytes = young.getAlignedChunkBytes().add(young.getUnalignedChunkBytes());
+        return youngBytes.add(getYoungGeneration().getSurvivorChunkBytes());
     }
 
     UnsignedWord getOldUsedChunkBytes() {
@@ -465,7 +484,7 @@ public class HeapImpl extends Heap {
     /** Return the size, in bytes, of the actual used memory, not the committed memory. */
     public UnsignedWord getUsedObjectBytes() {
         final Space youngSpace = getYoungGeneration().getSpace();
-        final UnsignedWord youngBytes = youngSpace.getObjectBytes();
+        final UnsignedWord youngBytes = youngSpace.getObjectBytes().add(getYoungGeneration().getSurvivorObjectBytes());
         final Space fromSpace = getOldGeneration().getFromSpace();
         final UnsignedWord fromBytes = fromSpace.getObjectBytes();
         final Space pinnedSpace = getOldGeneration().getPinnedFromSpace();
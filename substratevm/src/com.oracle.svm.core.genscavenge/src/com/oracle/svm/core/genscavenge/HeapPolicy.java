@@ -176,6 +176,18 @@ public class HeapPolicy {
         return result;
     }
 
+    private static int getMaximumSurvivorSizePercent() {
+        final int result = HeapPolicyOptions.MaximumSurvivorSizePercent.getValue();
+        VMError.guarantee((result >= 0) && (result <= 100), "MaximumSurvivorSizePercent should be in [0 ..100]");
+        return result;
+    }
+
+    static int getTargetSurvivorSizePercent() {
+        final int result = HeapPolicyOptions.TargetSurvivorSizePercent.getValue();
+        VMError.guarantee((result >= 0) && (result <= 100), "TargetSurvivorSizePercent should be in [0 ..100]");
+        return result;
+    }
+
     private static UnsignedWord getAllocationBeforePhysicalMemorySize() {
         return WordFactory.unsigned(HeapPolicyOptions.AllocationBeforePhysicalMemorySize.getValue());
     }
@@ -215,6 +227,14 @@ public class HeapPolicy {
         return youngSize;
     }
 
+    /** The maximum size of all the survivor spaces of the young generation together. */
+    static UnsignedWord getMaximumSurvivorSize() {
+        if (HeapPolicyOptions.MaxSurvivorSpaces.getValue() == 0) {
+            return WordFactory.zero();
+        }
+        return getMaximumYoungGenerationSize().unsignedDivide(100).multiply(getMaximumSurvivorSizePercent());
+    }
+
     /** Set the maximum young generation size, returning the previous value. */
     public static UnsignedWord setMaximumYoungGenerationSize(UnsignedWord value) {
         final UnsignedWord result = maximumYoungGenerationSize;
@@ -40,6 +40,15 @@ public class HeapPolicyOptions {
     @Option(help = "The maximum size of the young generation as a percent of the maximum heap size") //
     public static final RuntimeOptionKey<Integer> MaximumYoungGenerationSizePercent = new RuntimeOptionKey<>(10);
 
+    @Option(help = "The number of survivor spaces in the young generation. Objects that survive more incremental collections are promoted to the old generation. 0 promotes all objects that survive a collection.") //
+    public static final HostedOptionKey<Integer> MaxSurvivorSpaces = new HostedOptionKey<>(0);
+
+    @Option(help = "The maximum size of all survivor spaces as a percent of the maximum size of the young generation") //
+    public static final RuntimeOptionKey<Integer> MaximumSurvivorSizePercent = new RuntimeOptionKey<>(25);
+
+    @Option(help = "The percent of the maximum survivor size that should be in use after an incremental collection. The tenuring threshold is adapted to meet it.") //
+    public static final RuntimeOptionKey<Integer> TargetSurvivorSizePercent = new RuntimeOptionKey<>(50);
+
     @Option(help = "Bytes that can be allocated before asking what the physical memory size is") //
     public static final HostedOptionKey<Long> AllocationBeforePhysicalMemorySize = new HostedOptionKey<>(1L * 1024L * 1024L);
 
@@ -53,6 +62,12 @@ public class HeapPolicyOptions {
     @Option(help = "How many bytes is enough to allocate an unaligned chunk for an array?  0 implies (AlignedHeapChunkSize / 8).") //
     public static final HostedOptionKey<Long> LargeArrayThreshold = new HostedOptionKey<>(HeapPolicy.LARGE_ARRAY_THRESHOLD_SENTINEL_VALUE);
 
+    @Option(help = "Advise the operating system to back heap chunks with transparent huge pages. Most effective when AlignedHeapChunkSize is a multiple of the huge page size.") //
+    public static final RuntimeOptionKey<Boolean> UseTransparentHugePages = new RuntimeOptionKey<>(false);
+
+    @Option(help = "The maximum number of bytes in unused aligned chunks that are kept for reuse instead of being returned to the operating system. -1 keeps unused chunks while the heap is below the minimum heap size.") //
+    public static final RuntimeOptionKey<Long> MaxUnusedAlignedChunkBytes = new RuntimeOptionKey<>(-1L);
+
     /* Zapping */
 
     /* - Should chunks be zapped? */
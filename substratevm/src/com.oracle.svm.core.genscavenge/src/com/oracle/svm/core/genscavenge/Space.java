@@ -67,6 +67,12 @@ public class Space {
     /** Flag specifying if this is a young space. */
     private final boolean isYoungSpace;
 
+    /**
+     * The number of incremental collections the objects in this Space have survived: 0 for the
+     * space of new objects and for old spaces, and the age of the objects for survivor spaces.
+     */
+    private final int age;
+
     /** The name of this Space. */
     protected final String name;
 
@@ -119,11 +125,18 @@ public class Space {
      */
     @Platforms(Platform.HOSTED_ONLY.class)
     protected Space(String name, boolean isYoungSpace) {
+        this(name, isYoungSpace, 0);
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    protected Space(String name, boolean isYoungSpace, int age) {
         this.name = name;
         assert name != null : "Space name should not be null.";
+        assert age == 0 || isYoungSpace : "Only young spaces have an age.";
         this.accounting = Accounting.factory();
 
         this.isYoungSpace = isYoungSpace;
+        this.age = age;
     }
 
     /** Return all allocated virtual memory chunks to HeapChunkProvider. */
@@ -137,6 +150,10 @@ public class Space {
         return isYoungSpace;
     }
 
+    final int getAge() {
+        return age;
+    }
+
     /** Walk the Objects in this Space, passing each to a Visitor. */
     public boolean walkObjects(ObjectVisitor visitor) {
         /*
@@ -662,8 +679,10 @@ public class Space {
              * This copies words, without regard to whether they are pointers and so need to dirty
              * remembered sets, etc. That's okay, because when the dust settles, anything the copy
              * references will be in the old Space, so any card remembered sets for the object can
-             * be "clean". This writes the hub from the original over the hub installed by the
-             * allocateArray or allocateObject. That shouldn't be an issue, here.
+             * be "clean". The exception are references to objects kept in survivor spaces, for
+             * which the GreyToBlackObjectVisitor dirties the card when it blackens the copy. This
+             * writes the hub from the original over the hub installed by the allocateArray or
+             * allocateObject. That shouldn't be an issue, here.
              */
             copyMemory.writeWord(offset, originalMemory.readWord(offset));
             offset = offset.add(ConfigurationValues.getTarget().wordSize);
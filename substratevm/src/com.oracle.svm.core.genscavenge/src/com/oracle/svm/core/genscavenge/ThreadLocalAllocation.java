@@ -41,6 +41,7 @@ import org.graalvm.word.UnsignedWord;
 import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.allocationprofile.AllocationSampler;
 import com.oracle.svm.core.annotate.RestrictHeapAccess;
 import com.oracle.svm.core.annotate.Uninterruptible;
 import com.oracle.svm.core.deopt.DeoptTester;
@@ -140,14 +141,23 @@ public final class ThreadLocalAllocation {
         final Object result = slowPathNewInstanceWithoutAllocating(hub);
         /* Allow the collector to do stuff now that allocation, etc., is allowed. */
         HeapImpl.getHeapImpl().getGCImpl().possibleCollectionEpilogue(gcEpoch);
-        runSlowPathHooks();
+        runSlowPathHooks(result);
         return result;
     }
 
     /** Use the end of slow-path allocation as a place to run periodic hook code. */
-    private static void runSlowPathHooks() {
+    private static void runSlowPathHooks(Object result) {
         /* Check if the physical memory size has changed. */
         HeapPolicy.samplePhysicalMemorySize();
+        /*
+         * Every slow-path allocation either refilled the TLAB with a new aligned chunk or put a
+         * large array into its own unaligned chunk.
+         */
+        if (AllocationSampler.isEnabled()) {
+            UnsignedWord size = LayoutEncoding.getSizeFromObject(result);
+            UnsignedWord refillBytes = size.aboveOrEqual(HeapPolicy.getLargeArrayThreshold()) ? size : HeapPolicy.getAlignedHeapChunkSize();
+            AllocationSampler.sampleAllocationRefill(result, refillBytes);
+        }
     }
 
     @RestrictHeapAccess(access = RestrictHeapAccess.Access.NO_ALLOCATION, reason = "Must not allocate in the implementation of allocation.")
@@ -214,7 +224,7 @@ public final class ThreadLocalAllocation {
         final Object result = slowPathNewArrayWithoutAllocating(hub, length);
         /* Allow the collector to do stuff now that allocation, etc., is allowed. */
         HeapImpl.getHeapImpl().getGCImpl().possibleCollectionEpilogue(gcEpoch);
-        runSlowPathHooks();
+        runSlowPathHooks(result);
         return result;
     }
 
@@ -228,13 +228,14 @@ public class UnalignedHeapChunk extends HeapChunk {
             final Pointer objectsStart = getUnalignedStart(that);
             final Object obj = objectsStart.toObject();
             trace.string("  obj: ").object(obj);
+            // Clean the card before the visit, which might dirty it again.
+            if (clean) {
+                CardTable.cleanEntryAtIndex(rememberedSetStart, objectIndex);
+            }
             // Visit the object.
             if (!visitor.visitObjectInline(obj)) {
                 result = false;
             }
-            if (clean) {
-                CardTable.cleanEntryAtIndex(rememberedSetStart, objectIndex);
-            }
         }
         trace.string("  returns: ").bool(result).string("]").newline();
         return result;
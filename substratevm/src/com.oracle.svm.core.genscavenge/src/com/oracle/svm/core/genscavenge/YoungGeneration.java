@@ -27,6 +27,8 @@ package com.oracle.svm.core.genscavenge;
 import org.graalvm.nativeimage.Platform;
 import org.graalvm.nativeimage.Platforms;
 import org.graalvm.word.Pointer;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.MemoryWalker;
 import com.oracle.svm.core.annotate.Uninterruptible;
@@ -35,24 +37,60 @@ import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.util.VMError;
 
 /**
- * A Young Generation has one space, for ordinary objects.
+ * A Young Generation has one space, for ordinary objects, and optionally a number of survivor
+ * spaces.
+ *
+ * An aligned object that survives an incremental collection is copied to the survivor space for
+ * its age, rather than promoted to the old generation, until it reaches the tenuring threshold or
+ * the survivor spaces are full. There is no room in the object header to record the age of an
+ * object, so the age is the age of the survivor space the object is in. Like the old generation,
+ * each survivor space is split into a from space and a to space during a collection.
  */
 public class YoungGeneration extends Generation {
 
     // Final State.
     private final Space space;
 
+    /** The survivor spaces, indexed by the age of their objects minus one. */
+    private final Space[] survivorFromSpaces;
+    private final Space[] survivorToSpaces;
+    /** Walkers of the survivor to spaces, where there might be grey objects. */
+    private final GreyObjectsWalker[] survivorGreyObjectsWalkers;
+    private final int maxSurvivorSpaces;
+
+    // Mutable state.
+    /** The age at which objects are promoted to the old generation. */
+    private int tenuringThreshold;
+    /** The maximum size of the survivor spaces for the current collection. */
+    private UnsignedWord maxSurvivorSize;
+    /** Promote all objects to the old generation during the current collection. */
+    private boolean promoteAll;
+
     /* Constructors. */
 
     @Platforms(Platform.HOSTED_ONLY.class)
     YoungGeneration(String name) {
-        this(name, new Space("youngSpace", true));
+        this(name, new Space("youngSpace", true), HeapPolicyOptions.MaxSurvivorSpaces.getValue());
     }
 
     @Platforms(Platform.HOSTED_ONLY.class)
-    private YoungGeneration(String name, Space space) {
+    private YoungGeneration(String name, Space space, int maxSurvivorSpaces) {
         super(name);
         this.space = space;
+        VMError.guarantee(maxSurvivorSpaces >= 0, "MaxSurvivorSpaces should be non-negative");
+        this.maxSurvivorSpaces = maxSurvivorSpaces;
+        this.survivorFromSpaces = new Space[maxSurvivorSpaces];
+        this.survivorToSpaces = new Space[maxSurvivorSpaces];
+        this.survivorGreyObjectsWalkers = new GreyObjectsWalker[maxSurvivorSpaces];
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            final int age = i + 1;
+            this.survivorFromSpaces[i] = new Space("survivorFromSpace" + age, true, age);
+            this.survivorToSpaces[i] = new Space("survivorToSpace" + age, true, age);
+            this.survivorGreyObjectsWalkers[i] = GreyObjectsWalker.factory();
+        }
+        this.tenuringThreshold = maxSurvivorSpaces;
+        this.maxSurvivorSize = WordFactory.zero();
+        this.promoteAll = false;
     }
 
     /** Return all allocated virtual memory chunks to HeapChunkProvider. */
@@ -60,19 +98,42 @@ public class YoungGeneration extends Generation {
     public final void tearDown() {
         ThreadLocalAllocation.tearDown();
         space.tearDown();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            survivorFromSpaces[i].tearDown();
+            survivorToSpaces[i].tearDown();
+        }
     }
 
     @Override
     public boolean walkObjects(ObjectVisitor visitor) {
         /* Flush the thread-local allocation data. */
         ThreadLocalAllocation.disableThreadLocalAllocation();
-        return getSpace().walkObjects(visitor);
+        if (!getSpace().walkObjects(visitor)) {
+            return false;
+        }
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            if (!survivorFromSpaces[i].walkObjects(visitor)) {
+                return false;
+            }
+            if (!survivorToSpaces[i].walkObjects(visitor)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public Log report(Log log, boolean traceHeapChunks) {
         log.string("[Young generation: ").indent(true);
         getSpace().report(log, traceHeapChunks);
+        if (maxSurvivorSpaces > 0) {
+            log.newline().string("tenuringThreshold: ").signed(tenuringThreshold);
+            for (int i = 0; i < maxSurvivorSpaces; i++) {
+                log.newline();
+                survivorFromSpaces[i].report(log, traceHeapChunks).newline();
+                survivorToSpaces[i].report(log, traceHeapChunks);
+            }
+        }
         log.redent(false).string("]");
         return log;
     }
@@ -91,23 +152,151 @@ public class YoungGeneration extends Generation {
         return (getSpace() == thatSpace);
     }
 
+    /** Check if that space is a survivor space that objects are copied to during a collection. */
+    boolean isSurvivorToSpace(Space thatSpace) {
+        return thatSpace.isYoungSpace() && thatSpace.getAge() > 0 && survivorToSpaces[thatSpace.getAge() - 1] == thatSpace;
+    }
+
+    int getTenuringThreshold() {
+        return tenuringThreshold;
+    }
+
     @Override
     protected Object promoteObject(Object original) {
         throw VMError.shouldNotReachHere("Can not promote to a YoungGeneration.");
     }
 
+    /**
+     * Promote an aligned Object to the survivor space for its next age, or to the old generation if
+     * it is old enough or the survivor spaces are full.
+     */
+    Object promoteAlignedObject(Object original) {
+        assert ObjectHeaderImpl.getObjectHeaderImpl().isAlignedObject(original);
+        final Space originalSpace = AlignedHeapChunk.getEnclosingAlignedHeapChunk(original).getSpace();
+        if (!promoteAll && originalSpace != null && originalSpace.isYoungSpace()) {
+            final int age = originalSpace.getAge();
+            if (age > 0 && survivorToSpaces[age - 1] == originalSpace) {
+                /* Already copied during this collection. */
+                return original;
+            }
+            if (age < tenuringThreshold && getSurvivorToChunkBytes().belowThan(maxSurvivorSize)) {
+                return survivorToSpaces[age].promoteAlignedObject(original);
+            }
+        }
+        return HeapImpl.getHeapImpl().getOldGeneration().promoteObject(original);
+    }
+
+    /** Prepare the survivor spaces for a collection that promotes all objects if it is complete. */
+    void prepareForPromotion(boolean incremental) {
+        promoteAll = !incremental;
+        maxSurvivorSize = HeapPolicy.getMaximumSurvivorSize();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            survivorGreyObjectsWalkers[i].setScanStart(survivorToSpaces[i]);
+        }
+    }
+
+    void scanGreyObjects() {
+        final GCImpl gc = HeapImpl.getHeapImpl().getGCImpl();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            survivorGreyObjectsWalkers[i].walkGreyObjects(gc.getGreyToBlackObjectVisitor());
+        }
+    }
+
+    /** Check if there are objects in the survivor to spaces that have not been scanned yet. */
+    boolean hasGreyObjects() {
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            if (survivorGreyObjectsWalkers[i].haveGreyObjects()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     void releaseSpaces() {
         getSpace().release();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            survivorFromSpaces[i].release();
+        }
+    }
+
+    void swapSpaces() {
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            assert survivorFromSpaces[i].isEmpty() : "survivor from space should be empty.";
+            survivorFromSpaces[i].absorb(survivorToSpaces[i]);
+        }
+    }
+
+    /**
+     * Choose the tenuring threshold for the next collection: the lowest age at which the objects of
+     * that and the younger ages exceed the target size of the survivor spaces.
+     */
+    void updateTenuringThreshold() {
+        if (maxSurvivorSpaces == 0) {
+            return;
+        }
+        final UnsignedWord targetSize = HeapPolicy.getMaximumSurvivorSize().unsignedDivide(100).multiply(HeapPolicy.getTargetSurvivorSizePercent());
+        UnsignedWord cumulativeSize = WordFactory.zero();
+        int threshold = maxSurvivorSpaces;
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            cumulativeSize = cumulativeSize.add(survivorFromSpaces[i].getObjectBytes());
+            if (cumulativeSize.aboveThan(targetSize)) {
+                threshold = i + 1;
+                break;
+            }
+        }
+        tenuringThreshold = threshold;
+    }
+
+    /** Check if there are objects in the survivor spaces. */
+    boolean hasSurvivors() {
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            if (!survivorFromSpaces[i].isEmpty() || !survivorToSpaces[i].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    UnsignedWord getSurvivorChunkBytes() {
+        UnsignedWord result = getSurvivorToChunkBytes();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            result = result.add(survivorFromSpaces[i].getChunkBytes());
+        }
+        return result;
+    }
+
+    private UnsignedWord getSurvivorToChunkBytes() {
+        UnsignedWord result = WordFactory.zero();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            result = result.add(survivorToSpaces[i].getChunkBytes());
+        }
+        return result;
+    }
+
+    UnsignedWord getSurvivorObjectBytes() {
+        UnsignedWord result = WordFactory.zero();
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            result = result.add(survivorFromSpaces[i].getObjectBytes()).add(survivorToSpaces[i].getObjectBytes());
+        }
+        return result;
     }
 
     @Override
     protected boolean isValidSpace(Space thatSpace) {
-        return isYoungSpace(thatSpace);
+        if (isYoungSpace(thatSpace)) {
+            return true;
+        }
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            if (thatSpace == survivorFromSpaces[i] || thatSpace == survivorToSpaces[i]) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     protected boolean verify(final HeapVerifierImpl.Occasion occasion) {
-        // The young "generation" consists of just one space.
+        // The young "generation" consists of one space and the survivor spaces.
         boolean result = true;
         final HeapImpl heap = HeapImpl.getHeapImpl();
         final HeapVerifierImpl heapVerifier = heap.getHeapVerifierImpl();
@@ -126,6 +315,25 @@ public class YoungGeneration extends Generation {
                 heapVerifier.getWitnessLog().string("[YoungGeneration.verify:").string("  young space fails to verify").string("]").newline();
             }
         }
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            spaceVerifier.initialize(survivorFromSpaces[i]);
+            if (!spaceVerifier.verify()) {
+                result = false;
+                heapVerifier.getWitnessLog().string("[YoungGeneration.verify:").string("  survivor from space fails to verify").string("]").newline();
+            }
+            // The survivor to spaces should be empty except during a collection.
+            spaceVerifier.initialize(survivorToSpaces[i]);
+            if (!spaceVerifier.verify()) {
+                result = false;
+                heapVerifier.getWitnessLog().string("[YoungGeneration.verify:").string("  survivor to space fails to verify").string("]").newline();
+            }
+            if (!occasion.equals(HeapVerifier.Occasion.DURING_COLLECTION)) {
+                if (spaceVerifier.containsChunks()) {
+                    result = false;
+                    heapVerifier.getWitnessLog().string("[YoungGeneration.verify:").string("  survivor to space contains chunks").string("]").newline();
+                }
+            }
+        }
         return result;
     }
 
@@ -133,11 +341,24 @@ public class YoungGeneration extends Generation {
         if (HeapVerifierImpl.slowlyFindPointerInSpace(getSpace(), p, HeapVerifierImpl.ChunkLimit.top)) {
             return true;
         }
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            if (HeapVerifierImpl.slowlyFindPointerInSpace(survivorFromSpaces[i], p, HeapVerifierImpl.ChunkLimit.top)) {
+                return true;
+            }
+        }
 
         return false;
     }
 
     boolean walkHeapChunks(MemoryWalker.Visitor visitor) {
-        return getSpace().walkHeapChunks(visitor);
+        if (!getSpace().walkHeapChunks(visitor)) {
+            return false;
+        }
+        for (int i = 0; i < maxSurvivorSpaces; i++) {
+            if (!survivorFromSpaces[i].walkHeapChunks(visitor)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -72,7 +72,6 @@ import com.oracle.svm.core.meta.SharedMethod;
 import com.oracle.svm.core.meta.SubstrateObjectConstant;
 import com.oracle.svm.core.os.CommittedMemoryProvider;
 import com.oracle.svm.core.snippets.KnownIntrinsics;
-import com.oracle.svm.core.thread.VMOperation;
 import com.oracle.svm.core.util.VMError;
 
 import jdk.vm.ci.code.TargetDescription;
@@ -334,31 +333,17 @@ public class InstalledCodeBuilder {
             metaInfoAllocator.close();
         }
 
-        Throwable[] errorBox = {null};
-        VMOperation.enqueueBlockingSafepoint("Install code", () -> {
-            try {
-                CodeInfoTable.getRuntimeCodeCache().addMethod(runtimeMethodInfo);
-                /*
-                 * This call makes the new code visible, i.e., other threads can start executing it
-                 * immediately. So all metadata must be registered at this point.
-                 */
-                installedCode.setAddress(code.rawValue(), method);
-            } catch (Throwable e) {
-                errorBox[0] = e;
-            }
-        });
-        if (errorBox[0] != null) {
-            throw rethrow(errorBox[0]);
-        }
+        /* Adding the method to the code cache does not need a safepoint. */
+        CodeInfoTable.getRuntimeCodeCache().addMethod(runtimeMethodInfo);
+        /*
+         * This call makes the new code visible, i.e., other threads can start executing it
+         * immediately. So all metadata must be registered at this point.
+         */
+        installedCode.setAddress(code.rawValue(), method);
 
         compilation = null;
     }
 
-    @SuppressWarnings({"unchecked"})
-    static <E extends Throwable> RuntimeException rethrow(Throwable ex) throws E {
-        throw (E) ex;
-    }
-
     @Uninterruptible(reason = "Operates on raw pointers to objects")
     private void writeObjectConstantsToCode(ObjectConstantsHolder objectConstants) {
         boolean compressed = ReferenceAccess.singleton().haveCompressedReferences();
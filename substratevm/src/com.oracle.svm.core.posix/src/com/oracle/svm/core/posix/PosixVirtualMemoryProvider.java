@@ -24,6 +24,7 @@
  */
 package com.oracle.svm.core.posix;
 
+import static com.oracle.svm.core.posix.headers.Mman.MADV_HUGEPAGE;
 import static com.oracle.svm.core.posix.headers.Mman.MAP_ANON;
 import static com.oracle.svm.core.posix.headers.Mman.MAP_FAILED;
 import static com.oracle.svm.core.posix.headers.Mman.MAP_FIXED;
@@ -33,6 +34,7 @@ import static com.oracle.svm.core.posix.headers.Mman.PROT_EXEC;
 import static com.oracle.svm.core.posix.headers.Mman.PROT_NONE;
 import static com.oracle.svm.core.posix.headers.Mman.PROT_READ;
 import static com.oracle.svm.core.posix.headers.Mman.PROT_WRITE;
+import static com.oracle.svm.core.posix.headers.Mman.NoTransitions.madvise;
 import static com.oracle.svm.core.posix.headers.Mman.NoTransitions.mmap;
 import static com.oracle.svm.core.posix.headers.Mman.NoTransitions.mprotect;
 import static com.oracle.svm.core.posix.headers.Mman.NoTransitions.munmap;
@@ -141,6 +143,15 @@ public class PosixVirtualMemoryProvider implements VirtualMemoryProvider {
         return mprotect(start, nbytes, accessAsProt(access));
     }
 
+    @Override
+    @Uninterruptible(reason = "May be called from uninterruptible code.", mayBeInlined = true)
+    public int adviseHugePages(PointerBase start, UnsignedWord nbytes) {
+        if (Platform.includedIn(Platform.LINUX.class)) {
+            return madvise(start, nbytes, MADV_HUGEPAGE());
+        }
+        return -1;
+    }
+
     @Override
     @Uninterruptible(reason = "May be called from uninterruptible code.", mayBeInlined = true)
     public int uncommit(PointerBase start, UnsignedWord nbytes) {
@@ -208,6 +208,11 @@ public class Mman {
     @CConstant
     public static native int MADV_DONTNEED();
 
+    /** Worth backing with hugepages. */
+    @CConstant
+    @Platforms(Platform.LINUX.class)
+    public static native int MADV_HUGEPAGE();
+
     // [not present on old Linux systems]
     // /** Remove these pages and resources. */
     // @CConstant
@@ -229,10 +234,6 @@ public class Mman {
     // @CConstant
     // public static native int MADV_UNMERGEABLE();
     //
-    // /** Worth backing with hugepages. */
-    // @CConstant
-    // public static native int MADV_HUGEPAGE();
-    //
     // /** Not worth backing with hugepages. */
     // @CConstant
     // public static native int MADV_NOHUGEPAGE();
@@ -379,5 +380,8 @@ public class Mman {
 
         @CFunction(transition = Transition.NO_TRANSITION)
         public static native int mprotect(PointerBase addr, UnsignedWord len, int prot);
+
+        @CFunction(transition = Transition.NO_TRANSITION)
+        public static native int madvise(PointerBase addr, UnsignedWord len, int advice);
     }
 }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.posix.linux;
+
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_BEGIN;
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_END;
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_RELOCATABLE_BEGIN;
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_RELOCATABLE_END;
+import static com.oracle.svm.core.posix.headers.Fcntl.O_RDONLY;
+import static com.oracle.svm.core.posix.headers.UnistdNoTransitions.close;
+import static com.oracle.svm.core.posix.headers.UnistdNoTransitions.read;
+
+import org.graalvm.compiler.word.Word;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.nativeimage.StackValue;
+import org.graalvm.nativeimage.c.type.CCharPointer;
+import org.graalvm.nativeimage.c.type.WordPointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.PointerBase;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.MemoryUtil;
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.annotate.Uninterruptible;
+import com.oracle.svm.core.c.CGlobalData;
+import com.oracle.svm.core.c.CGlobalDataFactory;
+import com.oracle.svm.core.c.function.CEntryPointErrors;
+import com.oracle.svm.core.os.CopyingImageHeapProvider;
+import com.oracle.svm.core.os.ImageHeapProvider;
+import com.oracle.svm.core.os.VirtualMemoryProvider;
+import com.oracle.svm.core.os.VirtualMemoryProvider.Access;
+import com.oracle.svm.core.posix.headers.Fcntl;
+import com.oracle.svm.core.posix.headers.LibC;
+import com.oracle.svm.core.util.UnsignedUtils;
+
+@AutomaticFeature
+@Platforms(Platform.LINUX.class)
+class LinuxImageHeapProviderFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return SubstrateOptions.SpawnIsolates.getValue() && SubstrateOptions.MapImageHeapFromFile.getValue();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(ImageHeapProvider.class, new LinuxImageHeapProvider());
+    }
+}
+
+/**
+ * Creates image heap instances by mapping the image heap from the executable or shared library
+ * that contains it. The mapping is private, so the pages are shared between all isolates and
+ * processes until they are written to, at which point the kernel copies them. Only the
+ * relocatable partition, which the dynamic linker patched in memory but not in the file, is copied
+ * from the loaded image.
+ *
+ * The file and the offset of the image heap within it are found in {@code /proc/self/maps}. When
+ * that fails, for example because the file was deleted or the image heap is not page-aligned in the
+ * file, the image heap is copied like in {@link CopyingImageHeapProvider}.
+ */
+@Platforms(Platform.LINUX.class)
+public class LinuxImageHeapProvider extends CopyingImageHeapProvider {
+
+    private static final CGlobalData<CCharPointer> PROC_SELF_MAPS = CGlobalDataFactory.createCString("/proc/self/maps");
+    private static final CGlobalData<CCharPointer> DELETED_SUFFIX = CGlobalDataFactory.createCString(" (deleted)");
+
+    /** Must hold a full line of {@code /proc/self/maps}, which contains a path of up to 4096 bytes. */
+    private static final int MAPS_BUFFER_SIZE = 8 * 1024;
+
+    @Override
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    public int initialize(PointerBase begin, UnsignedWord reservedSize, WordPointer basePointer, WordPointer endPointer) {
+        Word imageHeapBegin = IMAGE_HEAP_BEGIN.get();
+        UnsignedWord imageHeapSize = IMAGE_HEAP_END.get().subtract(imageHeapBegin);
+        if (begin.isNonNull() && reservedSize.belowThan(imageHeapSize)) {
+            return CEntryPointErrors.UNSPECIFIED;
+        }
+
+        CCharPointer buffer = StackValue.get(MAPS_BUFFER_SIZE);
+        WordPointer fileOffset = StackValue.get(WordPointer.class);
+        CCharPointer path = findImageHeapFile(imageHeapBegin, buffer, fileOffset);
+        if (path.isNull() || !UnsignedUtils.isAMultiple(fileOffset.read(), VirtualMemoryProvider.get().getGranularity())) {
+            return super.initialize(begin, reservedSize, basePointer, endPointer);
+        }
+        int fd = Fcntl.NoTransitions.open(path, O_RDONLY(), 0);
+        if (fd == -1) {
+            return super.initialize(begin, reservedSize, basePointer, endPointer);
+        }
+        Pointer heap = VirtualMemoryProvider.get().mapFile(begin, imageHeapSize, WordFactory.signed(fd), fileOffset.read(), Access.READ | Access.WRITE);
+        /* The mapping stays valid after the file is closed. */
+        close(fd);
+        if (heap.isNull()) {
+            return super.initialize(begin, reservedSize, basePointer, endPointer);
+        }
+
+        /* The relocatable partition is page-aligned, so only its own pages become private. */
+        Word relocatableBegin = IMAGE_HEAP_RELOCATABLE_BEGIN.get();
+        UnsignedWord relocatableSize = IMAGE_HEAP_RELOCATABLE_END.get().subtract(relocatableBegin);
+        if (relocatableSize.aboveThan(0)) {
+            MemoryUtil.copyConjointMemoryAtomic(relocatableBegin, heap.add(relocatableBegin.subtract(imageHeapBegin)), relocatableSize);
+        }
+
+        return protectAndPublish(heap, imageHeapSize, basePointer, endPointer);
+    }
+
+    /**
+     * Searches {@code /proc/self/maps} for the mapping that contains the image heap. Returns the
+     * null-terminated path of the mapped file, which is stored in {@code buffer}, and writes the
+     * offset of the image heap within that file to {@code fileOffset}. Returns null if the mapping
+     * cannot be found or is not backed by an existing file.
+     */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static CCharPointer findImageHeapFile(Word imageHeapBegin, CCharPointer buffer, WordPointer fileOffset) {
+        int fd = Fcntl.NoTransitions.open(PROC_SELF_MAPS.get(), O_RDONLY(), 0);
+        if (fd == -1) {
+            return WordFactory.nullPointer();
+        }
+        CCharPointer result = WordFactory.nullPointer();
+        int filled = 0;
+        boolean eof = false;
+        while (true) {
+            int lineEnd = indexOf(buffer, filled, '\n');
+            if (lineEnd == -1) {
+                if (eof || filled == MAPS_BUFFER_SIZE) {
+                    /* No more lines, or a line that does not fit into the buffer. */
+                    break;
+                }
+                long count = read(fd, buffer.addressOf(filled), WordFactory.unsigned(MAPS_BUFFER_SIZE - filled)).rawValue();
+                if (count <= 0) {
+                    eof = true;
+                } else {
+                    filled += (int) count;
+                }
+                continue;
+            }
+            buffer.write(lineEnd, (byte) 0);
+            result = parseMapsLine(buffer, lineEnd, imageHeapBegin, fileOffset);
+            if (result.isNonNull()) {
+                break;
+            }
+            int remaining = filled - (lineEnd + 1);
+            LibC.memmove(buffer, buffer.addressOf(lineEnd + 1), WordFactory.unsigned(remaining));
+            filled = remaining;
+        }
+        close(fd);
+        return result;
+    }
+
+    /**
+     * Parses a line of the form {@code start-end perms offset dev inode path}. If the mapping
+     * contains the image heap, returns the path within the line and writes the file offset of the
+     * image heap.
+     */
+    @Uninterruptible(reason = "Called from uninterruptible code.")
+    private static CCharPointer parseMapsLine(CCharPointer line, int length, Word imageHeapBegin, WordPointer fileOffset) {
+        WordPointer start = StackValue.get(WordPointer.class);
+        WordPointer end = StackValue.get(WordPointer.class);
+        WordPointer offset = StackValue.get(WordPointer.class);
+
+        int i = parseHex(line, 0, start);
+        if (i == -1 || line.read(i) != '-') {
+            return WordFactory.nullPointer();
+        }
+        i = parseHex(line, i + 1, end);
+        if (i == -1 || imageHeapBegin.belowThan((UnsignedWord) start.read()) || imageHeapBegin.aboveOrEqual((UnsignedWord) end.read())) {
+            return WordFactory.nullPointer();
+        }
+        i = skipField(line, i); // perms
+        i = parseHex(line, skipSpaces(line, i), offset);
+        if (i == -1) {
+            return WordFactory.nullPointer();
+        }
+        i = skipField(line, i); // dev
+        i = skipField(line, i); // inode
+        i = skipSpaces(line, i);
+        if (line.read(i) != '/' || endsWith(line, length, DELETED_SUFFIX.get())) {
+            return WordFactory.nullPointer();
+        }
+        fileOffset.write(((UnsignedWord) offset.read()).add(imageHeapBegin.subtract((UnsignedWord) start.read())));
+        return line.addressOf(i);
+    }
+
+    @Uninterruptible(reason = "Called from uninterruptible code.", mayBeInlined = true)
+    private static int indexOf(CCharPointer buffer, int length, char c) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.read(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Uninterruptible(reason = "Called from uninterruptible code.", mayBeInlined = true)
+    private static boolean endsWith(CCharPointer line, int length, CCharPointer suffix) {
+        int suffixLength = 0;
+        while (suffix.read(suffixLength) != 0) {
+            suffixLength++;
+        }
+        if (suffixLength > length) {
+            return false;
+        }
+        for (int i = 0; i < suffixLength; i++) {
+            if (line.read(length - suffixLength + i) != suffix.read(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the index after the hexadecimal number at {@code index}, or -1 if there is none. */
+    @Uninterruptible(reason = "Called from uninterruptible code.", mayBeInlined = true)
+    private static int parseHex(CCharPointer line, int index, WordPointer value) {
+        UnsignedWord result = WordFactory.zero();
+        int i = index;
+        while (true) {
+            byte c = line.read(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else {
+                break;
+            }
+            result = result.shiftLeft(4).or(digit);
+            i++;
+        }
+        if (i == index) {
+            return -1;
+        }
+        value.write(result);
+        return i;
+    }
+
+    /** Skips the spaces at {@code index} and the field that follows them. */
+    @Uninterruptible(reason = "Called from uninterruptible code.", mayBeInlined = true)
+    private static int skipField(CCharPointer line, int index) {
+        int i = skipSpaces(line, index);
+        while (line.read(i) != ' ' && line.read(i) != 0) {
+            i++;
+        }
+        return i;
+    }
+
+    @Uninterruptible(reason = "Called from uninterruptible code.", mayBeInlined = true)
+    private static int skipSpaces(CCharPointer line, int index) {
+        int i = index;
+        while (line.read(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+}
@@ -183,6 +183,13 @@ public class WindowsVirtualMemoryProvider implements VirtualMemoryProvider {
         return (result != 0) ? 0 : -1;
     }
 
+    @Override
+    @Uninterruptible(reason = "May be called from uninterruptible code.", mayBeInlined = true)
+    public int adviseHugePages(PointerBase start, UnsignedWord nbytes) {
+        /* Large pages must be requested when committing memory and require a privilege. */
+        return -1;
+    }
+
     @Override
     @Uninterruptible(reason = "May be called from uninterruptible code.", mayBeInlined = true)
     public int uncommit(PointerBase start, UnsignedWord nbytes) {
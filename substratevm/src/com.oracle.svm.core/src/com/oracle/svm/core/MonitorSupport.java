@@ -56,6 +56,15 @@ import com.oracle.svm.core.util.VMError;
  * (and thus need a monitor) and assigns a monitor offset to point to the slot for the monitor. The
  * monitor is implemented with a {@link ReentrantLock}.
  * <p>
+ * The {@link ReentrantLock} is only allocated lazily: as long as an object with a monitor slot is
+ * locked by one thread at a time without recursion, the slot stores the owning {@link Thread}
+ * itself (a "thin lock"), which is installed and removed with a single compare-and-swap. The thin
+ * lock is inflated to a {@link ReentrantLock} when another thread contends for it, when the owner
+ * locks it recursively, or when it is used for {@link #wait()} and {@link #notify()}. Since a thin
+ * lock is never recursive, a thread other than the owner can inflate it by creating a
+ * {@link ReentrantLock} that is locked exactly once on behalf of the owner. Inflated monitors are
+ * never deflated.
+ * <p>
  * There are a few exceptions: {@link String} and {@link DynamicHub} objects never have monitor
  * fields because we want instances in the image heap to be immutable. Arrays never have monitor
  * fields because it would increase the size of every array and it is not possible to distinguish
@@ -100,6 +109,9 @@ public class MonitorSupport {
             /* Synchronization is a no-op in single threaded mode. */
             return;
         }
+        if (tryThinLock(obj)) {
+            return;
+        }
 
         ReentrantLock lockObject = null;
         try (PauseRecurringCallback prc = new PauseRecurringCallback()) {
@@ -137,6 +149,9 @@ public class MonitorSupport {
             /* Synchronization is a no-op in single threaded mode. */
             return;
         }
+        if (tryThinUnlock(obj)) {
+            return;
+        }
 
         ReentrantLock lockObject = null;
         try (PauseRecurringCallback prc = new PauseRecurringCallback()) {
@@ -157,6 +172,24 @@ public class MonitorSupport {
         }
     }
 
+    /**
+     * Fast path of {@link #monitorEnter}: installs the current thread into the empty monitor slot
+     * of the object. Fails if the object has no monitor slot or the slot is not empty.
+     */
+    private static boolean tryThinLock(Object obj) {
+        final int monitorOffset = ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset();
+        return monitorOffset != 0 && UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, null, Thread.currentThread());
+    }
+
+    /**
+     * Fast path of {@link #monitorExit}: clears the monitor slot of the object if it still contains
+     * the thin lock of the current thread. Fails if the lock has been inflated in the meantime.
+     */
+    private static boolean tryThinUnlock(Object obj) {
+        final int monitorOffset = ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset();
+        return monitorOffset != 0 && UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, Thread.currentThread(), null);
+    }
+
     private static RuntimeException shouldNotReachHere(String label, Object obj, ReentrantLock lockObject, Throwable ex) {
         StringBuilder msg = new StringBuilder();
         msg.append("Unexpected exception in MonitorSupport.").append(label);
@@ -207,13 +240,26 @@ public class MonitorSupport {
             return;
         }
 
-        Target_java_util_concurrent_locks_ReentrantLock lock = KnownIntrinsics.unsafeCast(getOrCreateMonitor(obj, true), Target_java_util_concurrent_locks_ReentrantLock.class);
-        Target_java_util_concurrent_locks_AbstractOwnableSynchronizer sync = KnownIntrinsics.unsafeCast(lock.sync, Target_java_util_concurrent_locks_AbstractOwnableSynchronizer.class);
+        final int monitorOffset = ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset();
+        if (monitorOffset != 0) {
+            final Object existingMonitor = BarrieredAccess.readObject(obj, monitorOffset);
+            if (existingMonitor instanceof Thread) {
+                /* A thin lock: the owner is stored directly in the monitor slot. */
+                BarrieredAccess.writeObject(obj, monitorOffset, thread);
+                return;
+            }
+        }
 
+        Target_java_util_concurrent_locks_AbstractOwnableSynchronizer sync = getSync(getOrCreateMonitor(obj, true));
         VMError.guarantee(sync.getExclusiveOwnerThread() != null, "Cannot patch the exclusiveOwnerThread of an object that is not locked");
         sync.setExclusiveOwnerThread(thread);
     }
 
+    private static Target_java_util_concurrent_locks_AbstractOwnableSynchronizer getSync(ReentrantLock lockObject) {
+        Target_java_util_concurrent_locks_ReentrantLock lock = KnownIntrinsics.unsafeCast(lockObject, Target_java_util_concurrent_locks_ReentrantLock.class);
+        return KnownIntrinsics.unsafeCast(lock.sync, Target_java_util_concurrent_locks_AbstractOwnableSynchronizer.class);
+    }
+
     /**
      * Implements {@link Thread#holdsLock}.
      */
@@ -229,6 +275,15 @@ public class MonitorSupport {
             return true;
         }
 
+        final int monitorOffset = ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset();
+        if (monitorOffset != 0) {
+            final Object existingMonitor = BarrieredAccess.readObject(obj, monitorOffset);
+            if (existingMonitor instanceof Thread) {
+                /* Do not inflate a thin lock just to query its owner. */
+                return existingMonitor == Thread.currentThread();
+            }
+        }
+
         ReentrantLock lockObject = getOrCreateMonitor(obj, false);
         return lockObject != null && lockObject.isHeldByCurrentThread();
 
@@ -308,23 +363,40 @@ public class MonitorSupport {
         return lockObject;
     }
 
-    /* Method is public so that white-box test cases can use it. */
+    /**
+     * Returns the {@link ReentrantLock} of the object. A thin lock is always inflated, regardless of
+     * {@code createIfNotExisting}, because the object is already locked.
+     */
     private ReentrantLock getOrCreateMonitor(Object obj, boolean createIfNotExisting) {
         final DynamicHub hub = ObjectHeader.readDynamicHubFromObject(obj);
         final int monitorOffset = hub.getMonitorOffset();
         if (monitorOffset != 0) {
             /* The common case: memory for the monitor reserved in the object. */
-            final ReentrantLock existingMonitor = KnownIntrinsics.convertUnknownValue(BarrieredAccess.readObject(obj, monitorOffset), ReentrantLock.class);
-            if (existingMonitor != null || !createIfNotExisting) {
-                return existingMonitor;
-            }
-            /* Atomically put a new lock in place of the null at the monitorOffset. */
-            final ReentrantLock newMonitor = new ReentrantLock();
-            if (UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, null, newMonitor)) {
-                return newMonitor;
+            while (true) {
+                final Object existingMonitor = BarrieredAccess.readObject(obj, monitorOffset);
+                if (existingMonitor == null && !createIfNotExisting) {
+                    return null;
+                } else if (existingMonitor != null && !(existingMonitor instanceof Thread)) {
+                    return KnownIntrinsics.convertUnknownValue(existingMonitor, ReentrantLock.class);
+                }
+                /* Atomically put a new lock in place of the null or the thin lock. */
+                final ReentrantLock newMonitor = new ReentrantLock();
+                if (existingMonitor != null) {
+                    /* Inflate the thin lock: the new lock must be held once by the same owner. */
+                    final Thread owner = (Thread) existingMonitor;
+                    newMonitor.lock();
+                    if (owner != Thread.currentThread()) {
+                        getSync(newMonitor).setExclusiveOwnerThread(owner);
+                    }
+                }
+                if (UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, existingMonitor, newMonitor)) {
+                    return newMonitor;
+                }
+                /*
+                 * We lost the race: the thin lock was released, or some other thread installed a
+                 * lock. The unpublished newMonitor is discarded, retry with the new slot value.
+                 */
             }
-            /* We lost the race, use the lock some other thread installed. */
-            return KnownIntrinsics.convertUnknownValue(BarrieredAccess.readObject(obj, monitorOffset), ReentrantLock.class);
         } else {
             /* No memory reserved for a lock in the object, fall back to our secondary storage. */
             /*
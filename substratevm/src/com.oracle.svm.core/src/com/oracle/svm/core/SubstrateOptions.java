@@ -117,6 +117,9 @@ public class SubstrateOptions {
     @Option(help = "Support multiple isolates. ")//
     public static final HostedOptionKey<Boolean> SpawnIsolates = new HostedOptionKey<>(true);
 
+    @Option(help = "When spawning isolates, map the image heap copy-on-write from the image file instead of copying it, where the platform supports it.")//
+    public static final HostedOptionKey<Boolean> MapImageHeapFromFile = new HostedOptionKey<>(false);
+
     @Option(help = "Trace VMOperation execution.")//
     public static final RuntimeOptionKey<Boolean> TraceVMOperations = new RuntimeOptionKey<>(false);
 
@@ -39,6 +39,7 @@ import org.graalvm.nativeimage.CurrentIsolate;
 import org.graalvm.nativeimage.Feature;
 import org.graalvm.nativeimage.IsolateThread;
 
+import com.oracle.svm.core.allocationprofile.AllocationSampler;
 import com.oracle.svm.core.annotate.AutomaticFeature;
 import com.oracle.svm.core.annotate.NeverInline;
 import com.oracle.svm.core.deopt.DeoptimizationSupport;
@@ -108,6 +109,10 @@ class DumpAllStacks implements SignalHandler {
             }
             log.flush();
         });
+        if (AllocationSampler.isEnabled()) {
+            /* Outside of the safepoint, because the sample table is protected by a Java lock. */
+            AllocationSampler.dumpSamples();
+        }
     }
 
     @NeverInline("catch implicit exceptions")
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.allocationprofile;
+
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.c.function.CodePointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.annotate.NeverInline;
+import com.oracle.svm.core.code.CodeInfoQueryResult;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.code.FrameInfoQueryResult;
+import com.oracle.svm.core.deopt.DeoptimizedFrame;
+import com.oracle.svm.core.jdk.RuntimeSupport;
+import com.oracle.svm.core.log.Log;
+import com.oracle.svm.core.option.RuntimeOptionKey;
+import com.oracle.svm.core.snippets.KnownIntrinsics;
+import com.oracle.svm.core.stack.JavaStackWalker;
+import com.oracle.svm.core.stack.StackFrameVisitor;
+import com.oracle.svm.core.thread.VMOperation;
+import com.oracle.svm.core.threadlocal.FastThreadLocalFactory;
+import com.oracle.svm.core.threadlocal.FastThreadLocalInt;
+import com.oracle.svm.core.threadlocal.FastThreadLocalLong;
+
+/**
+ * Low-overhead sampling of allocations. The garbage collector reports every refill of a
+ * thread-local allocation buffer together with the object that caused the refill. Whenever a
+ * thread has been given at least {@link Options#AllocationSampleInterval} bytes since its last
+ * sample, the type of that object and the instruction pointers of the top Java frames are recorded
+ * in a fixed-size table. Each sample is weighted with the number of bytes it stands for, so the
+ * resulting histogram approximates where the allocated bytes come from without instrumenting the
+ * allocation fast path.
+ *
+ * The histogram is printed at exit if requested, and together with the thread stacks when the VM
+ * inspection support receives SIGQUIT.
+ */
+public final class AllocationSampler {
+
+    public static class Options {
+        @Option(help = "Sample an allocation whenever a thread has allocated at least this many bytes since its last sample. 0 disables allocation sampling.")//
+        public static final RuntimeOptionKey<Long> AllocationSampleInterval = new RuntimeOptionKey<>(0L);
+
+        @Option(help = "Number of Java frames printed for each allocation sample")//
+        public static final RuntimeOptionKey<Integer> AllocationSampleStackDepth = new RuntimeOptionKey<>(8);
+
+        @Option(help = "Print the histogram of allocation samples when the VM exits")//
+        public static final RuntimeOptionKey<Boolean> PrintAllocationSamplesOnExit = new RuntimeOptionKey<>(false);
+    }
+
+    /** Maximum number of distinct (type, stack) pairs that are recorded. */
+    private static final int MAX_ENTRIES = 1024;
+    /** Upper bound for {@link Options#AllocationSampleStackDepth}. */
+    private static final int MAX_STACK_DEPTH = 32;
+    /**
+     * Physical frames of the allocation slow path and of the sampler itself that are recorded on
+     * top of the Java frames of the allocating method, and filtered when printing.
+     */
+    private static final int INTERNAL_FRAMES = 3;
+
+    /** Bytes handed to the current thread since its last sample. */
+    private static final FastThreadLocalLong bytesSinceSample = FastThreadLocalFactory.createLong();
+    /** Set while the current thread records a sample, to ignore allocations of the sampler. */
+    private static final FastThreadLocalInt recursionDepth = FastThreadLocalFactory.createInt();
+
+    private static final Object lock = new Object();
+    private static final SampleStackVisitor stackVisitor = new SampleStackVisitor();
+
+    /* The table is allocated lazily by the first sample, all accesses are guarded by lock. */
+    private static int stackLength;
+    private static Class<?>[] types;
+    private static long[] stacks;
+    private static long[] counts;
+    private static long[] bytes;
+    private static int usedEntries;
+    private static long droppedSamples;
+
+    private AllocationSampler() {
+    }
+
+    public static boolean isEnabled() {
+        return Options.AllocationSampleInterval.getValue() > 0;
+    }
+
+    /**
+     * Called by the garbage collector after the slow path of allocation gave the current thread
+     * {@code refillBytes} bytes of new allocation space, or allocated a large object of that size
+     * outside of the allocation buffer. Must only be called where allocation is allowed.
+     *
+     * @param object the object whose allocation required the refill
+     */
+    public static void sampleAllocationRefill(Object object, UnsignedWord refillBytes) {
+        long interval = Options.AllocationSampleInterval.getValue();
+        if (interval <= 0) {
+            return;
+        }
+        long sinceSample = bytesSinceSample.get() + refillBytes.rawValue();
+        if (sinceSample < interval) {
+            bytesSinceSample.set(sinceSample);
+            return;
+        }
+        bytesSinceSample.set(0);
+        if (recursionDepth.get() > 0 || VMOperation.isInProgress()) {
+            return;
+        }
+        recursionDepth.set(recursionDepth.get() + 1);
+        try {
+            recordSample(object.getClass(), sinceSample);
+        } finally {
+            recursionDepth.set(recursionDepth.get() - 1);
+        }
+    }
+
+    @NeverInline("Starting a stack walk in the caller frame")
+    private static void recordSample(Class<?> type, long weight) {
+        Pointer sp = KnownIntrinsics.readCallerStackPointer();
+        CodePointer ip = KnownIntrinsics.readReturnAddress();
+        synchronized (lock) {
+            if (types == null) {
+                stackLength = Math.min(Math.max(Options.AllocationSampleStackDepth.getValue(), 1), MAX_STACK_DEPTH) + INTERNAL_FRAMES;
+                types = new Class<?>[MAX_ENTRIES];
+                stacks = new long[MAX_ENTRIES * stackLength];
+                counts = new long[MAX_ENTRIES];
+                bytes = new long[MAX_ENTRIES];
+            }
+            stackVisitor.reset(stacks.length - stackLength, stackLength);
+            JavaStackWalker.walkCurrentThread(sp, ip, stackVisitor);
+
+            int entry = lookupEntry(type, stacks.length - stackLength);
+            if (entry < 0) {
+                droppedSamples++;
+                return;
+            }
+            counts[entry]++;
+            bytes[entry] += weight;
+        }
+    }
+
+    /**
+     * Open addressing over the first {@code MAX_ENTRIES - 1} entries, the last entry is the scratch
+     * space for the stack of the sample being recorded.
+     */
+    private static int lookupEntry(Class<?> type, int scratchStart) {
+        int capacity = MAX_ENTRIES - 1;
+        int hash = type.hashCode();
+        for (int i = 0; i < stackLength; i++) {
+            hash = 31 * hash + Long.hashCode(stacks[scratchStart + i]);
+        }
+        int index = (hash & 0x7fffffff) % capacity;
+        for (int probe = 0; probe < capacity; probe++) {
+            if (types[index] == null) {
+                if (usedEntries >= capacity * 3 / 4) {
+                    return -1;
+                }
+                types[index] = type;
+                System.arraycopy(stacks, scratchStart, stacks, index * stackLength, stackLength);
+                usedEntries++;
+                return index;
+            } else if (types[index] == type && sameStack(index * stackLength, scratchStart)) {
+                return index;
+            }
+            index = index + 1 == capacity ? 0 : index + 1;
+        }
+        return -1;
+    }
+
+    private static boolean sameStack(int start, int scratchStart) {
+        for (int i = 0; i < stackLength; i++) {
+            if (stacks[start + i] != stacks[scratchStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class SampleStackVisitor implements StackFrameVisitor {
+        private int next;
+        private int end;
+
+        void reset(int start, int length) {
+            next = start;
+            end = start + length;
+            for (int i = start; i < end; i++) {
+                stacks[i] = 0;
+            }
+        }
+
+        @Override
+        public boolean visitFrame(Pointer sp, CodePointer ip, DeoptimizedFrame deoptimizedFrame) {
+            stacks[next++] = ip.rawValue();
+            return next < end;
+        }
+    }
+
+    public static void dumpSamples() {
+        dumpSamples(Log.log());
+    }
+
+    /** Prints the recorded samples, sorted by the number of bytes they represent. */
+    public static void dumpSamples(Log log) {
+        synchronized (lock) {
+            recursionDepth.set(recursionDepth.get() + 1);
+            try {
+                dumpSamples0(log);
+            } finally {
+                recursionDepth.set(recursionDepth.get() - 1);
+            }
+        }
+        log.flush();
+    }
+
+    private static void dumpSamples0(Log log) {
+        log.string("Allocation samples (interval ").signed(Options.AllocationSampleInterval.getValue()).string(" bytes)").newline();
+        if (types == null) {
+            log.string("  no samples recorded").newline();
+            return;
+        }
+        int[] order = new int[usedEntries];
+        int n = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != null) {
+                order[n++] = i;
+                totalBytes += bytes[i];
+            }
+        }
+        /* Insertion sort by descending byte count, the table is small. */
+        for (int i = 1; i < n; i++) {
+            int entry = order[i];
+            int j = i - 1;
+            while (j >= 0 && bytes[order[j]] < bytes[entry]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = entry;
+        }
+
+        int depth = stackLength - INTERNAL_FRAMES;
+        for (int i = 0; i < n; i++) {
+            int entry = order[i];
+            log.string("  ").unsigned(bytes[entry]).string(" bytes  ").unsigned(counts[entry]).string(" samples  ").string(types[entry].getName()).newline();
+            logStack(log, entry * stackLength, depth);
+        }
+        log.string("  total ").unsigned(totalBytes).string(" bytes in ").signed(n).string(" entries, ").unsigned(droppedSamples).string(" samples dropped").newline();
+    }
+
+    private static void logStack(Log log, int start, int depth) {
+        int printed = 0;
+        boolean inAllocator = true;
+        for (int i = 0; i < stackLength && printed < depth; i++) {
+            long rawIP = stacks[start + i];
+            if (rawIP == 0) {
+                break;
+            }
+            CodeInfoQueryResult codeInfo = CodeInfoTable.lookupCodeInfoQueryResult(WordFactory.pointer(rawIP));
+            if (codeInfo == null) {
+                /* The code was invalidated since the sample was taken. */
+                log.string("      at ").zhex(rawIP).string(" (invalidated code)").newline();
+                printed++;
+                continue;
+            }
+            for (FrameInfoQueryResult frameInfo = codeInfo.getFrameInfo(); frameInfo != null && printed < depth; frameInfo = frameInfo.getCaller()) {
+                if (inAllocator && isAllocatorFrame(frameInfo.getSourceClass())) {
+                    continue;
+                }
+                inAllocator = false;
+                log.string("      at ");
+                frameInfo.log(log);
+                log.newline();
+                printed++;
+            }
+        }
+    }
+
+    private static boolean isAllocatorFrame(Class<?> sourceClass) {
+        /* The garbage collector implementation is not visible here, so match on the names. */
+        return sourceClass == null || sourceClass == AllocationSampler.class || sourceClass.getName().endsWith(".ThreadLocalAllocation");
+    }
+}
+
+@AutomaticFeature
+class AllocationSamplerFeature implements Feature {
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        RuntimeSupport.getRuntimeSupport().addShutdownHook(() -> {
+            if (AllocationSampler.isEnabled() && AllocationSampler.Options.PrintAllocationSamplesOnExit.getValue()) {
+                AllocationSampler.dumpSamples();
+            }
+        });
+    }
+}
@@ -25,6 +25,8 @@
 package com.oracle.svm.core.code;
 
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.graalvm.compiler.options.Option;
 import org.graalvm.nativeimage.Feature;
@@ -33,6 +35,7 @@ import org.graalvm.nativeimage.Platform;
 import org.graalvm.nativeimage.Platforms;
 import org.graalvm.nativeimage.c.function.CodePointer;
 import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.MemoryWalker;
 import com.oracle.svm.core.annotate.AutomaticFeature;
@@ -53,6 +56,9 @@ public class RuntimeCodeInfo {
     public static class Options {
         @Option(help = "Print logging information for runtime code cache modifications")//
         public static final RuntimeOptionKey<Boolean> TraceCodeCache = new RuntimeOptionKey<>(false);
+
+        @Option(help = "Maximum size in bytes of runtime compiled code. When adding a method exceeds it, the least recently used methods are invalidated. 0 means unlimited.")//
+        public static final RuntimeOptionKey<Long> MaxRuntimeCodeCacheSize = new RuntimeOptionKey<>(0L);
     }
 
     private final RingBuffer<String> recentCodeCacheOperations = new RingBuffer<>();
@@ -62,16 +68,47 @@ public class RuntimeCodeInfo {
     private final Counter lookupMethodCount = new Counter(counters, "lookupMethod", "");
     private final Counter addMethodCount = new Counter(counters, "addMethod", "");
     private final Counter invalidateMethodCount = new Counter(counters, "invalidateMethod", "");
+    private final Counter evictMethodCount = new Counter(counters, "evictMethod", "");
 
     static final String INFO_ADD = "Add";
     static final String INFO_INVALIDATE = "Invalidate";
+    static final String INFO_EVICT = "Evict";
 
     private static final int INITIAL_TABLE_SIZE = 100;
+    private static final int PENDING_TABLE_SIZE = 64;
 
     private RuntimeMethodInfo[] methodInfos;
     private int numMethods;
     private PinnedAllocator tablePin;
 
+    /**
+     * Methods that were added since the last time they were merged into {@link #methodInfos}, in
+     * the order in which they were added. Adding a method does not need a safepoint: the entry is
+     * written first and then published by incrementing {@link #numPendingMethods}, so lookups in
+     * other threads only see initialized entries. The entries are merged into the sorted table
+     * within a {@link VMOperation}, when the pending table is full or when a method is invalidated.
+     */
+    private RuntimeMethodInfo[] pendingMethodInfos;
+    private volatile int numPendingMethods;
+    private PinnedAllocator pendingTablePin;
+    /** Serializes the threads that add methods. */
+    private final ReentrantLock addMethodLock = new ReentrantLock();
+
+    /** The code size of all methods in {@link #methodInfos} and {@link #pendingMethodInfos}. */
+    private UnsignedWord codeCacheBytes = WordFactory.zero();
+    /**
+     * The clock of the {@link #evictColdMethods eviction} policy. It is advanced only by
+     * {@link #addMethod} while holding {@link #addMethodLock}, so there is no lock-free
+     * read-modify-write. A method is stamped with the current epoch when it is installed, when it is
+     * invoked (for code that {@link SubstrateInstalledCode#getLastInvocationEpoch() tracks its
+     * invocations}), and when a stack walk finds one of its frames. So the methods with the
+     * smallest stamp are those that were not used for the longest time, counted in installed
+     * methods. Methods used after the same installation have the same stamp.
+     */
+    private volatile long useEpoch;
+
+    private static final Comparator<RuntimeMethodInfo> BY_LAST_USE = Comparator.comparingLong(methodInfo -> methodInfo.lastUseEpoch);
+
     @Platforms(Platform.HOSTED_ONLY.class)
     public RuntimeCodeInfo() {
     }
@@ -82,23 +119,49 @@ public class RuntimeCodeInfo {
         for (int i = 0; i < numMethods; i++) {
             methodInfos[i].freeInstalledCode();
         }
+        for (int i = 0; i < numPendingMethods; i++) {
+            pendingMethodInfos[i].freeInstalledCode();
+        }
     }
 
     protected RuntimeMethodInfo lookupMethod(CodePointer ip) {
         lookupMethodCount.inc();
-        return lookupMethodUninterruptible(ip);
+        RuntimeMethodInfo result = lookupMethodUninterruptible(ip);
+        if (result != null) {
+            result.lastUseEpoch = useEpoch;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current {@link #useEpoch use epoch}, which runtime compiled code stores when it is
+     * invoked.
+     */
+    public long getUseEpoch() {
+        return useEpoch;
     }
 
     /**
      * Looking up a method is lock-free: it is called frequently during stack walking, so locking or
      * even a {@link VMOperation} would be too slow. The lookup must access the {@link #methodInfos}
-     * array, which is modified non-atomically when adding or removing methods. All modifications
-     * are done from within a {@link VMOperation}. Making this method {@link Uninterruptible}
-     * ensures that we see one consistent snapshot of the array, without the possibility for a
-     * concurrent modification.
+     * array, which is modified non-atomically when merging or removing methods. All these
+     * modifications are done from within a {@link VMOperation}. Making this method
+     * {@link Uninterruptible} ensures that we see one consistent snapshot of the array, without the
+     * possibility for a concurrent modification. Recently added methods are found in the
+     * {@link #pendingMethodInfos pending table}, which is only ever appended to outside of a
+     * {@link VMOperation}.
      */
     @Uninterruptible(reason = "methodInfos is accessed without holding a lock, so must not be interrupted by a safepoint that can add/remove code")
     private RuntimeMethodInfo lookupMethodUninterruptible(CodePointer ip) {
+        RuntimeMethodInfo result = lookupSortedMethod(ip);
+        if (result == null) {
+            result = lookupPendingMethod(ip);
+        }
+        return result;
+    }
+
+    @Uninterruptible(reason = "called from uninterruptible code")
+    private RuntimeMethodInfo lookupSortedMethod(CodePointer ip) {
         assert verifyTable();
         if (numMethods == 0) {
             return null;
@@ -127,6 +190,20 @@ public class RuntimeCodeInfo {
         return methodInfo;
     }
 
+    @Uninterruptible(reason = "called from uninterruptible code")
+    private RuntimeMethodInfo lookupPendingMethod(CodePointer ip) {
+        /* Read the count first: all entries below it are initialized. */
+        int count = numPendingMethods;
+        for (int i = 0; i < count; i++) {
+            RuntimeMethodInfo methodInfo = pendingMethodInfos[i];
+            if (((UnsignedWord) ip).aboveOrEqual((UnsignedWord) methodInfo.getCodeStart()) &&
+                            ((UnsignedWord) ip).subtract((UnsignedWord) methodInfo.getCodeStart()).belowThan(methodInfo.getCodeSize())) {
+                return methodInfo;
+            }
+        }
+        return null;
+    }
+
     /* Copied and adapted from Arrays.binarySearch. */
     @Uninterruptible(reason = "called from uninterruptible code")
     private static int binarySearch(RuntimeMethodInfo[] a, int fromIndex, int toIndex, CodePointer key) {
@@ -148,24 +225,118 @@ public class RuntimeCodeInfo {
         return -(low + 1);  // key not found.
     }
 
+    /**
+     * Adds a method to the pending table without a safepoint. Only when the pending table is full,
+     * a {@link VMOperation} merges it into the sorted table first. When the method does not fit
+     * into the {@link Options#MaxRuntimeCodeCacheSize code cache budget}, a {@link VMOperation}
+     * evicts cold methods first.
+     */
     public void addMethod(RuntimeMethodInfo methodInfo) {
-        VMOperation.enqueueBlockingSafepoint("AddMethod", () -> {
+        addMethodLock.lock();
+        try {
+            long maxCodeCacheSize = Options.MaxRuntimeCodeCacheSize.getValue();
+            if (maxCodeCacheSize > 0 && codeCacheBytes.add(methodInfo.getCodeSize()).aboveThan(WordFactory.unsigned(maxCodeCacheSize))) {
+                VMOperation.enqueueBlockingSafepoint("EvictColdMethods", () -> evictColdMethods(methodInfo.getCodeSize(), WordFactory.unsigned(maxCodeCacheSize)));
+            }
+            if (pendingMethodInfos == null || numPendingMethods == pendingMethodInfos.length) {
+                VMOperation.enqueueBlockingSafepoint("MergePendingMethods", this::mergePendingMethods);
+            }
             InstalledCodeObserverSupport.activateObservers(methodInfo.codeObserverHandles);
             long num = logMethodOperation(methodInfo, INFO_ADD);
-            addMethodOperation(methodInfo);
+            addMethodCount.inc();
+            /* Only the thread holding addMethodLock writes useEpoch, so no increment is lost. */
+            useEpoch = useEpoch + 1;
+            methodInfo.lastUseEpoch = useEpoch;
+            if (Options.TraceCodeCache.getValue()) {
+                Log.log().string("[" + INFO_ADD + " method: ");
+                logMethod(Log.log(), methodInfo);
+                Log.log().string("]").newline();
+            }
+            addPendingMethod(methodInfo);
             logMethodOperationEnd(num);
-        });
+        } finally {
+            addMethodLock.unlock();
+        }
     }
 
-    private void addMethodOperation(RuntimeMethodInfo methodInfo) {
+    /**
+     * Appends to the pending table. Only one thread adds methods at a time, and being
+     * {@link Uninterruptible} ensures that the pending table is not merged concurrently.
+     */
+    @Uninterruptible(reason = "pendingMethodInfos must not be merged by a safepoint while it is appended to")
+    private void addPendingMethod(RuntimeMethodInfo methodInfo) {
+        int count = numPendingMethods;
+        assert count < pendingMethodInfos.length : "pending table must have room";
+        pendingMethodInfos[count] = methodInfo;
+        /* Publish the entry only after it has been written. */
+        numPendingMethods = count + 1;
+        codeCacheBytes = codeCacheBytes.add(methodInfo.getCodeSize());
+    }
+
+    /**
+     * Invalidates the least recently used methods until the code cache has room for the given
+     * number of bytes. Invalidated methods are no longer invokable, so their callers fall back to
+     * the interpreter (or, for Truffle, to the interpreted call target) until the method is
+     * compiled again. A method larger than the whole budget evicts all other methods and is still
+     * installed. The methods are sorted by their last {@link #useEpoch use} once, so evicting many
+     * methods does not scan the table for each of them.
+     */
+    private void evictColdMethods(UnsignedWord requiredBytes, UnsignedWord maxCodeCacheSize) {
         VMOperation.guaranteeInProgress("Modifying code tables that are used by the GC");
-        addMethodCount.inc();
+        /* Only the sorted table supports removal. */
+        mergePendingMethods();
         assert verifyTable();
-        if (Options.TraceCodeCache.getValue()) {
-            Log.log().string("[" + INFO_ADD + " method: ");
-            logMethod(Log.log(), methodInfo);
-            Log.log().string("]").newline();
+        if (numMethods == 0 || codeCacheBytes.add(requiredBytes).belowOrEqual(maxCodeCacheSize)) {
+            return;
+        }
+        for (int i = 0; i < numMethods; i++) {
+            RuntimeMethodInfo methodInfo = methodInfos[i];
+            SubstrateInstalledCode installedCode = methodInfo.installedCode.get();
+            if (installedCode != null) {
+                methodInfo.lastUseEpoch = Math.max(methodInfo.lastUseEpoch, installedCode.getLastInvocationEpoch());
+            }
+        }
+        /* removeMethod compacts methodInfos, so iterate over a copy. */
+        RuntimeMethodInfo[] byLastUse = Arrays.copyOf(methodInfos, numMethods);
+        Arrays.sort(byLastUse, BY_LAST_USE);
+        for (int i = 0; i < byLastUse.length && codeCacheBytes.add(requiredBytes).aboveThan(maxCodeCacheSize); i++) {
+            RuntimeMethodInfo coldest = byLastUse[i];
+            long num = logMethodOperation(coldest, INFO_EVICT);
+            evictMethodCount.inc();
+            if (Options.TraceCodeCache.getValue()) {
+                Log.log().string("[" + INFO_EVICT + " method: ");
+                logMethod(Log.log(), coldest);
+                Log.log().string("  lastUse: ").signed(coldest.lastUseEpoch).string(" of ").signed(useEpoch).string("]").newline();
+            }
+            removeMethod(coldest);
+            logMethodOperationEnd(num);
+        }
+    }
+
+    /** Moves the methods of the pending table into the sorted table, or allocates it first. */
+    private void mergePendingMethods() {
+        VMOperation.guaranteeInProgress("Modifying code tables that are used by the GC");
+        if (pendingMethodInfos == null) {
+            pendingTablePin = Heap.getHeap().createPinnedAllocator();
+            pendingTablePin.open();
+            pendingMethodInfos = (RuntimeMethodInfo[]) pendingTablePin.newArray(RuntimeMethodInfo.class, PENDING_TABLE_SIZE);
+            pendingTablePin.close();
+            return;
+        }
+        /*
+         * Remove each entry from the pending table only after it has been inserted into the sorted
+         * table, so that a GC triggered by enlarging the sorted table still finds it.
+         */
+        for (int i = numPendingMethods - 1; i >= 0; i--) {
+            insertMethod(pendingMethodInfos[i]);
+            numPendingMethods = i;
+            pendingMethodInfos[i] = null;
         }
+    }
+
+    private void insertMethod(RuntimeMethodInfo methodInfo) {
+        VMOperation.guaranteeInProgress("Modifying code tables that are used by the GC");
+        assert verifyTable();
 
         if (methodInfos == null || numMethods >= methodInfos.length) {
             enlargeTable();
@@ -223,13 +394,23 @@ public class RuntimeCodeInfo {
     protected void invalidateMethod(RuntimeMethodInfo methodInfo) {
         VMOperation.guaranteeInProgress("Modifying code tables that are used by the GC");
         invalidateMethodCount.inc();
+        /* Only the sorted table supports removal. */
+        mergePendingMethods();
         assert verifyTable();
         if (Options.TraceCodeCache.getValue()) {
             Log.log().string("[" + INFO_INVALIDATE + " method: ");
             logMethod(Log.log(), methodInfo);
             Log.log().string("]").newline();
         }
+        removeMethod(methodInfo);
+    }
 
+    /**
+     * Makes the method non-entrant, deoptimizes its frames and frees its code and metadata. Shared
+     * by {@link #invalidateMethod invalidation} and {@link #evictColdMethods eviction}, which do
+     * their own counting and logging. The pending methods must already be merged.
+     */
+    private void removeMethod(RuntimeMethodInfo methodInfo) {
         SubstrateInstalledCode installedCode = methodInfo.installedCode.get();
         if (installedCode != null) {
             assert !installedCode.isValid() || methodInfo.getCodeStart().rawValue() == installedCode.getAddress();
@@ -259,6 +440,7 @@ public class RuntimeCodeInfo {
         System.arraycopy(methodInfos, idx + 1, methodInfos, idx, numMethods - (idx + 1));
         numMethods--;
         methodInfos[numMethods] = null;
+        codeCacheBytes = codeCacheBytes.subtract(methodInfo.getCodeSize());
 
         Heap.getHeap().getGC().unregisterObjectReferenceWalker(methodInfo.constantsWalker);
 
@@ -323,11 +505,16 @@ public class RuntimeCodeInfo {
     }
 
     public void logTable(Log log) {
-        log.string("== [RuntimeCodeCache: ").signed(numMethods).string(" methods");
+        int pendingCount = numPendingMethods;
+        log.string("== [RuntimeCodeCache: ").signed(numMethods).string(" methods, ").signed(pendingCount).string(" pending methods, ").unsigned(codeCacheBytes).string(" bytes");
         for (int i = 0; i < numMethods; i++) {
             log.newline().hex(methodInfos[i].getCodeStart()).string("  ");
             logMethod(log, methodInfos[i]);
         }
+        for (int i = 0; i < pendingCount; i++) {
+            log.newline().hex(pendingMethodInfos[i].getCodeStart()).string("  (pending)  ");
+            logMethod(log, pendingMethodInfos[i]);
+        }
         log.string("]").newline();
     }
 
@@ -365,6 +552,9 @@ public class RuntimeCodeInfo {
         for (int i = 0; (continueVisiting && (i < numMethods)); i += 1) {
             continueVisiting = visitor.visitRuntimeCompiledMethod(methodInfos[i], ImageSingletons.lookup(RuntimeCodeInfo.MemoryWalkerAccessImpl.class));
         }
+        for (int i = 0; (continueVisiting && (i < numPendingMethods)); i += 1) {
+            continueVisiting = visitor.visitRuntimeCompiledMethod(pendingMethodInfos[i], ImageSingletons.lookup(RuntimeCodeInfo.MemoryWalkerAccessImpl.class));
+        }
         return continueVisiting;
     }
 
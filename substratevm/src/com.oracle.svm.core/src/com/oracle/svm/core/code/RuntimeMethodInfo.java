@@ -95,6 +95,13 @@ public final class RuntimeMethodInfo extends AbstractCodeInfo {
 
     protected InstalledCodeObserver.InstalledCodeObserverHandle[] codeObserverHandles;
 
+    /**
+     * The {@link RuntimeCodeInfo#getUseEpoch() use epoch} of the last time this method was
+     * installed, invoked or found on the stack. Methods with the smallest value are evicted first
+     * when the runtime code cache is full.
+     */
+    protected long lastUseEpoch;
+
     private RuntimeMethodInfo() {
         throw shouldNotReachHere("Must be allocated with PinnedAllocator");
     }
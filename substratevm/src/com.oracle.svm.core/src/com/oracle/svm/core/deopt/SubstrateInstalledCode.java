@@ -24,6 +24,8 @@
  */
 package com.oracle.svm.core.deopt;
 
+import com.oracle.svm.core.code.RuntimeCodeInfo;
+
 import jdk.vm.ci.code.CodeCacheProvider;
 import jdk.vm.ci.code.InstalledCode;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
@@ -44,6 +46,15 @@ public interface SubstrateInstalledCode {
 
     SubstrateSpeculationLog getSpeculationLog();
 
+    /**
+     * Returns the {@link RuntimeCodeInfo#getUseEpoch() use epoch} of the last invocation of this
+     * code, or 0 if invocations are not tracked. Code that does not track its invocations is only
+     * considered used when it is installed or found on the stack.
+     */
+    default long getLastInvocationEpoch() {
+        return 0;
+    }
+
     /**
      * Provides access to a {@link SubstrateInstalledCode}.
      *
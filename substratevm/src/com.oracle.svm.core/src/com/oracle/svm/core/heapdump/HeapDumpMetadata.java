@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.heapdump;
+
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+
+import com.oracle.svm.core.VMInspection;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.annotate.UnknownObjectField;
+import com.oracle.svm.core.hub.DynamicHub;
+
+/**
+ * Field names, types and locations of all types in the image, which are needed to write a heap dump
+ * but are not otherwise available at run time. The data is collected after static analysis, when
+ * the final field locations are known.
+ * <p>
+ * For each type with fields, {@link #typeStarts} contains the index of its entry in
+ * {@link #fieldInfos}. An entry consists of the number of declared instance fields, followed by the
+ * name index, HPROF basic type and location of each of these fields, followed by the same
+ * information for the static fields. Static fields that are constant folded and therefore have no
+ * location are omitted. Name indices refer to {@link #fieldNames}.
+ */
+public final class HeapDumpMetadata {
+
+    /** {@link #typeStarts} value of types that have no fields. */
+    static final int NO_FIELDS = -1;
+
+    @UnknownObjectField(types = {int[].class}) private int[] typeStarts;
+    @UnknownObjectField(types = {int[].class}) private int[] fieldInfos;
+    @UnknownObjectField(types = {String[].class}) private String[] fieldNames;
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    HeapDumpMetadata() {
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public void setData(int[] newTypeStarts, int[] newFieldInfos, String[] newFieldNames) {
+        this.typeStarts = newTypeStarts;
+        this.fieldInfos = newFieldInfos;
+        this.fieldNames = newFieldNames;
+    }
+
+    static HeapDumpMetadata singleton() {
+        return ImageSingletons.lookup(HeapDumpMetadata.class);
+    }
+
+    int getTypeStart(DynamicHub hub) {
+        int typeId = hub.getTypeID();
+        return typeId < typeStarts.length ? typeStarts[typeId] : NO_FIELDS;
+    }
+
+    int getFieldInfo(int index) {
+        return fieldInfos[index];
+    }
+
+    int getFieldNameCount() {
+        return fieldNames.length;
+    }
+
+    String getFieldName(int index) {
+        return fieldNames[index];
+    }
+}
+
+@AutomaticFeature
+class HeapDumpMetadataFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return VMInspection.isEnabled();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(HeapDumpMetadata.class, new HeapDumpMetadata());
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.heapdump;
+
+import org.graalvm.compiler.word.ObjectAccess;
+import org.graalvm.compiler.word.Word;
+import org.graalvm.nativeimage.CurrentIsolate;
+import org.graalvm.nativeimage.IsolateThread;
+import org.graalvm.nativeimage.UnmanagedMemory;
+import org.graalvm.nativeimage.c.function.CodePointer;
+import org.graalvm.nativeimage.c.type.CCharPointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.MemoryUtil;
+import com.oracle.svm.core.StaticFieldsSupport;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.deopt.DeoptimizedFrame;
+import com.oracle.svm.core.heap.Heap;
+import com.oracle.svm.core.heap.ObjectReferenceVisitor;
+import com.oracle.svm.core.heap.ObjectVisitor;
+import com.oracle.svm.core.heap.ReferenceAccess;
+import com.oracle.svm.core.hub.DynamicHub;
+import com.oracle.svm.core.hub.LayoutEncoding;
+import com.oracle.svm.core.snippets.KnownIntrinsics;
+import com.oracle.svm.core.stack.JavaStackWalker;
+import com.oracle.svm.core.stack.StackFrameVisitor;
+import com.oracle.svm.core.thread.VMOperation;
+import com.oracle.svm.core.thread.VMThreads;
+
+/**
+ * Writes a heap dump in the HPROF binary format (version 1.0.2) that is understood by the usual
+ * heap analysis tools.
+ * <p>
+ * The whole dump is written in a single safepoint, so that object addresses can be used as object
+ * identifiers and no object moves while it is written. Writing must not allocate: records are
+ * assembled in a buffer in native memory that is passed to {@link #writeToFile} whenever it is
+ * full. Heap dump sub-records are grouped into segments that fit into the buffer, so that the
+ * length of a segment can be patched before it is written. A sub-record that is too large for the
+ * buffer, i.e., a large array, gets a segment of its own whose length is known up front, and the
+ * contents of byte arrays are written directly from the heap without copying.
+ * <p>
+ * Field names, types and locations come from {@link HeapDumpMetadata}. The GC roots that are
+ * reported are all classes, including their static fields, and the references in the Java frames
+ * of all other threads.
+ */
+public abstract class HeapDumpWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int ID_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 1 + 4 + 4;
+    private static final long MAX_RECORD_LENGTH = 0xFFFFFFFFL;
+    /** The stack trace serial number of the single empty stack trace we write. */
+    private static final int STACK_TRACE_SERIAL = 1;
+
+    /* Top-level record tags. */
+    private static final int HPROF_UTF8 = 0x01;
+    private static final int HPROF_LOAD_CLASS = 0x02;
+    private static final int HPROF_TRACE = 0x05;
+    private static final int HPROF_HEAP_DUMP_SEGMENT = 0x1C;
+    private static final int HPROF_HEAP_DUMP_END = 0x2C;
+
+    /* Heap dump sub-record tags. */
+    private static final int HPROF_GC_ROOT_JAVA_FRAME = 0x03;
+    private static final int HPROF_GC_ROOT_STICKY_CLASS = 0x05;
+    private static final int HPROF_GC_CLASS_DUMP = 0x20;
+    private static final int HPROF_GC_INSTANCE_DUMP = 0x21;
+    private static final int HPROF_GC_OBJ_ARRAY_DUMP = 0x22;
+    private static final int HPROF_GC_PRIM_ARRAY_DUMP = 0x23;
+
+    /* Basic types, as used in the field information of HeapDumpMetadata. */
+    public static final int T_OBJECT = 2;
+    public static final int T_BOOLEAN = 4;
+    public static final int T_CHAR = 5;
+    public static final int T_FLOAT = 6;
+    public static final int T_DOUBLE = 7;
+    public static final int T_BYTE = 8;
+    public static final int T_SHORT = 9;
+    public static final int T_INT = 10;
+    public static final int T_LONG = 11;
+
+    private final LoadClassVisitor loadClassVisitor = new LoadClassVisitor();
+    private final ClassDumpVisitor classDumpVisitor = new ClassDumpVisitor();
+    private final StackRootVisitor stackRootVisitor = new StackRootVisitor();
+    private final FrameReferenceVisitor frameReferenceVisitor = new FrameReferenceVisitor();
+    private final ObjectDumpVisitor objectDumpVisitor = new ObjectDumpVisitor();
+
+    private Pointer buffer;
+    private int position;
+    /** Buffer position of the header of the open heap dump segment, or -1. */
+    private int segmentStart;
+    private int classSerial;
+    private boolean failed;
+
+    /**
+     * Writes the given bytes to the heap dump file. Called during a safepoint, so implementations
+     * must not allocate.
+     *
+     * @return false if the bytes could not be written.
+     */
+    protected abstract boolean writeToFile(CCharPointer bytes, UnsignedWord length);
+
+    /**
+     * Writes a heap dump of the whole heap. Blocks until the dump is complete.
+     *
+     * @return true if the dump was written successfully.
+     */
+    public boolean dumpHeap() {
+        buffer = UnmanagedMemory.malloc(BUFFER_SIZE);
+        position = 0;
+        segmentStart = -1;
+        classSerial = 0;
+        failed = false;
+        try {
+            VMOperation.enqueueBlockingSafepoint("HeapDump", this::writeHeapDump);
+        } finally {
+            UnmanagedMemory.free(buffer);
+            buffer = WordFactory.nullPointer();
+        }
+        return !failed;
+    }
+
+    private void writeHeapDump() {
+        writeHeader();
+        writeFieldNames();
+        writeRecordHeader(HPROF_TRACE, 4 + 4 + 4);
+        putU4(STACK_TRACE_SERIAL);
+        putU4(0);
+        putU4(0);
+        Heap.getHeap().walkObjects(loadClassVisitor);
+
+        Heap.getHeap().walkObjects(classDumpVisitor);
+        for (IsolateThread vmThread = VMThreads.firstThread(); VMThreads.isNonNullThread(vmThread) && !failed; vmThread = VMThreads.nextThread(vmThread)) {
+            if (vmThread != CurrentIsolate.getCurrentThread()) {
+                JavaStackWalker.walkThread(vmThread, stackRootVisitor);
+            }
+        }
+        Heap.getHeap().walkObjects(objectDumpVisitor);
+        closeSegment();
+
+        writeRecordHeader(HPROF_HEAP_DUMP_END, 0);
+        flush();
+    }
+
+    private void writeHeader() {
+        String format = "JAVA PROFILE 1.0.2";
+        for (int i = 0; i < format.length(); i++) {
+            putU1(format.charAt(i));
+        }
+        putU1(0);
+        putU4(ID_SIZE);
+        putU8(System.currentTimeMillis());
+    }
+
+    private void writeFieldNames() {
+        HeapDumpMetadata metadata = HeapDumpMetadata.singleton();
+        for (int i = 0; i < metadata.getFieldNameCount(); i++) {
+            writeUTF8Record(metadata.getFieldName(i), false);
+        }
+    }
+
+    private void writeUTF8Record(String string, boolean className) {
+        long length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            length += utf8Length(string.charAt(i));
+        }
+        writeRecordHeader(HPROF_UTF8, ID_SIZE + length);
+        putId(string);
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (className && c == '.') {
+                c = '/';
+            }
+            putUTF8(c);
+        }
+    }
+
+    private static int utf8Length(char c) {
+        if (c >= 0x0001 && c <= 0x007F) {
+            return 1;
+        } else if (c <= 0x07FF) {
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+
+    /** Modified UTF-8, like {@link java.io.DataOutput#writeUTF}. */
+    private void putUTF8(char c) {
+        if (c >= 0x0001 && c <= 0x007F) {
+            putU1(c);
+        } else if (c <= 0x07FF) {
+            putU1(0xC0 | ((c >> 6) & 0x1F));
+            putU1(0x80 | (c & 0x3F));
+        } else {
+            putU1(0xE0 | ((c >> 12) & 0x0F));
+            putU1(0x80 | ((c >> 6) & 0x3F));
+            putU1(0x80 | (c & 0x3F));
+        }
+    }
+
+    private final class LoadClassVisitor implements ObjectVisitor {
+        @Override
+        public boolean visitObject(Object o) {
+            if (o instanceof DynamicHub) {
+                DynamicHub hub = (DynamicHub) o;
+                writeUTF8Record(hub.getName(), true);
+                writeRecordHeader(HPROF_LOAD_CLASS, 4 + ID_SIZE + 4 + ID_SIZE);
+                putU4(++classSerial);
+                putId(hub);
+                putU4(STACK_TRACE_SERIAL);
+                putId(hub.getName());
+            }
+            return !failed;
+        }
+    }
+
+    private final class ClassDumpVisitor implements ObjectVisitor {
+        @Override
+        public boolean visitObject(Object o) {
+            if (o instanceof DynamicHub) {
+                writeClassDump((DynamicHub) o);
+            }
+            return !failed;
+        }
+    }
+
+    private void writeClassDump(DynamicHub hub) {
+        beginSubRecord(1 + ID_SIZE);
+        putU1(HPROF_GC_ROOT_STICKY_CLASS);
+        putId(hub);
+
+        HeapDumpMetadata metadata = HeapDumpMetadata.singleton();
+        int instanceStart = metadata.getTypeStart(hub);
+        int numInstanceFields = instanceStart == HeapDumpMetadata.NO_FIELDS ? 0 : metadata.getFieldInfo(instanceStart);
+        int staticStart = instanceStart + 1 + numInstanceFields * 3;
+        int numStaticFields = instanceStart == HeapDumpMetadata.NO_FIELDS ? 0 : metadata.getFieldInfo(staticStart);
+
+        long size = 1 + ID_SIZE + 4 + 6 * ID_SIZE + 4 + 2 + 2 + 2 + numInstanceFields * (ID_SIZE + 1);
+        for (int i = 0; i < numStaticFields; i++) {
+            size += ID_SIZE + 1 + typeSize(metadata.getFieldInfo(staticStart + 1 + i * 3 + 1));
+        }
+        beginSubRecord(size);
+        putU1(HPROF_GC_CLASS_DUMP);
+        putId(hub);
+        putU4(STACK_TRACE_SERIAL);
+        putId(hub.getSuperHub());
+        putId(null); /* class loader */
+        putId(null); /* signers */
+        putId(null); /* protection domain */
+        putId(null); /* reserved */
+        putId(null); /* reserved */
+        putU4(instanceSize(hub));
+        putU2(0); /* constant pool */
+
+        putU2(numStaticFields);
+        for (int i = 0; i < numStaticFields; i++) {
+            int info = staticStart + 1 + i * 3;
+            int type = metadata.getFieldInfo(info + 1);
+            putId(metadata.getFieldName(metadata.getFieldInfo(info)));
+            putU1(type);
+            Object base = type == T_OBJECT ? StaticFieldsSupport.getStaticObjectFields() : StaticFieldsSupport.getStaticPrimitiveFields();
+            putFieldValue(base, type, metadata.getFieldInfo(info + 2));
+        }
+
+        putU2(numInstanceFields);
+        for (int i = 0; i < numInstanceFields; i++) {
+            int info = instanceStart + 1 + i * 3;
+            putId(metadata.getFieldName(metadata.getFieldInfo(info)));
+            putU1(metadata.getFieldInfo(info + 1));
+        }
+    }
+
+    private static int instanceSize(DynamicHub hub) {
+        int encoding = hub.getLayoutEncoding();
+        if (LayoutEncoding.isInstance(encoding)) {
+            return (int) LayoutEncoding.getInstanceSize(encoding).rawValue();
+        } else if (LayoutEncoding.isArray(encoding) && !hub.isArray()) {
+            /* A hybrid object: only the instance part has fields. */
+            return (int) LayoutEncoding.getArrayBaseOffset(encoding).rawValue();
+        }
+        return 0;
+    }
+
+    private final class StackRootVisitor implements StackFrameVisitor {
+        @Override
+        public boolean visitFrame(Pointer sp, CodePointer ip, DeoptimizedFrame deoptimizedFrame) {
+            return CodeInfoTable.visitObjectReferences(sp, ip, deoptimizedFrame, frameReferenceVisitor) && !failed;
+        }
+    }
+
+    private final class FrameReferenceVisitor implements ObjectReferenceVisitor {
+        @Override
+        public boolean visitObjectReference(Pointer objRef, boolean compressed) {
+            Object obj = ReferenceAccess.singleton().readObjectAt(objRef, compressed);
+            if (obj != null) {
+                beginSubRecord(1 + ID_SIZE + 4 + 4);
+                putU1(HPROF_GC_ROOT_JAVA_FRAME);
+                putId(obj);
+                putU4(0); /* thread serial number: unknown */
+                putU4(-1); /* frame number: unknown */
+            }
+            return !failed;
+        }
+    }
+
+    private final class ObjectDumpVisitor implements ObjectVisitor {
+        @Override
+        public boolean visitObject(Object o) {
+            if (o instanceof DynamicHub) {
+                /* Already written as a class dump. */
+                return !failed;
+            }
+            DynamicHub hub = KnownIntrinsics.readHub(o);
+            int encoding = hub.getLayoutEncoding();
+            if (!hub.isArray()) {
+                writeInstanceDump(o, hub);
+            } else if (LayoutEncoding.isObjectArray(encoding)) {
+                writeObjectArrayDump(o, hub, encoding);
+            } else {
+                writePrimitiveArrayDump(o, hub, encoding);
+            }
+            return !failed;
+        }
+    }
+
+    private void writeInstanceDump(Object o, DynamicHub hub) {
+        HeapDumpMetadata metadata = HeapDumpMetadata.singleton();
+        long fieldBytes = 0;
+        for (DynamicHub cur = hub; cur != null; cur = cur.getSuperHub()) {
+            int start = metadata.getTypeStart(cur);
+            if (start != HeapDumpMetadata.NO_FIELDS) {
+                for (int i = 0; i < metadata.getFieldInfo(start); i++) {
+                    fieldBytes += typeSize(metadata.getFieldInfo(start + 1 + i * 3 + 1));
+                }
+            }
+        }
+        beginSubRecord(1 + ID_SIZE + 4 + ID_SIZE + 4 + fieldBytes);
+        putU1(HPROF_GC_INSTANCE_DUMP);
+        putId(o);
+        putU4(STACK_TRACE_SERIAL);
+        putId(hub);
+        putU4((int) fieldBytes);
+        for (DynamicHub cur = hub; cur != null; cur = cur.getSuperHub()) {
+            int start = metadata.getTypeStart(cur);
+            if (start != HeapDumpMetadata.NO_FIELDS) {
+                for (int i = 0; i < metadata.getFieldInfo(start); i++) {
+                    int info = start + 1 + i * 3;
+                    putFieldValue(o, metadata.getFieldInfo(info + 1), metadata.getFieldInfo(info + 2));
+                }
+            }
+        }
+    }
+
+    private void writeObjectArrayDump(Object array, DynamicHub hub, int encoding) {
+        long maxLength = (MAX_RECORD_LENGTH - (1 + ID_SIZE + 4 + 4 + ID_SIZE)) / ID_SIZE;
+        int length = (int) Math.min(KnownIntrinsics.readArrayLength(array), maxLength);
+        beginSubRecord(1 + ID_SIZE + 4 + 4 + ID_SIZE + (long) length * ID_SIZE);
+        putU1(HPROF_GC_OBJ_ARRAY_DUMP);
+        putId(array);
+        putU4(STACK_TRACE_SERIAL);
+        putU4(length);
+        putId(hub);
+        for (int i = 0; i < length; i++) {
+            putId(ObjectAccess.readObject(array, LayoutEncoding.getArrayElementOffset(encoding, i)));
+        }
+    }
+
+    private void writePrimitiveArrayDump(Object array, DynamicHub hub, int encoding) {
+        int type = primitiveType(hub.getComponentHub());
+        int elementSize = typeSize(type);
+        long maxLength = (MAX_RECORD_LENGTH - (1 + ID_SIZE + 4 + 4 + 1)) / elementSize;
+        int length = (int) Math.min(KnownIntrinsics.readArrayLength(array), maxLength);
+        beginSubRecord(1 + ID_SIZE + 4 + 4 + 1 + (long) length * elementSize);
+        putU1(HPROF_GC_PRIM_ARRAY_DUMP);
+        putId(array);
+        putU4(STACK_TRACE_SERIAL);
+        putU4(length);
+        putU1(type);
+        if (elementSize == 1) {
+            putBytes(Word.objectToUntrackedPointer(array).add(LayoutEncoding.getArrayBaseOffset(encoding)), length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                putValue(array, elementSize, LayoutEncoding.getArrayElementOffset(encoding, i));
+            }
+        }
+    }
+
+    private static int primitiveType(DynamicHub componentHub) {
+        if (componentHub == DynamicHub.fromClass(boolean.class)) {
+            return T_BOOLEAN;
+        } else if (componentHub == DynamicHub.fromClass(byte.class)) {
+            return T_BYTE;
+        } else if (componentHub == DynamicHub.fromClass(char.class)) {
+            return T_CHAR;
+        } else if (componentHub == DynamicHub.fromClass(short.class)) {
+            return T_SHORT;
+        } else if (componentHub == DynamicHub.fromClass(int.class)) {
+            return T_INT;
+        } else if (componentHub == DynamicHub.fromClass(float.class)) {
+            return T_FLOAT;
+        } else if (componentHub == DynamicHub.fromClass(long.class)) {
+            return T_LONG;
+        } else {
+            return T_DOUBLE;
+        }
+    }
+
+    private static int typeSize(int type) {
+        switch (type) {
+            case T_OBJECT:
+                return ID_SIZE;
+            case T_BOOLEAN:
+            case T_BYTE:
+                return 1;
+            case T_CHAR:
+            case T_SHORT:
+                return 2;
+            case T_FLOAT:
+            case T_INT:
+                return 4;
+            default:
+                return 8;
+        }
+    }
+
+    private void putFieldValue(Object base, int type, int location) {
+        if (type == T_OBJECT) {
+            putId(ObjectAccess.readObject(base, location));
+        } else {
+            putValue(base, typeSize(type), WordFactory.unsigned(location));
+        }
+    }
+
+    /** Writes a primitive value of the given size in bytes. Floating point values as raw bits. */
+    private void putValue(Object base, int size, UnsignedWord offset) {
+        switch (size) {
+            case 1:
+                putU1(ObjectAccess.readByte(base, offset));
+                break;
+            case 2:
+                putU2(ObjectAccess.readShort(base, offset));
+                break;
+            case 4:
+                putU4(ObjectAccess.readInt(base, offset));
+                break;
+            default:
+                putU8(ObjectAccess.readLong(base, offset));
+                break;
+        }
+    }
+
+    /*
+     * Low-level output. All values are written in big-endian byte order.
+     */
+
+    private void writeRecordHeader(int tag, long length) {
+        assert segmentStart < 0 : "top-level record within a heap dump segment";
+        putU1(tag);
+        putU4(0); /* microseconds since the time stamp in the header */
+        putU4((int) length);
+    }
+
+    /**
+     * Ensures that a heap dump sub-record of the given size can be written, either in the open
+     * segment, in a new segment, or, if it does not fit into the buffer, in a segment of its own.
+     */
+    private void beginSubRecord(long size) {
+        if (segmentStart >= 0 && position + size <= BUFFER_SIZE) {
+            return;
+        }
+        closeSegment();
+        if (RECORD_HEADER_SIZE + size <= BUFFER_SIZE) {
+            segmentStart = position;
+            writeSegmentHeader(0);
+        } else {
+            writeSegmentHeader(size);
+        }
+    }
+
+    private void writeSegmentHeader(long length) {
+        putU1(HPROF_HEAP_DUMP_SEGMENT);
+        putU4(0);
+        putU4((int) length);
+    }
+
+    private void closeSegment() {
+        if (segmentStart >= 0) {
+            int length = position - segmentStart - RECORD_HEADER_SIZE;
+            int patch = segmentStart + 1 + 4;
+            buffer.writeByte(patch, (byte) (length >>> 24));
+            buffer.writeByte(patch + 1, (byte) (length >>> 16));
+            buffer.writeByte(patch + 2, (byte) (length >>> 8));
+            buffer.writeByte(patch + 3, (byte) length);
+            segmentStart = -1;
+        }
+        flush();
+    }
+
+    private void flush() {
+        if (position > 0 && !failed) {
+            failed = !writeToFile((CCharPointer) buffer, WordFactory.unsigned(position));
+        }
+        position = 0;
+    }
+
+    private void ensureCapacity(int size) {
+        if (position + size > BUFFER_SIZE) {
+            assert segmentStart < 0 : "heap dump segment must fit into the buffer";
+            flush();
+        }
+    }
+
+    private void putU1(int value) {
+        ensureCapacity(1);
+        buffer.writeByte(position, (byte) value);
+        position++;
+    }
+
+    private void putU2(int value) {
+        ensureCapacity(2);
+        buffer.writeByte(position, (byte) (value >>> 8));
+        buffer.writeByte(position + 1, (byte) value);
+        position += 2;
+    }
+
+    private void putU4(int value) {
+        ensureCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.writeByte(position + i, (byte) (value >>> (24 - 8 * i)));
+        }
+        position += 4;
+    }
+
+    private void putU8(long value) {
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            buffer.writeByte(position + i, (byte) (value >>> (56 - 8 * i)));
+        }
+        position += 8;
+    }
+
+    private void putId(Object obj) {
+        putU8(obj == null ? 0L : Word.objectToUntrackedPointer(obj).rawValue());
+    }
+
+    /** Copies bytes into the buffer, or writes them directly if they do not fit. */
+    private void putBytes(Pointer bytes, int length) {
+        if (position + length <= BUFFER_SIZE) {
+            MemoryUtil.copyConjointMemoryAtomic(bytes, buffer.add(position), WordFactory.unsigned(length));
+            position += length;
+        } else {
+            assert segmentStart < 0 : "heap dump segment must fit into the buffer";
+            flush();
+            if (!failed) {
+                failed = !writeToFile((CCharPointer) bytes, WordFactory.unsigned(length));
+            }
+        }
+    }
+}
@@ -58,6 +58,16 @@ public class CopyingImageHeapProvider implements ImageHeapProvider {
 
         MemoryUtil.copyConjointMemoryAtomic(imageHeapBegin, heap, imageHeapSize);
 
+        return protectAndPublish(heap, imageHeapSize, basePointer, endPointer);
+    }
+
+    /**
+     * Makes all of the new image heap instance except its writable part read-only, and writes its
+     * begin and end to {@code basePointer} and {@code endPointer}.
+     */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    protected static int protectAndPublish(Pointer heap, UnsignedWord imageHeapSize, WordPointer basePointer, WordPointer endPointer) {
+        Word imageHeapBegin = Isolates.IMAGE_HEAP_BEGIN.get();
         UnsignedWord pageSize = VirtualMemoryProvider.get().getGranularity();
         UnsignedWord writableBeginPageOffset = UnsignedUtils.roundDown(IMAGE_HEAP_WRITABLE_BEGIN.get().subtract(imageHeapBegin), pageSize);
         if (writableBeginPageOffset.aboveThan(0)) {
@@ -68,7 +78,7 @@ public class CopyingImageHeapProvider implements ImageHeapProvider {
         UnsignedWord writableEndPageOffset = UnsignedUtils.roundUp(IMAGE_HEAP_WRITABLE_END.get().subtract(imageHeapBegin), pageSize);
         if (writableEndPageOffset.belowThan(imageHeapSize)) {
             Pointer afterWritableBoundary = heap.add(writableEndPageOffset);
-            Word afterWritableSize = imageHeapSize.subtract(writableEndPageOffset);
+            UnsignedWord afterWritableSize = imageHeapSize.subtract(writableEndPageOffset);
             if (VirtualMemoryProvider.get().protect(afterWritableBoundary, afterWritableSize, Access.READ) != 0) {
                 return CEntryPointErrors.PROTECT_HEAP_FAILED;
             }
@@ -55,7 +55,9 @@ class OSCommittedMemoryProviderFeature implements Feature {
     @Override
     public void beforeAnalysis(BeforeAnalysisAccess access) {
         if (!ImageSingletons.contains(CommittedMemoryProvider.class)) {
-            ImageSingletons.add(ImageHeapProvider.class, new CopyingImageHeapProvider());
+            if (!ImageSingletons.contains(ImageHeapProvider.class)) {
+                ImageSingletons.add(ImageHeapProvider.class, new CopyingImageHeapProvider());
+            }
             ImageSingletons.add(CommittedMemoryProvider.class, new OSCommittedMemoryProvider());
         }
     }
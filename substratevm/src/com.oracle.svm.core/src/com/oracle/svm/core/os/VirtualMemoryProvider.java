@@ -138,6 +138,19 @@ public interface VirtualMemoryProvider {
      */
     int protect(PointerBase start, UnsignedWord nbytes, int access);
 
+    /**
+     * Advise the operating system to back a committed address range with huge pages where
+     * possible, for example with transparent huge pages on Linux. The advice is only a hint, and
+     * the contents and accessibility of the memory do not change.
+     *
+     * @param start The start of the address range, which must be a multiple of the
+     *            {@linkplain #getGranularity() granularity}.
+     * @param nbytes The size in bytes of the address range.
+     * @return 0 when successful, or a non-zero implementation-specific error code, also if huge
+     *         pages are not supported.
+     */
+    int adviseHugePages(PointerBase start, UnsignedWord nbytes);
+
     /**
      * Uncommit a committed address range, or a subrange of a committed address range, so that it
      * returns to {@linkplain #reserve reserved state} in which the memory is not intended to be
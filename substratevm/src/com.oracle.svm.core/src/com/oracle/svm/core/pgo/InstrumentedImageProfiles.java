@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.pgo;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+
+import com.oracle.svm.core.ImageProfiles;
+import com.oracle.svm.core.annotate.AlwaysInline;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.jdk.RuntimeSupport;
+import com.oracle.svm.core.log.Log;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.option.RuntimeOptionKey;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Profiles collected by an image built with {@link Options#PGOInstrument}. Every profiled bytecode
+ * gets a counter object that is created during compilation and embedded as a constant into the
+ * instrumented code, similar to the allocation counters of
+ * {@link com.oracle.svm.core.allocationprofile.AllocationSite}. The counters are not updated
+ * atomically, so concurrent updates can get lost. This is acceptable for profiles.
+ *
+ * At exit, the profiles are written to {@link Options#PGOProfilePath} in the format described in
+ * {@link #computeProfiles()}. An image built with the {@code PGO} option reads the file and uses
+ * the profiles for compilation.
+ */
+public final class InstrumentedImageProfiles extends ImageProfiles {
+
+    public static class Options {
+        @Option(help = "Instrument the image to collect branch, call-site and receiver type profiles that can be used by a later build with the PGO option.")//
+        public static final HostedOptionKey<Boolean> PGOInstrument = new HostedOptionKey<>(false);
+
+        @Option(help = "File to which an instrumented image writes its profiles at exit.")//
+        public static final RuntimeOptionKey<String> PGOProfilePath = new RuntimeOptionKey<>("default.iprof");
+    }
+
+    /** Number of receiver types recorded per call site. Further types are only counted in total. */
+    public static final int RECEIVER_TYPE_ROWS = 8;
+
+    public static final String BRANCH = "branch";
+    public static final String CALL = "call";
+
+    /**
+     * The master lists of all counters. The access must be thread safe since counters are created
+     * during parsing when everything is concurrent.
+     */
+    private static final ConcurrentMap<String, BranchCounter> branchCounters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, CallSiteCounter> callSiteCounters = new ConcurrentHashMap<>();
+
+    static {
+        /*
+         * The static analysis sees the counter types as instantiated, but the actual objects are
+         * only created during compilation. Adding unused counters makes the types reachable.
+         */
+        branchCounters.put("", new BranchCounter("", -1));
+        callSiteCounters.put("", new CallSiteCounter("", -1));
+    }
+
+    abstract static class ProfileCounter {
+        /** The {@linkplain #methodKey key} of the method containing the profiled bytecode. */
+        final String method;
+        final int bci;
+
+        ProfileCounter(String method, int bci) {
+            this.method = method;
+            this.bci = bci;
+        }
+
+        abstract long total();
+    }
+
+    public static final class BranchCounter extends ProfileCounter {
+        long taken;
+        long executed;
+
+        BranchCounter(String method, int bci) {
+            super(method, bci);
+        }
+
+        @Override
+        long total() {
+            return executed;
+        }
+    }
+
+    public static final class CallSiteCounter extends ProfileCounter {
+        long count;
+        final Class<?>[] receiverTypes = new Class<?>[RECEIVER_TYPE_ROWS];
+        final long[] receiverCounts = new long[RECEIVER_TYPE_ROWS];
+
+        CallSiteCounter(String method, int bci) {
+            super(method, bci);
+        }
+
+        @Override
+        long total() {
+            return count;
+        }
+
+        void recordReceiver(Class<?> type) {
+            for (int i = 0; i < RECEIVER_TYPE_ROWS; i++) {
+                Class<?> recorded = receiverTypes[i];
+                if (recorded == type) {
+                    receiverCounts[i]++;
+                    return;
+                } else if (recorded == null) {
+                    receiverTypes[i] = type;
+                    receiverCounts[i] = 1;
+                    return;
+                }
+            }
+        }
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    InstrumentedImageProfiles() {
+    }
+
+    /** The key that identifies a method in a profile file. */
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public static String methodKey(ResolvedJavaMethod method) {
+        return method.format("%H.%n(%P)%R");
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public static BranchCounter lookupBranchCounter(ResolvedJavaMethod method, int bci) {
+        String key = methodKey(method);
+        return branchCounters.computeIfAbsent(key + '\t' + bci, k -> new BranchCounter(key, bci));
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public static CallSiteCounter lookupCallSiteCounter(ResolvedJavaMethod method, int bci) {
+        String key = methodKey(method);
+        return callSiteCounters.computeIfAbsent(key + '\t' + bci, k -> new CallSiteCounter(key, bci));
+    }
+
+    /**
+     * Called from instrumented code for every executed profiled branch. The parameter
+     * {@code taken} is 1 if the branch jumps to its target and 0 if it falls through, so that the
+     * counting is free of branches.
+     */
+    @AlwaysInline("Profiling overhead")
+    public static void profileBranch(BranchCounter counter, int taken) {
+        counter.taken += taken;
+        counter.executed++;
+    }
+
+    /**
+     * Called from instrumented code before every profiled invocation. The receiver is
+     * {@code null} for invocations that are not dispatched on a receiver type.
+     */
+    @AlwaysInline("Profiling overhead")
+    public static void profileCall(CallSiteCounter counter, Object receiver) {
+        counter.count++;
+        if (receiver != null) {
+            counter.recordReceiver(receiver.getClass());
+        }
+    }
+
+    /**
+     * Returns the collected profiles, one bytecode per line with tab separated columns:
+     *
+     * <pre>
+     * branch &lt;method&gt; &lt;bci&gt; &lt;taken&gt; &lt;not taken&gt;
+     * call &lt;method&gt; &lt;bci&gt; &lt;count&gt; [&lt;receiver class&gt; &lt;count&gt;]*
+     * </pre>
+     *
+     * Bytecodes that were never executed are omitted.
+     */
+    @Override
+    protected String computeProfiles() {
+        List<ProfileCounter> counters = new ArrayList<>();
+        for (BranchCounter counter : branchCounters.values()) {
+            if (counter.total() > 0) {
+                counters.add(counter);
+            }
+        }
+        for (CallSiteCounter counter : callSiteCounters.values()) {
+            if (counter.total() > 0) {
+                counters.add(counter);
+            }
+        }
+        counters.sort(Comparator.comparing((ProfileCounter c) -> c.method).thenComparingInt(c -> c.bci));
+
+        StringBuilder result = new StringBuilder();
+        for (ProfileCounter counter : counters) {
+            if (counter instanceof BranchCounter) {
+                BranchCounter branch = (BranchCounter) counter;
+                result.append(BRANCH).append('\t').append(branch.method).append('\t').append(branch.bci);
+                result.append('\t').append(branch.taken).append('\t').append(branch.executed - branch.taken);
+            } else {
+                CallSiteCounter call = (CallSiteCounter) counter;
+                result.append(CALL).append('\t').append(call.method).append('\t').append(call.bci).append('\t').append(call.count);
+                for (int i = 0; i < RECEIVER_TYPE_ROWS && call.receiverTypes[i] != null; i++) {
+                    result.append('\t').append(call.receiverTypes[i].getName()).append('\t').append(call.receiverCounts[i]);
+                }
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    static void writeProfiles() {
+        String path = Options.PGOProfilePath.getValue();
+        try (PrintWriter writer = new PrintWriter(path)) {
+            writer.print(ImageProfiles.dumpProfiles());
+        } catch (FileNotFoundException e) {
+            Log.log().string("Cannot write image profiles to ").string(path).string(": ").string(e.getMessage()).newline();
+        }
+    }
+}
+
+@AutomaticFeature
+class InstrumentedImageProfilesFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return InstrumentedImageProfiles.Options.PGOInstrument.getValue();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(ImageProfiles.class, new InstrumentedImageProfiles());
+        RuntimeSupport.getRuntimeSupport().addShutdownHook(InstrumentedImageProfiles::writeProfiles);
+    }
+}
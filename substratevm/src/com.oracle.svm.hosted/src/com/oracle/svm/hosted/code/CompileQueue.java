@@ -137,6 +137,7 @@ import com.oracle.svm.hosted.NativeImageGenerator;
 import com.oracle.svm.hosted.NativeImageOptions;
 import com.oracle.svm.hosted.meta.HostedMethod;
 import com.oracle.svm.hosted.meta.HostedUniverse;
+import com.oracle.svm.hosted.pgo.ImageProfileData;
 import com.oracle.svm.hosted.phases.DevirtualizeCallsPhase;
 import com.oracle.svm.hosted.phases.HostedGraphBuilderPhase;
 import com.oracle.svm.hosted.phases.StrengthenStampsPhase;
@@ -601,9 +602,32 @@ public class CompileQueue {
         if (callee.compilationInfo.isTrivialMethod()) {
             return true;
         }
+        if (ImageProfileData.isPresent() && isHotCallSite(invoke, callee)) {
+            return true;
+        }
         return false;
     }
 
+    /**
+     * Inlining decision based on {@link ImageProfileData recorded profiles}: small callees of call
+     * sites that were executed often are inlined. Since inlining proceeds in rounds, the call
+     * sites of an inlined callee are considered in the next round, using the profile of the
+     * callee. The size of the caller is limited to bound the growth of the code.
+     */
+    private static boolean isHotCallSite(Invoke invoke, HostedMethod callee) {
+        StructuredGraph graph = invoke.asNode().graph();
+        HostedMethod caller = (HostedMethod) graph.method();
+        if (caller == null || caller.getAnnotation(Uninterruptible.class) != null || callee.getAnnotation(Uninterruptible.class) != null ||
+                        caller.getAnnotation(RestrictHeapAccess.class) != null || invoke.stateAfter() == null) {
+            return false;
+        }
+        if (graph.getNodeCount() > ImageProfileData.Options.PGOInlineMaxCallerNodes.getValue() ||
+                        callee.compilationInfo.getGraph().getNodeCount() > ImageProfileData.Options.PGOInlineMaxNodes.getValue()) {
+            return false;
+        }
+        return ImageProfileData.singleton().getCallSiteCount(invoke.stateAfter().getMethod(), invoke.bci()) >= ImageProfileData.Options.PGOHotCallSiteCount.getValue();
+    }
+
     private static boolean mustNotAllocateCallee(HostedMethod method) {
         return ImageSingletons.lookup(RestrictHeapAccessCallees.class).mustNotAllocate(method);
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+
+import com.oracle.svm.core.VMInspection;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.heapdump.HeapDumpMetadata;
+import com.oracle.svm.core.heapdump.HeapDumpWriter;
+import com.oracle.svm.core.util.VMError;
+import com.oracle.svm.hosted.FeatureImpl.BeforeCompilationAccessImpl;
+import com.oracle.svm.hosted.meta.HostedField;
+import com.oracle.svm.hosted.meta.HostedType;
+
+import jdk.vm.ci.meta.ResolvedJavaField;
+
+/**
+ * Collects the field information for {@link HeapDumpMetadata} once the field locations are final.
+ */
+@AutomaticFeature
+class HeapDumpFeature implements Feature {
+
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return VMInspection.isEnabled();
+    }
+
+    @Override
+    public void beforeCompilation(BeforeCompilationAccess a) {
+        BeforeCompilationAccessImpl access = (BeforeCompilationAccessImpl) a;
+
+        int maxTypeId = 0;
+        for (HostedType type : access.getUniverse().getTypes()) {
+            maxTypeId = Math.max(maxTypeId, type.getTypeID());
+        }
+        int[] typeStarts = new int[maxTypeId + 1];
+        Arrays.fill(typeStarts, -1);
+        List<Integer> fieldInfos = new ArrayList<>();
+        Map<String, Integer> nameIndices = new HashMap<>();
+
+        for (HostedType type : access.getUniverse().getTypes()) {
+            List<HostedField> instanceFields = new ArrayList<>();
+            if (type.isInstanceClass()) {
+                for (HostedField field : type.getInstanceFields(false)) {
+                    if (field.hasLocation()) {
+                        instanceFields.add(field);
+                    }
+                }
+            }
+            List<HostedField> staticFields = new ArrayList<>();
+            for (ResolvedJavaField field : type.getStaticFields()) {
+                if (((HostedField) field).hasLocation()) {
+                    staticFields.add((HostedField) field);
+                }
+            }
+            if (instanceFields.isEmpty() && staticFields.isEmpty()) {
+                continue;
+            }
+
+            typeStarts[type.getTypeID()] = fieldInfos.size();
+            addFields(instanceFields, fieldInfos, nameIndices);
+            addFields(staticFields, fieldInfos, nameIndices);
+        }
+
+        String[] fieldNames = new String[nameIndices.size()];
+        for (Map.Entry<String, Integer> entry : nameIndices.entrySet()) {
+            fieldNames[entry.getValue()] = entry.getKey();
+        }
+        int[] fieldInfoArray = new int[fieldInfos.size()];
+        for (int i = 0; i < fieldInfoArray.length; i++) {
+            fieldInfoArray[i] = fieldInfos.get(i);
+        }
+        ImageSingletons.lookup(HeapDumpMetadata.class).setData(typeStarts, fieldInfoArray, fieldNames);
+    }
+
+    private static void addFields(List<HostedField> fields, List<Integer> fieldInfos, Map<String, Integer> nameIndices) {
+        fieldInfos.add(fields.size());
+        for (HostedField field : fields) {
+            fieldInfos.add(nameIndices.computeIfAbsent(field.getName(), name -> nameIndices.size()));
+            fieldInfos.add(basicType(field));
+            fieldInfos.add(field.getLocation());
+        }
+    }
+
+    private static int basicType(HostedField field) {
+        switch (field.getStorageKind()) {
+            case Object:
+                return HeapDumpWriter.T_OBJECT;
+            case Boolean:
+                return HeapDumpWriter.T_BOOLEAN;
+            case Byte:
+                return HeapDumpWriter.T_BYTE;
+            case Char:
+                return HeapDumpWriter.T_CHAR;
+            case Short:
+                return HeapDumpWriter.T_SHORT;
+            case Int:
+                return HeapDumpWriter.T_INT;
+            case Float:
+                return HeapDumpWriter.T_FLOAT;
+            case Long:
+                return HeapDumpWriter.T_LONG;
+            case Double:
+                return HeapDumpWriter.T_DOUBLE;
+            default:
+                throw VMError.shouldNotReachHere("Unexpected field kind: " + field);
+        }
+    }
+}
@@ -336,6 +336,7 @@ public abstract class NativeBootImage extends AbstractBootImage {
 
             if (SubstrateOptions.SpawnIsolates.getValue()) {
                 heap.alignRelocatablePartition(objectFile.getPageSize());
+                heap.alignRarelyWrittenPartitions(objectFile.getPageSize());
             }
 
             long roSectionSize = roConstantsSize;
@@ -138,6 +138,12 @@ public final class NativeImageHeap {
             internStringsPhase.disallow();
         }
 
+        if (spawnIsolates()) {
+            /* Ensure that the hub of the filler objects used for page alignment is written. */
+            addObject(getMetaAccess().lookupJavaType(byte[].class).getHub(), false, "filler objects");
+            processAddObjectWorklist();
+        }
+
         addObjectsPhase.disallow();
         assert addObjectWorklist.isEmpty();
     }
@@ -158,6 +164,43 @@ public final class NativeImageHeap {
         readOnlyRelocatable.addPostPad(afterRelocPadding);
     }
 
+    /**
+     * Separates the rarely written partitions from the other writable partitions by page
+     * boundaries, so that frequent writes do not make the pages of rarely written objects private
+     * to an isolate or process. The partitions are walked object by object at run time, so the
+     * padding is filled with byte arrays.
+     *
+     * This code assumes that the writable section starts at an aligned offset. Compare to
+     * {@link NativeImageHeap#setWritableSection(String, long)} that sets the ordering of
+     * partitions within the writable section.
+     */
+    void alignRarelyWrittenPartitions(long alignment) {
+        long frequentlyWrittenSize = writablePrimitive.getSize() + writableReference.getSize();
+        if (rarelyWrittenPrimitive.getCount() > 0 && frequentlyWrittenSize + rarelyWrittenReference.getSize() > 0) {
+            addFillerObject(rarelyWrittenPrimitive, rarelyWrittenPrimitive.getSize(), alignment);
+        }
+        if (rarelyWrittenReference.getCount() > 0 && frequentlyWrittenSize > 0) {
+            addFillerObject(writableReference, rarelyWrittenPrimitive.getSize() + writablePrimitive.getSize() + writableReference.getSize(), alignment);
+        }
+    }
+
+    /** Appends a byte array to the partition that pads the given offset to the alignment. */
+    private void addFillerObject(HeapPartition partition, long offset, long alignment) {
+        long fillerSize = NumUtil.roundUp(offset, alignment) - offset;
+        if (fillerSize == 0) {
+            return;
+        }
+        if (fillerSize < layout.getArraySize(JavaKind.Byte, 0)) {
+            fillerSize += alignment;
+        }
+        int length = NumUtil.safeToInt(fillerSize - layout.getArrayBaseOffset(JavaKind.Byte));
+        assert layout.getArraySize(JavaKind.Byte, length) == fillerSize;
+        byte[] filler = new byte[length];
+        HostedClass clazz = (HostedClass) getMetaAccess().lookupJavaType(byte[].class);
+        ObjectInfo info = addToImageHeap(filler, clazz, fillerSize, System.identityHashCode(filler), "filler for page alignment");
+        info.assignToHeapPartition(partition, layout);
+    }
+
     private static Object readObjectField(HostedField field, JavaConstant receiver) {
         return SubstrateObjectConstant.asObject(field.readStorageValue(receiver));
     }
@@ -208,12 +251,19 @@ public final class NativeImageHeap {
     }
 
     long getWritableSectionSize() {
-        return writablePrimitive.getSize() + writableReference.getSize();
+        return rarelyWrittenPrimitive.getSize() + writablePrimitive.getSize() + writableReference.getSize() + rarelyWrittenReference.getSize();
     }
 
+    /**
+     * The rarely written partitions are placed at both ends of the writable section, so that the
+     * frequently written objects are contiguous while each kind of partition is still contiguous
+     * for the runtime.
+     */
     void setWritableSection(final String sectionName, final long sectionOffset) {
-        writablePrimitive.setSection(sectionName, sectionOffset);
+        rarelyWrittenPrimitive.setSection(sectionName, sectionOffset);
+        writablePrimitive.setSection(sectionName, rarelyWrittenPrimitive.offsetInSection(rarelyWrittenPrimitive.getSize()));
         writableReference.setSection(sectionName, writablePrimitive.offsetInSection(writablePrimitive.getSize()));
+        rarelyWrittenReference.setSection(sectionName, writableReference.offsetInSection(writableReference.getSize()));
     }
 
     public void registerAsImmutable(Object object) {
@@ -301,15 +351,19 @@ public final class NativeImageHeap {
             readOnlyPrimitive.printHistogram();
             readOnlyReference.printHistogram();
             readOnlyRelocatable.printHistogram();
+            rarelyWrittenPrimitive.printHistogram();
             writablePrimitive.printHistogram();
             writableReference.printHistogram();
+            rarelyWrittenReference.printHistogram();
         }
         if (NativeImageOptions.PrintImageHeapPartitionSizes.getValue()) {
             readOnlyPrimitive.printSize();
             readOnlyReference.printSize();
             readOnlyRelocatable.printSize();
+            rarelyWrittenPrimitive.printSize();
             writablePrimitive.printSize();
             writableReference.printSize();
+            rarelyWrittenReference.printSize();
         }
     }
 
@@ -357,6 +411,8 @@ public final class NativeImageHeap {
 
         boolean immutable = immutableFromParent || isImmutable(object);
         boolean written = false;
+        /* Written by code other than constructors, which do not run again for this object. */
+        boolean writtenAfterConstruction = false;
         boolean references = false;
         boolean relocatable = false; /* always false when !spawnIsolates() */
 
@@ -366,6 +422,7 @@ public final class NativeImageHeap {
             if (clazz.getMonitorFieldOffset() != 0) {
                 immutable = false;
                 written = true;
+                writtenAfterConstruction = true;
                 references = true;
             }
 
@@ -399,6 +456,7 @@ public final class NativeImageHeap {
                 if (hybridArray != null) {
                     blacklist.add(hybridArray);
                     written = true;
+                    writtenAfterConstruction = true;
                 }
 
                 size = hybridLayout.getTotalSize(Array.getLength(hybridArray));
@@ -431,7 +489,10 @@ public final class NativeImageHeap {
                      * inlined. Relocatable pointers are read-only for our purposes, however.
                      */
                     relocatable = relocatable || fieldRelocatable;
-                    written = written || (field.isWritten() && !field.isFinal() && !fieldRelocatable);
+                    if (field.isWritten() && !field.isFinal() && !fieldRelocatable) {
+                        written = true;
+                        writtenAfterConstruction = writtenAfterConstruction || field.isWrittenOutsideConstructors();
+                    }
                 }
 
             }
@@ -449,11 +510,12 @@ public final class NativeImageHeap {
                 references = true;
             }
             written = true; /* How to know if any of the array elements are written? */
+            writtenAfterConstruction = true;
         } else {
             throw shouldNotReachHere();
         }
 
-        final HeapPartition partition = choosePartition(!written || immutable, references, relocatable);
+        final HeapPartition partition = choosePartition(!written || immutable, !writtenAfterConstruction, references, relocatable);
         info.assignToHeapPartition(partition, layout);
     }
 
@@ -481,7 +543,7 @@ public final class NativeImageHeap {
         return info;
     }
 
-    private HeapPartition choosePartition(boolean immutable, boolean references, boolean relocatable) {
+    private HeapPartition choosePartition(boolean immutable, boolean rarelyWritten, boolean references, boolean relocatable) {
         if (SubstrateOptions.UseOnlyWritableBootImageHeap.getValue()) {
             assert !spawnIsolates();
             // Emergency use only! Alarms will sound!
@@ -495,6 +557,9 @@ public final class NativeImageHeap {
             return references ? readOnlyReference : readOnlyPrimitive;
         } else {
             VMError.guarantee(!relocatable, "Objects with relocatable pointers must be immutable");
+            if (rarelyWritten) {
+                return references ? rarelyWrittenReference : rarelyWrittenPrimitive;
+            }
             return references ? writableReference : writablePrimitive;
         }
     }
@@ -742,11 +807,21 @@ public final class NativeImageHeap {
         }
         patcher.patchReference("lastReadOnlyReferenceObject", lastReadOnlyReferenceObject);
 
-        patcher.patchReference("firstWritablePrimitiveObject", writablePrimitive.firstAllocatedObject);
-        patcher.patchReference("lastWritablePrimitiveObject", writablePrimitive.lastAllocatedObject);
+        /*
+         * Set the boundaries of writable primitives to include the rarely written primitive
+         * partition followed by the writable primitive partition, and the boundaries of writable
+         * references to include the writable reference partition followed by the rarely written
+         * reference partition.
+         */
+        patcher.patchReference("firstWritablePrimitiveObject", firstNonNull(rarelyWrittenPrimitive.firstAllocatedObject, writablePrimitive.firstAllocatedObject));
+        patcher.patchReference("lastWritablePrimitiveObject", firstNonNull(writablePrimitive.lastAllocatedObject, rarelyWrittenPrimitive.lastAllocatedObject));
+
+        patcher.patchReference("firstWritableReferenceObject", firstNonNull(writableReference.firstAllocatedObject, rarelyWrittenReference.firstAllocatedObject));
+        patcher.patchReference("lastWritableReferenceObject", firstNonNull(rarelyWrittenReference.lastAllocatedObject, writableReference.lastAllocatedObject));
+    }
 
-        patcher.patchReference("firstWritableReferenceObject", writableReference.firstAllocatedObject);
-        patcher.patchReference("lastWritableReferenceObject", writableReference.lastAllocatedObject);
+    private static Object firstNonNull(Object first, Object second) {
+        return first != null ? first : second;
     }
 
     private final class NativeImageInfoPatcher {
@@ -907,6 +982,8 @@ public final class NativeImageHeap {
         readOnlyRelocatable = HeapPartition.factory("readOnlyRelocatable", this, false);
         writablePrimitive = HeapPartition.factory("writablePrimitive", this, true);
         writableReference = HeapPartition.factory("writableReference", this, true);
+        rarelyWrittenPrimitive = HeapPartition.factory("rarelyWrittenPrimitive", this, true);
+        rarelyWrittenReference = HeapPartition.factory("rarelyWrittenReference", this, true);
 
         if (useHeapBase()) {
             /*
@@ -959,6 +1036,14 @@ public final class NativeImageHeap {
     private final HeapPartition writablePrimitive;
     /** A partition holding objects with writable references and primitive values. */
     private final HeapPartition writableReference;
+    /**
+     * Partitions holding writable objects whose fields are written only by constructors according
+     * to the static analysis. Since objects in the native image heap have already been constructed,
+     * they are unlikely to be written at run time. They remain writable, because a constructor can
+     * still write to an object other than the one being constructed.
+     */
+    private final HeapPartition rarelyWrittenPrimitive;
+    private final HeapPartition rarelyWrittenReference;
     /**
      * A pseudo-partition used during image building to consolidate objects that contain relocatable
      * references.
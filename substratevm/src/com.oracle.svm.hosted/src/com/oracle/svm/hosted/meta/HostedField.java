@@ -117,6 +117,10 @@ public class HostedField implements ReadableJavaField, SharedField, Comparable<H
         return wrapped.isWritten();
     }
 
+    public boolean isWrittenOutsideConstructors() {
+        return wrapped.isWrittenOutsideConstructors();
+    }
+
     @Override
     public String getName() {
         return wrapped.getName();
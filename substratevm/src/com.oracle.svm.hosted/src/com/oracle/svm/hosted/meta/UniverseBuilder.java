@@ -74,6 +74,7 @@ import com.oracle.svm.core.hub.LayoutEncoding;
 import com.oracle.svm.hosted.HostedConfiguration;
 import com.oracle.svm.hosted.NativeImageOptions;
 import com.oracle.svm.hosted.config.HybridLayout;
+import com.oracle.svm.hosted.pgo.ImageProfileData;
 import com.oracle.svm.hosted.substitute.AnnotationSubstitutionProcessor;
 import com.oracle.svm.hosted.substitute.ComputedValueField;
 import com.oracle.svm.hosted.substitute.DeletedMethod;
@@ -301,6 +302,12 @@ public class UniverseBuilder {
         hUniverse.methods.entrySet().parallelStream()
                         .forEach(entry -> entry.getValue().staticAnalysisResults = staticAnalysisResultsBuilder.makeResults(entry.getKey()));
 
+        if (ImageProfileData.isPresent()) {
+            ImageProfileData profileData = ImageProfileData.singleton();
+            hUniverse.methods.values().parallelStream()
+                            .forEach(method -> method.staticAnalysisResults = profileData.augment(method, method.staticAnalysisResults));
+        }
+
         staticAnalysisResultsBuilder = null;
     }
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.pgo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+
+import com.oracle.graal.pointsto.results.StaticAnalysisResults;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.pgo.InstrumentedImageProfiles;
+import com.oracle.svm.core.util.UserError;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Profiles recorded by an image built with {@link InstrumentedImageProfiles.Options#PGOInstrument}
+ * and read back when building with {@link Options#PGO}. The profiles replace the static
+ * heuristics of the {@link StaticAnalysisResults} for branch probabilities, execution counts and
+ * receiver type probabilities, and they guide the inlining of hot call sites.
+ */
+public final class ImageProfileData {
+
+    public static class Options {
+        @Option(help = "Optimize the image using the profiles in the given file, which was written by an image built with the PGOInstrument option.", type = OptionType.User)//
+        public static final HostedOptionKey<String> PGO = new HostedOptionKey<>("");
+
+        @Option(help = "Minimum number of profiled executions of a call site to inline its callee.", type = OptionType.Expert)//
+        public static final HostedOptionKey<Integer> PGOHotCallSiteCount = new HostedOptionKey<>(10000);
+
+        @Option(help = "Maximum number of nodes of a callee that is inlined into a hot call site.", type = OptionType.Expert)//
+        public static final HostedOptionKey<Integer> PGOInlineMaxNodes = new HostedOptionKey<>(200);
+
+        @Option(help = "Maximum number of nodes of a method into which hot call sites are inlined.", type = OptionType.Expert)//
+        public static final HostedOptionKey<Integer> PGOInlineMaxCallerNodes = new HostedOptionKey<>(5000);
+    }
+
+    static final class BranchProfile {
+        final long taken;
+        final long notTaken;
+
+        BranchProfile(long taken, long notTaken) {
+            this.taken = taken;
+            this.notTaken = notTaken;
+        }
+    }
+
+    static final class CallSiteProfile {
+        final long count;
+        /** The names of the receiver classes, as returned by {@link Class#getName()}. */
+        final String[] receiverTypes;
+        final long[] receiverCounts;
+
+        CallSiteProfile(long count, String[] receiverTypes, long[] receiverCounts) {
+            this.count = count;
+            this.receiverTypes = receiverTypes;
+            this.receiverCounts = receiverCounts;
+        }
+    }
+
+    static final class MethodProfile {
+        final Map<Integer, BranchProfile> branches = new HashMap<>();
+        final Map<Integer, CallSiteProfile> callSites = new HashMap<>();
+    }
+
+    private final Map<String, MethodProfile> methods = new HashMap<>();
+
+    private ImageProfileData() {
+    }
+
+    public static boolean isPresent() {
+        return ImageSingletons.contains(ImageProfileData.class);
+    }
+
+    public static ImageProfileData singleton() {
+        return ImageSingletons.lookup(ImageProfileData.class);
+    }
+
+    /** Parses a file in the format written by {@link InstrumentedImageProfiles}. */
+    static ImageProfileData parse(Path path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path);
+        } catch (IOException ex) {
+            throw UserError.abort("Cannot read image profiles from " + path + ": " + ex.getMessage(), ex);
+        }
+
+        ImageProfileData result = new ImageProfileData();
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            try {
+                MethodProfile method = result.methods.computeIfAbsent(columns[1], k -> new MethodProfile());
+                int bci = Integer.parseInt(columns[2]);
+                if (columns[0].equals(InstrumentedImageProfiles.BRANCH) && columns.length == 5) {
+                    method.branches.put(bci, new BranchProfile(Long.parseLong(columns[3]), Long.parseLong(columns[4])));
+                } else if (columns[0].equals(InstrumentedImageProfiles.CALL) && columns.length % 2 == 0) {
+                    int rows = (columns.length - 4) / 2;
+                    String[] receiverTypes = new String[rows];
+                    long[] receiverCounts = new long[rows];
+                    for (int i = 0; i < rows; i++) {
+                        receiverTypes[i] = columns[4 + 2 * i];
+                        receiverCounts[i] = Long.parseLong(columns[5 + 2 * i]);
+                    }
+                    method.callSites.put(bci, new CallSiteProfile(Long.parseLong(columns[3]), receiverTypes, receiverCounts));
+                } else {
+                    throw UserError.abort("Malformed image profile in " + path + " at line " + lineNumber + ": " + line);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                throw UserError.abort("Malformed image profile in " + path + " at line " + lineNumber + ": " + line, ex);
+            }
+        }
+        return result;
+    }
+
+    MethodProfile lookup(ResolvedJavaMethod method) {
+        return methods.get(InstrumentedImageProfiles.methodKey(method));
+    }
+
+    /**
+     * Returns the results of the static analysis for the given method, augmented with the profiles
+     * recorded for the method if there are any.
+     */
+    public StaticAnalysisResults augment(ResolvedJavaMethod method, StaticAnalysisResults results) {
+        MethodProfile profile = lookup(method);
+        if (profile == null || results == StaticAnalysisResults.NO_RESULTS) {
+            return results;
+        }
+        return new ProfileGuidedAnalysisResults(results, profile);
+    }
+
+    /**
+     * Returns how often the invocation at the given bci of the given method was executed, or -1 if
+     * the call site was not profiled.
+     */
+    public long getCallSiteCount(ResolvedJavaMethod method, int bci) {
+        MethodProfile profile = lookup(method);
+        CallSiteProfile callSite = profile == null ? null : profile.callSites.get(bci);
+        return callSite == null ? -1 : callSite.count;
+    }
+}
+
+@AutomaticFeature
+class ImageProfileDataFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return !ImageProfileData.Options.PGO.getValue().isEmpty();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(ImageProfileData.class, ImageProfileData.parse(Paths.get(ImageProfileData.Options.PGO.getValue())));
+    }
+}
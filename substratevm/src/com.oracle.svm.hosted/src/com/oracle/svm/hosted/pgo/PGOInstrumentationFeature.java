@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.pgo;
+
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
+
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.graal.GraalFeature;
+import com.oracle.svm.core.pgo.InstrumentedImageProfiles;
+import com.oracle.svm.hosted.FeatureImpl.BeforeAnalysisAccessImpl;
+
+import jdk.vm.ci.meta.MetaAccessProvider;
+
+/**
+ * Instruments the image to record {@linkplain InstrumentedImageProfiles profiles} when building with
+ * {@link InstrumentedImageProfiles.Options#PGOInstrument}.
+ */
+@AutomaticFeature
+public final class PGOInstrumentationFeature implements GraalFeature {
+
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return InstrumentedImageProfiles.Options.PGOInstrument.getValue();
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess a) {
+        BeforeAnalysisAccessImpl access = (BeforeAnalysisAccessImpl) a;
+        /*
+         * The instrumentation is only added when compiling the image, so the static analysis does
+         * not see the calls of the profiling methods.
+         */
+        access.registerAsCompiled(PGOInstrumentationPlugin.PROFILE_BRANCH);
+        access.registerAsCompiled(PGOInstrumentationPlugin.PROFILE_CALL);
+    }
+
+    @Override
+    public void registerNodePlugins(MetaAccessProvider metaAccess, Plugins plugins, boolean analysis, boolean hosted) {
+        if (hosted && !analysis) {
+            PGOInstrumentationPlugin plugin = new PGOInstrumentationPlugin();
+            plugins.setProfilingPlugin(plugin);
+            plugins.appendNodePlugin(plugin);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.pgo;
+
+import java.lang.reflect.Method;
+
+import org.graalvm.compiler.nodes.CallTargetNode.InvokeKind;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderContext;
+import org.graalvm.compiler.nodes.graphbuilderconf.NodePlugin;
+import org.graalvm.compiler.nodes.graphbuilderconf.ProfilingPlugin;
+
+import com.oracle.svm.core.annotate.RestrictHeapAccess;
+import com.oracle.svm.core.annotate.Uninterruptible;
+import com.oracle.svm.core.meta.SubstrateObjectConstant;
+import com.oracle.svm.core.pgo.InstrumentedImageProfiles;
+import com.oracle.svm.core.pgo.InstrumentedImageProfiles.BranchCounter;
+import com.oracle.svm.core.pgo.InstrumentedImageProfiles.CallSiteCounter;
+import com.oracle.svm.core.util.VMError;
+import com.oracle.svm.hosted.meta.HostedMethod;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Instruments the code of the image to record the profiles of {@link InstrumentedImageProfiles}.
+ * Conditional branches are instrumented via the {@link ProfilingPlugin} hooks of the bytecode
+ * parser, invocations via {@link #handleInvoke}. The instrumentation calls the static profiling
+ * methods of {@link InstrumentedImageProfiles}, which are always inlined.
+ */
+final class PGOInstrumentationPlugin implements ProfilingPlugin, NodePlugin {
+
+    static final Method PROFILE_BRANCH;
+    static final Method PROFILE_CALL;
+
+    static {
+        try {
+            PROFILE_BRANCH = InstrumentedImageProfiles.class.getMethod("profileBranch", BranchCounter.class, int.class);
+            PROFILE_CALL = InstrumentedImageProfiles.class.getMethod("profileCall", CallSiteCounter.class, Object.class);
+        } catch (NoSuchMethodException ex) {
+            throw VMError.shouldNotReachHere(ex);
+        }
+    }
+
+    /** Length of the conditional branch bytecodes, i.e., the offset of the fall-through bci. */
+    private static final int IF_BYTECODE_LENGTH = 3;
+
+    /**
+     * The arguments of the invocation that is currently re-parsed after its call site was
+     * instrumented. Re-parsing calls the node plugins again, so they must ignore this invocation.
+     */
+    private final ThreadLocal<ValueNode[]> replayedArguments = new ThreadLocal<>();
+
+    @Override
+    public boolean shouldProfile(GraphBuilderContext builder, ResolvedJavaMethod method) {
+        if (builder.parsingIntrinsic() || !(method instanceof HostedMethod) || ((HostedMethod) method).isDeoptTarget()) {
+            return false;
+        }
+        /*
+         * Code of the VM itself runs in contexts where the instrumentation is not allowed, e.g.,
+         * during garbage collection or before the current thread is set up.
+         */
+        String className = method.getDeclaringClass().toJavaName(true);
+        if (className.startsWith("com.oracle.svm.") || className.startsWith("org.graalvm.")) {
+            return false;
+        }
+        return method.getAnnotation(Uninterruptible.class) == null && method.getAnnotation(RestrictHeapAccess.class) == null;
+    }
+
+    @Override
+    public void profileInvoke(GraphBuilderContext builder, ResolvedJavaMethod method, FrameState frameState) {
+        /* Method entries are not profiled, call sites are profiled in handleInvoke. */
+    }
+
+    @Override
+    public void profileGoto(GraphBuilderContext builder, ResolvedJavaMethod method, int bci, int targetBci, FrameState frameState) {
+        /* Unconditional jumps do not need a profile. */
+    }
+
+    @Override
+    public void profileIf(GraphBuilderContext builder, ResolvedJavaMethod method, int bci, LogicNode condition, int trueBranchBci, int falseBranchBci, FrameState frameState) {
+        assert shouldProfile(builder, method);
+        /*
+         * The probability in the profile is the probability that the branch jumps to its target,
+         * but the condition might have been negated. The successor that is not the fall-through
+         * is the jump target.
+         */
+        boolean trueBranchTaken = trueBranchBci != bci + IF_BYTECODE_LENGTH;
+        ValueNode trueValue = builder.append(ConstantNode.forInt(trueBranchTaken ? 1 : 0));
+        ValueNode falseValue = builder.append(ConstantNode.forInt(trueBranchTaken ? 0 : 1));
+        ValueNode taken = builder.append(new ConditionalNode(condition, trueValue, falseValue));
+
+        BranchCounter counter = InstrumentedImageProfiles.lookupBranchCounter(method, bci);
+        ValueNode[] args = {constant(builder, counter), taken};
+        builder.handleReplacedInvoke(InvokeKind.Static, builder.getMetaAccess().lookupJavaMethod(PROFILE_BRANCH), args, false);
+    }
+
+    @Override
+    public boolean handleInvoke(GraphBuilderContext b, ResolvedJavaMethod method, ValueNode[] args) {
+        if (args == replayedArguments.get() || method.getDeclaringClass().equals(b.getMetaAccess().lookupJavaType(InstrumentedImageProfiles.class)) || !shouldProfile(b, b.getMethod())) {
+            return false;
+        }
+
+        InvokeKind invokeKind = b.getInvokeKind();
+        ValueNode receiver = invokeKind.isIndirect() ? args[0] : ConstantNode.defaultForKind(JavaKind.Object, b.getGraph());
+        CallSiteCounter counter = InstrumentedImageProfiles.lookupCallSiteCounter(b.getMethod(), b.bci());
+        ValueNode[] profileArgs = {constant(b, counter), receiver};
+        b.handleReplacedInvoke(InvokeKind.Static, b.getMetaAccess().lookupJavaMethod(PROFILE_CALL), profileArgs, false);
+
+        /* Parse the original invocation, which must not be instrumented again. */
+        replayedArguments.set(args);
+        try {
+            b.handleReplacedInvoke(invokeKind, method, args, false);
+        } finally {
+            replayedArguments.set(null);
+        }
+        return true;
+    }
+
+    private static ValueNode constant(GraphBuilderContext b, Object counter) {
+        return ConstantNode.forConstant(SubstrateObjectConstant.forObject(counter), b.getMetaAccess(), b.getGraph());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.pgo;
+
+import static org.graalvm.compiler.nodes.extended.BranchProbabilityNode.LUDICROUSLY_FAST_PATH_PROBABILITY;
+import static org.graalvm.compiler.nodes.extended.BranchProbabilityNode.LUDICROUSLY_SLOW_PATH_PROBABILITY;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.oracle.graal.pointsto.results.StaticAnalysisResults;
+import com.oracle.svm.hosted.meta.HostedType;
+import com.oracle.svm.hosted.pgo.ImageProfileData.BranchProfile;
+import com.oracle.svm.hosted.pgo.ImageProfileData.CallSiteProfile;
+import com.oracle.svm.hosted.pgo.ImageProfileData.MethodProfile;
+
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+
+/**
+ * Results of the static analysis augmented with recorded {@linkplain ImageProfileData profiles}.
+ *
+ * The static analysis results are sound, i.e., the compiler relies on the fact that no other
+ * receiver types than the ones in the static type profiles are possible. The recorded profiles
+ * are only samples of executions, so they only change the probabilities of the types but never
+ * the set of types. Likewise, branch probabilities are never exactly 0 or 1 because the compiler
+ * would remove the never executed branch.
+ */
+final class ProfileGuidedAnalysisResults extends StaticAnalysisResults {
+
+    private final MethodProfile profile;
+    private final Map<Integer, JavaTypeProfile> typeProfiles = new HashMap<>();
+
+    ProfileGuidedAnalysisResults(StaticAnalysisResults original, MethodProfile profile) {
+        super(original);
+        this.profile = profile;
+
+        for (Map.Entry<Integer, CallSiteProfile> entry : profile.callSites.entrySet()) {
+            JavaTypeProfile staticProfile = original.getTypeProfile(entry.getKey());
+            if (staticProfile != null && entry.getValue().receiverTypes.length > 0) {
+                typeProfiles.put(entry.getKey(), reweight(staticProfile, entry.getValue()));
+            }
+        }
+    }
+
+    private static JavaTypeProfile reweight(JavaTypeProfile staticProfile, CallSiteProfile callSite) {
+        ProfiledType[] staticTypes = staticProfile.getTypes();
+        long[] counts = new long[staticTypes.length];
+        long total = 0;
+        for (int i = 0; i < staticTypes.length; i++) {
+            String name = ((HostedType) staticTypes[i].getType()).getJavaClass().getName();
+            for (int j = 0; j < callSite.receiverTypes.length; j++) {
+                if (callSite.receiverTypes[j].equals(name)) {
+                    counts[i] = callSite.receiverCounts[j];
+                    total += counts[i];
+                }
+            }
+        }
+        if (total == 0) {
+            return staticProfile;
+        }
+
+        double recordedProbability = 1 - staticProfile.getNotRecordedProbability();
+        ProfiledType[] types = new ProfiledType[staticTypes.length];
+        for (int i = 0; i < staticTypes.length; i++) {
+            types[i] = new ProfiledType(staticTypes[i].getType(), recordedProbability * counts[i] / total);
+        }
+        /* Type profiles are sorted by descending probability. */
+        Arrays.sort(types, Comparator.comparingDouble(ProfiledType::getProbability).reversed());
+        return new JavaTypeProfile(staticProfile.getNullSeen(), staticProfile.getNotRecordedProbability(), types);
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        BranchProfile branch = profile.branches.get(bci);
+        if (branch == null || branch.taken + branch.notTaken == 0) {
+            return super.getBranchTakenProbability(bci);
+        }
+        double probability = (double) branch.taken / (branch.taken + branch.notTaken);
+        return Math.min(Math.max(probability, LUDICROUSLY_SLOW_PATH_PROBABILITY), LUDICROUSLY_FAST_PATH_PROBABILITY);
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        JavaTypeProfile result = typeProfiles.get(bci);
+        return result != null ? result : super.getTypeProfile(bci);
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        CallSiteProfile callSite = profile.callSites.get(bci);
+        if (callSite != null) {
+            return (int) Math.min(callSite.count, Integer.MAX_VALUE);
+        }
+        BranchProfile branch = profile.branches.get(bci);
+        if (branch != null) {
+            return (int) Math.min(branch.taken + branch.notTaken, Integer.MAX_VALUE);
+        }
+        return super.getExecutionCount(bci);
+    }
+}
@@ -46,6 +46,9 @@ public class SubstrateOptimizedCallTarget extends OptimizedCallTarget implements
 
     protected long address;
 
+    /** @see #getLastInvocationEpoch() */
+    private long lastInvocationEpoch;
+
     public SubstrateOptimizedCallTarget(OptimizedCallTarget sourceCallTarget, RootNode rootNode) {
         super(sourceCallTarget, rootNode);
     }
@@ -95,6 +98,11 @@ public class SubstrateOptimizedCallTarget extends OptimizedCallTarget implements
         return address;
     }
 
+    @Override
+    public long getLastInvocationEpoch() {
+        return lastInvocationEpoch;
+    }
+
     @Override
     public long getCodeAddress() {
         return getAddress();
@@ -121,6 +129,7 @@ public class SubstrateOptimizedCallTarget extends OptimizedCallTarget implements
          * address. Otherwise, the code can be invalidated concurrently and we invoke an address
          * that no longer contains executable code.
          */
+        lastInvocationEpoch = CodeInfoTable.getRuntimeCodeCache().getUseEpoch();
         long start = address;
         if (start != 0) {
             CallBoundaryFunctionPointer target = WordFactory.pointer(start);